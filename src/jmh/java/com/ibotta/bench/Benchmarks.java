@@ -0,0 +1,43 @@
+package com.ibotta.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs the benchmarks once for every thread count, run by maven with -P benchmarks
+ *
+ * Usage: Benchmarks [results dir] [thread counts, e.g. 1,4] [benchmark regex] [corpus sizes, e.g. 10000,250000]
+ * Results of each thread count are written as json to the results dir, jmh-[threads]threads.json
+ */
+public class Benchmarks {
+
+    public static void main(String[] args) throws RunnerException {
+        File dir = new File(arg(args, 0, "target"));
+        String[] threads = arg(args, 1, "1").split(",");
+        String include = arg(args, 2, "com\\.ibotta\\.bench\\..*");
+        String corpusSizes = arg(args, 3, "");
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IllegalArgumentException("Can't create results dir " + dir);
+
+        for (String t : threads) {
+            int count = Integer.parseInt(t.trim());
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(include)
+                    .threads(count)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(dir, "jmh-" + count + "threads.json").getPath());
+            if (!corpusSizes.isEmpty())
+                options.param("corpusSize", corpusSizes.split(","));
+            new Runner(options.build()).run();
+        }
+    }
+
+    private static String arg(String[] args, int i, String defaultValue) {
+        return (args.length > i && !args[i].trim().isEmpty()) ? args[i].trim() : defaultValue;
+    }
+}
@@ -0,0 +1,63 @@
+package com.ibotta.bench;
+
+import org.apache.commons.io.IOUtils;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Word lists shared by the benchmarks, read once per JVM from the bundled dictionary
+ */
+final class Corpus {
+
+    private static List<String> words;
+
+    private Corpus() { }
+
+    /**
+     * Every word of the bundled dictionary in a fixed shuffled order, so any prefix is a fair sample
+     */
+    static synchronized List<String> words() throws IOException {
+        if (words == null) {
+            try (InputStream in = new ClassPathResource("dictionary.txt").getInputStream()) {
+                List<String> all = new ArrayList<>();
+                for (String line : IOUtils.readLines(in, Charset.defaultCharset()))
+                    if (!line.trim().isEmpty())
+                        all.add(line.trim());
+                Collections.shuffle(all, new Random(42));
+                words = Collections.unmodifiableList(all);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * The first words of the shuffled dictionary
+     * @param size how many words, capped at the dictionary size
+     */
+    static List<String> sample(int size) throws IOException {
+        List<String> all = words();
+        return all.subList(0, Math.min(size, all.size()));
+    }
+
+    /**
+     * Made up words that are very unlikely to be in the dictionary, for benchmarks that add and delete
+     */
+    static String[] synthetic(int count, long seed) {
+        Random random = new Random(seed);
+        String[] result = new String[count];
+        for (int i = 0; i < count; i++) {
+            char[] chars = new char[10 + random.nextInt(6)];
+            for (int j = 0; j < chars.length; j++)
+                chars[j] = (char) ('a' + random.nextInt(26));
+            result[i] = new String(chars);
+        }
+        return result;
+    }
+}
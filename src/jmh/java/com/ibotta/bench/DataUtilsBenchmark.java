@@ -0,0 +1,67 @@
+package com.ibotta.bench;
+
+import com.ibotta.dao.DataUtils;
+import com.ibotta.dao.Signature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per word helpers: the legacy sorted key, the signature that replaced it and character validation
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataUtilsBenchmark {
+
+    @Param({ "1000" })
+    public int corpusSize;
+
+    private String[] words;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        List<String> sample = Corpus.sample(corpusSize);
+        words = sample.toArray(new String[sample.size()]);
+    }
+
+    private String word() {
+        if (++next == words.length)
+            next = 0;
+        return words[next];
+    }
+
+    @Benchmark
+    public String createKeyFromWord() {
+        return DataUtils.createKeyFromWord(word());
+    }
+
+    @Benchmark
+    public void signature(Blackhole bh) {
+        String word = word();
+        bh.consume(Signature.high(word));
+        bh.consume(Signature.low(word));
+    }
+
+    @Benchmark
+    public boolean validCharacters() {
+        return DataUtils.validCharacters(word());
+    }
+}
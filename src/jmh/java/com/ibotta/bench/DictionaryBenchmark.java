@@ -0,0 +1,85 @@
+package com.ibotta.bench;
+
+import com.ibotta.dao.Anagrams;
+import com.ibotta.dao.Dictionary;
+import com.ibotta.dao.Stats;
+import com.ibotta.dao.StorageEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read paths of a populated dictionary, shared by every benchmark thread
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DictionaryBenchmark {
+
+    @Param({ "10000", "250000" })
+    public int corpusSize;
+
+    @Param({ "HEAP", "OFFHEAP" })
+    public StorageEngine engine;
+
+    @Param({ "5" })
+    public int groupSize;
+
+    private Dictionary dictionary;
+    private Stats stats;
+    private String[] words;
+
+    @Setup
+    public void setup() throws IOException {
+        List<String> sample = Corpus.sample(corpusSize);
+        words = sample.toArray(new String[sample.size()]);
+        dictionary = new Dictionary(engine);
+        dictionary.addWords(words);
+        stats = new Stats(dictionary);
+    }
+
+    /**
+     * Each thread looks up its own random sequence of words
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private final Random random = new Random();
+
+        String next(String[] words) {
+            return words[random.nextInt(words.length)];
+        }
+    }
+
+    @Benchmark
+    public Anagrams getAnagrams(Cursor cursor) {
+        return dictionary.getAnagrams(cursor.next(words));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Anagrams> getAnagramGroupsBySize() {
+        return dictionary.getAnagramGroupsBySize(groupSize);
+    }
+
+    @Benchmark
+    public int statsCalculate() {
+        stats.calculate();
+        return stats.getWordCount();
+    }
+}
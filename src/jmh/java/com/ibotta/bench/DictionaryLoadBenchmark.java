@@ -0,0 +1,68 @@
+package com.ibotta.bench;
+
+import com.ibotta.dao.CorpusStore;
+import com.ibotta.dao.Dictionary;
+import com.ibotta.dao.DictionaryLoader;
+import com.ibotta.dao.DictionarySnapshot;
+import com.ibotta.dao.StorageEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup cost of the whole bundled dictionary: parsing the word list and mapping a prebuilt snapshot
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DictionaryLoadBenchmark {
+
+    private static final String DICTIONARY = "dictionary.txt";
+
+    @Param({ "HEAP", "OFFHEAP" })
+    public StorageEngine engine;
+
+    private File snapshot;
+
+    @Setup
+    public void setup() throws IOException {
+        Dictionary dictionary = new Dictionary(StorageEngine.HEAP);
+        new DictionaryLoader().load(dictionary, DICTIONARY);
+        snapshot = File.createTempFile("dictionary", ".snapshot");
+        dictionary.writeSnapshot(snapshot);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (!snapshot.delete())
+            snapshot.deleteOnExit();
+    }
+
+    @Benchmark
+    public Dictionary loadWordList() throws IOException {
+        Dictionary dictionary = new Dictionary(engine);
+        new DictionaryLoader().load(dictionary, DICTIONARY);
+        return dictionary;
+    }
+
+    @Benchmark
+    public CorpusStore mapSnapshot() throws IOException {
+        return engine.open(DictionarySnapshot.map(snapshot));
+    }
+}
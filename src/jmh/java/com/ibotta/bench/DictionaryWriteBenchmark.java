@@ -0,0 +1,101 @@
+package com.ibotta.bench;
+
+import com.ibotta.dao.Dictionary;
+import com.ibotta.dao.StorageEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adding and deleting single words on a populated dictionary.
+ *
+ * Every iteration is a fixed batch of words, timed as a whole.  Before each iteration the words of every thread are
+ * put back into the state the benchmark expects (absent for addWord, present for deleteWord) outside of the timing,
+ * so each add really inserts a word and each delete really removes one no matter how many iterations are run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, batchSize = DictionaryWriteBenchmark.BATCH)
+@Measurement(iterations = 20, batchSize = DictionaryWriteBenchmark.BATCH)
+@Fork(1)
+public class DictionaryWriteBenchmark {
+
+    static final int BATCH = 10000;
+
+    @Param({ "10000", "250000" })
+    public int corpusSize;
+
+    @Param({ "HEAP", "OFFHEAP" })
+    public StorageEngine engine;
+
+    private Dictionary dictionary;
+
+    @Setup
+    public void setup() throws IOException {
+        List<String> sample = Corpus.sample(corpusSize);
+        dictionary = new Dictionary(engine);
+        dictionary.addWords(sample.toArray(new String[sample.size()]));
+    }
+
+    /**
+     * The words written by one thread, no two threads share a word
+     */
+    @State(Scope.Thread)
+    public static class Batch {
+        String[] words;
+        int next;
+
+        @Setup
+        public void setup(ThreadParams thread) {
+            words = Corpus.synthetic(BATCH, thread.getThreadIndex());
+        }
+
+        String next() {
+            return words[next++ % words.length];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Absent extends Batch {
+        @Setup(Level.Iteration)
+        public void reset(DictionaryWriteBenchmark benchmark) {
+            for (String word : words)
+                benchmark.dictionary.deleteWord(word);
+            next = 0;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Present extends Batch {
+        @Setup(Level.Iteration)
+        public void reset(DictionaryWriteBenchmark benchmark) {
+            benchmark.dictionary.addWords(words);
+            next = 0;
+        }
+    }
+
+    @Benchmark
+    public boolean addWord(Absent batch) {
+        return dictionary.addWord(batch.next());
+    }
+
+    @Benchmark
+    public boolean deleteWord(Present batch) {
+        return dictionary.deleteWord(batch.next());
+    }
+}
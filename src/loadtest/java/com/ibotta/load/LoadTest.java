@@ -0,0 +1,355 @@
+package com.ibotta.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.ibotta.Application;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.log4j.Logger;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End to end HTTP load test.  Starts the Application in process on a random port and replays a weighted mix of
+ * requests against it from several client threads, then writes throughput and latency percentiles as json.
+ *
+ * Without a rate every client sends its next request as soon as the last one returns.  With a rate the clients send
+ * on a fixed schedule and latency is measured from when a request should have been sent, so a stalled server shows
+ * up in the percentiles instead of silently lowering the request rate.
+ *
+ * Usage: LoadTest [key=value...]
+ * threads (8), warmup seconds (10), duration seconds (30), rate requests/sec for all clients (0 = as fast as possible),
+ * mix (anagrams:70,add:10,delete:10,stats:5,size:5), size for the size requests (8), report file
+ * (target/loadtest-report.json), url of an already running instance instead of starting one
+ */
+public class LoadTest {
+
+    private final static Logger LOG = Logger.getLogger(LoadTest.class);
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final String baseUrl;
+    private final int threads;
+    private final long warmupNanos;
+    private final long durationNanos;
+    private final double rate;
+    private final int[] weights;
+    private final int totalWeight;
+    private final int size;
+    private final String[] words;
+
+    private final Recorder[] recorders = new Recorder[Operation.values().length];
+    private final AtomicLongArray errors = new AtomicLongArray(Operation.values().length);
+    private volatile boolean measuring;
+
+    LoadTest(String baseUrl, Map<String, String> options, String[] words) {
+        this.baseUrl = baseUrl;
+        this.threads = Integer.parseInt(options.getOrDefault("threads", "8"));
+        this.warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("warmup", "10")));
+        this.durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("duration", "30")));
+        this.rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+        this.weights = Operation.parseMix(options.getOrDefault("mix", "anagrams:70,add:10,delete:10,stats:5,size:5"));
+        this.size = Integer.parseInt(options.getOrDefault("size", "8"));
+        this.words = words;
+        int total = 0;
+        for (int w : weights)
+            total += w;
+        if (total == 0)
+            throw new IllegalArgumentException("mix has no weight");
+        if (threads < 1 || durationNanos <= 0)
+            throw new IllegalArgumentException("threads and duration must be positive");
+        this.totalWeight = total;
+        for (int i = 0; i < recorders.length; i++)
+            recorders[i] = new Recorder(MAX_LATENCY_NANOS, 3);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0 && eq < arg.length() - 1)
+                options.put(arg.substring(0, eq).trim(), arg.substring(eq + 1).trim());
+        }
+        File report = new File(options.getOrDefault("report", "target/loadtest-report.json"));
+
+        ConfigurableApplicationContext context = null;
+        String url = options.get("url");
+        if (url == null) {
+            context = SpringApplication.run(Application.class, "--server.port=0", "--management.port=0");
+            url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+        try {
+            Map<String, Object> result = new LoadTest(url, options, readWords()).run();
+            if (report.getParentFile() != null && !report.getParentFile().isDirectory() && !report.getParentFile().mkdirs())
+                throw new IOException("Can't create " + report.getParentFile());
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(report, result);
+            LOG.info("Load test report written to " + report.getAbsolutePath());
+        } finally {
+            if (context != null)
+                context.close();
+        }
+    }
+
+    private static String[] readWords() throws IOException {
+        try (InputStream in = new ClassPathResource("dictionary.txt").getInputStream()) {
+            List<String> lines = IOUtils.readLines(in, Charset.defaultCharset());
+            List<String> words = new ArrayList<>(lines.size());
+            for (String line : lines)
+                if (!line.trim().isEmpty())
+                    words.add(line.trim());
+            return words.toArray(new String[words.size()]);
+        }
+    }
+
+    /**
+     * Runs the warmup and the measured period
+     * @return the report
+     */
+    Map<String, Object> run() throws InterruptedException {
+        LOG.info("Load test against " + baseUrl + ": " + threads + " clients, "
+                + (rate > 0 ? rate + " requests/sec" : "closed loop") + ", warmup "
+                + TimeUnit.NANOSECONDS.toSeconds(warmupNanos) + "s, duration " + TimeUnit.NANOSECONDS.toSeconds(durationNanos) + "s");
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + durationNanos;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Client client = new Client(t, start, end);
+            Thread thread = new Thread(() -> {
+                try {
+                    client.run();
+                } finally {
+                    done.countDown();
+                }
+            }, "load-client-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        sleepUntil(measureFrom);
+        for (Recorder r : recorders)
+            r.getIntervalHistogram(); //drop the warmup
+        measuring = true;
+        sleepUntil(end);
+        measuring = false;
+        Histogram[] intervals = new Histogram[recorders.length];
+        for (int i = 0; i < recorders.length; i++)
+            intervals[i] = recorders[i].getIntervalHistogram();
+        done.await(MAX_LATENCY_NANOS, TimeUnit.NANOSECONDS);
+        return report(intervals, (end - measureFrom) / 1e9);
+    }
+
+    private Map<String, Object> report(Histogram[] intervals, double seconds) {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("url", baseUrl);
+        config.put("threads", threads);
+        config.put("rate", rate);
+        config.put("warmupSeconds", TimeUnit.NANOSECONDS.toSeconds(warmupNanos));
+        config.put("durationSeconds", seconds);
+        config.put("size", size);
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (Operation op : Operation.values())
+            mix.put(op.name().toLowerCase(), weights[op.ordinal()]);
+        config.put("mix", mix);
+
+        Map<String, Object> operations = new LinkedHashMap<>();
+        Histogram all = new Histogram(MAX_LATENCY_NANOS, 3);
+        long allErrors = 0;
+        for (Operation op : Operation.values()) {
+            Histogram h = intervals[op.ordinal()];
+            long e = errors.get(op.ordinal());
+            if (h.getTotalCount() == 0 && e == 0)
+                continue;
+            all.add(h);
+            allErrors += e;
+            operations.put(op.name().toLowerCase(), summary(h, e, seconds));
+            LOG.info(op + ": " + summary(h, e, seconds));
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("config", config);
+        result.put("total", summary(all, allErrors, seconds));
+        result.put("operations", operations);
+        LOG.info("TOTAL: " + result.get("total"));
+        return result;
+    }
+
+    private static Map<String, Object> summary(Histogram h, long errors, double seconds) {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("requests", h.getTotalCount());
+        s.put("errors", errors);
+        s.put("throughput", Math.round(h.getTotalCount() / seconds * 10) / 10.0);
+        s.put("meanMillis", millis(Math.round(h.getMean())));
+        s.put("p50Millis", millis(h.getValueAtPercentile(50)));
+        s.put("p90Millis", millis(h.getValueAtPercentile(90)));
+        s.put("p99Millis", millis(h.getValueAtPercentile(99)));
+        s.put("p999Millis", millis(h.getValueAtPercentile(99.9)));
+        s.put("maxMillis", millis(h.getMaxValue()));
+        return s;
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1000.0) / 1000.0;
+    }
+
+    private static void sleepUntil(long deadline) throws InterruptedException {
+        long left;
+        while ((left = deadline - System.nanoTime()) > 0)
+            TimeUnit.NANOSECONDS.sleep(left);
+    }
+
+    /**
+     * One client thread.  Words it adds are remembered so its deletes remove real words and the dictionary doesn't
+     * drift away from the bundled one over a long run.
+     */
+    private final class Client {
+        private final int id;
+        private final long start;
+        private final long end;
+        private final Random random;
+        private final Deque<String> added = new ArrayDeque<>();
+        private final long intervalNanos;
+        private long sequence;
+
+        Client(int id, long start, long end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.random = new Random(id);
+            this.intervalNanos = (rate > 0) ? (long) (threads * 1e9 / rate) : 0;
+        }
+
+        void run() {
+            long next = start;
+            while (true) {
+                long intended;
+                if (intervalNanos > 0) {
+                    intended = next;
+                    next += intervalNanos;
+                    long wait;
+                    while ((wait = intended - System.nanoTime()) > 0)
+                        LockSupport.parkNanos(wait);
+                } else {
+                    intended = System.nanoTime();
+                }
+                if (intended - end >= 0)
+                    break;
+
+                Operation op = pick();
+                boolean ok;
+                try {
+                    ok = send(op);
+                } catch (IOException ex) {
+                    LOG.debug(op + " failed", ex);
+                    ok = false;
+                }
+                long latency = Math.min(System.nanoTime() - intended, MAX_LATENCY_NANOS);
+                if (ok)
+                    recorders[op.ordinal()].recordValue(latency);
+                else if (measuring)
+                    errors.incrementAndGet(op.ordinal());
+            }
+            //leave the dictionary as it was found
+            for (String word : added) {
+                try {
+                    request("DELETE", "/words/" + word + ".json", null);
+                } catch (IOException ex) {
+                    LOG.debug("Cleanup of " + word + " failed", ex);
+                }
+            }
+        }
+
+        /**
+         * Spells a number with the letters a to y, words can't contain digits
+         */
+        private String letters(long n) {
+            StringBuilder sb = new StringBuilder();
+            do {
+                sb.append((char) ('a' + n % 25));
+                n /= 25;
+            } while (n > 0);
+            return sb.toString();
+        }
+
+        private Operation pick() {
+            int r = random.nextInt(totalWeight);
+            for (Operation op : Operation.values()) {
+                r -= weights[op.ordinal()];
+                if (r < 0)
+                    return (op == Operation.DELETE && added.isEmpty()) ? Operation.ADD : op;
+            }
+            throw new IllegalStateException();
+        }
+
+        private boolean send(Operation op) throws IOException {
+            switch (op) {
+                case ANAGRAMS:
+                    return request("GET", "/anagrams/" + words[random.nextInt(words.length)] + ".json", null);
+                case ADD:
+                    String word = "zzload" + letters(id) + "z" + letters(sequence++);
+                    boolean ok = request("POST", "/words.json", "{\"words\":[\"" + word + "\"]}");
+                    if (ok)
+                        added.addLast(word);
+                    return ok;
+                case DELETE:
+                    return request("DELETE", "/words/" + added.pollFirst() + ".json", null);
+                case STATS:
+                    return request("GET", "/stats.json", null);
+                case SIZE:
+                    return request("GET", "/anagrams/size/" + size, null);
+                default:
+                    throw new IllegalArgumentException(op.name());
+            }
+        }
+
+        /**
+         * Sends one request and reads the whole response so the connection can be reused
+         * @return true for a 2xx response
+         */
+        private boolean request(String method, String path, String body) throws IOException {
+            HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+            conn.setRequestMethod(method);
+            conn.setConnectTimeout(10000);
+            conn.setReadTimeout((int) TimeUnit.NANOSECONDS.toMillis(MAX_LATENCY_NANOS));
+            if (body != null) {
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                conn.setDoOutput(true);
+                conn.setRequestProperty("Content-Type", "application/json");
+                conn.setFixedLengthStreamingMode(bytes.length);
+                try (OutputStream out = conn.getOutputStream()) {
+                    out.write(bytes);
+                }
+            }
+            int status = conn.getResponseCode();
+            InputStream in = (status < 400) ? conn.getInputStream() : conn.getErrorStream();
+            if (in != null) {
+                try (InputStream response = in) {
+                    IOUtils.copy(response, NullOutputStream.NULL_OUTPUT_STREAM);
+                }
+            }
+            return status >= 200 && status < 300;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.ibotta.load;
+
+/**
+ * The kinds of request the load test sends, each one picks its own word
+ */
+enum Operation {
+    /** GET /anagrams/{word}.json for a dictionary word */
+    ANAGRAMS,
+    /** POST /words.json with a word made up by the client */
+    ADD,
+    /** DELETE /words/{word}.json for a word the same client added */
+    DELETE,
+    /** GET /stats.json */
+    STATS,
+    /** GET /anagrams/size/{size} */
+    SIZE;
+
+    /**
+     * Parses a mix like anagrams:70,add:10,delete:10,stats:5,size:5 into weights indexed by ordinal
+     */
+    static int[] parseMix(String mix) {
+        int[] weights = new int[values().length];
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split(":");
+            if (kv.length != 2)
+                throw new IllegalArgumentException("Bad mix entry " + part + ", expected operation:weight");
+            int weight = Integer.parseInt(kv[1].trim());
+            if (weight < 0)
+                throw new IllegalArgumentException("Negative weight for " + kv[0]);
+            weights[valueOf(kv[0].trim().toUpperCase()).ordinal()] = weight;
+        }
+        if (weights[DELETE.ordinal()] > 0 && weights[ADD.ordinal()] == 0)
+            throw new IllegalArgumentException("delete needs add in the mix, clients only delete their own words");
+        return weights;
+    }
+}
@@ -1,12 +1,22 @@
 package com.ibotta;
 
+import com.ibotta.config.AnagramConfig;
+import com.ibotta.netty.NettyServer;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
 @SpringBootApplication
 public class Application {
 
-    public static void main(String[] args) {
+    /**
+     * Starts the servlet stack, or the Netty front end when serverMode (config or -DserverMode) is netty
+     */
+    public static void main(String[] args) throws Exception {
+        String mode = System.getProperty("serverMode", AnagramConfig.instance().serverMode);
+        if ("netty".equalsIgnoreCase(mode)) {
+            NettyServer.main(args);
+            return;
+        }
         SpringApplication.run(Application.class, args);
     }
 }
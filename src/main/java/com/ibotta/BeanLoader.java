@@ -1,5 +1,8 @@
 package com.ibotta;
 
+import com.ibotta.api.AnagramCache;
+import com.ibotta.api.DictionaryRegistry;
+import com.ibotta.cluster.Cluster;
 import com.ibotta.config.AnagramConfig;
 import com.ibotta.dao.Dictionary;
 import org.apache.log4j.Logger;
@@ -7,9 +10,12 @@ import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
 import org.springframework.ws.config.annotation.WsConfigurerAdapter;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 @PropertySource("classpath:/application.yml")
@@ -32,4 +38,50 @@ public class BeanLoader extends WsConfigurerAdapter { //implements WebApplicatio
         return new Dictionary(config);
     }
 
+    /**
+     * Response cache of GET /anagrams/:word.json, also publishes its hit rate on the actuator metrics endpoint
+     * @param dictionary the dictionary to cache
+     * @return the cache
+     * @throws IOException If the config could not be read
+     */
+    @Bean
+    public AnagramCache getAnagramCache(Dictionary dictionary) throws IOException {
+        String size = AnagramConfig.instance().responseCacheSize;
+        return new AnagramCache(dictionary, (size != null) ? Long.parseLong(size) : 100000);
+    }
+
+    /**
+     * The nodes the dictionary is spread over, a standalone node unless clusterNodes is set.  The settings are read
+     * from the environment first so several nodes can run in one process
+     * @param dictionary this node's dictionary
+     * @param env the Spring environment
+     * @return the cluster
+     * @throws IOException If the config could not be read
+     */
+    @Bean
+    public Cluster getCluster(Dictionary dictionary, Environment env) throws IOException {
+        AnagramConfig config = AnagramConfig.instance();
+        String nodes = env.getProperty("clusterNodes", config.clusterNodes);
+        if (nodes == null || nodes.trim().isEmpty())
+            return Cluster.standalone(dictionary);
+        String self = env.getProperty("clusterSelf", config.clusterSelf);
+        if (self == null)
+            throw new IllegalArgumentException("clusterSelf must be set with clusterNodes");
+        String replicas = env.getProperty("clusterReplicas", config.clusterReplicas);
+        return new Cluster(dictionary, Arrays.asList(nodes.split(",")), self,
+                (replicas != null) ? Integer.parseInt(replicas.trim()) : Cluster.DEFAULT_REPLICAS);
+    }
+
+    /**
+     * The named dictionaries served under /dictionaries/:name, none are loaded until they are used
+     * @return the registry
+     * @throws IOException If the config could not be read
+     */
+    @Bean
+    public DictionaryRegistry getDictionaryRegistry() throws IOException {
+        AnagramConfig config = AnagramConfig.instance();
+        long idle = (config.dictionaryIdleMinutes != null) ? Long.parseLong(config.dictionaryIdleMinutes) : 30;
+        return new DictionaryRegistry(config.dictionaries, TimeUnit.MINUTES.toMillis(idle));
+    }
+
 }
@@ -0,0 +1,41 @@
+package com.ibotta;
+
+import com.ibotta.config.AnagramConfig;
+import com.ibotta.dao.Alphabet;
+import com.ibotta.dao.Dictionary;
+import com.ibotta.dao.DictionaryLoader;
+import com.ibotta.dao.DictionarySnapshot;
+import com.ibotta.dao.StorageEngine;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Build step that converts a plain word list into a dictionary snapshot (see DictionarySnapshot),
+ * run by maven after compiling so the packaged app can map the snapshot instead of parsing dictionary.txt
+ *
+ * Usage: SnapshotBuilder [word list] [snapshot file]
+ */
+public class SnapshotBuilder {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: SnapshotBuilder <word list> <snapshot file>");
+            System.exit(1);
+        }
+        File input = new File(args[0]);
+        File output = new File(args[1]);
+        Alphabet alphabet = Alphabet.fromConfig(AnagramConfig.instance().alphabet);
+        if (output.isFile() && output.lastModified() >= input.lastModified()
+                && alphabet.getName().equals(DictionarySnapshot.alphabetOf(output))) {
+            System.out.println("Snapshot " + output + " is up to date");
+            return;
+        }
+
+        Alphabet.use(alphabet); //sign the words the way the app will
+        Dictionary dictionary = new Dictionary(StorageEngine.HEAP);
+        DictionaryLoader.Result result = new DictionaryLoader().load(dictionary, input.getPath());
+        dictionary.writeSnapshot(output);
+        System.out.println("Snapshot built from " + result);
+    }
+}
@@ -0,0 +1,56 @@
+package com.ibotta.api;
+
+import org.apache.log4j.Logger;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs a random sample of the requests to the "access" logger: method, path, status and time taken.
+ *
+ * Whether a request is sampled is decided once when it arrives, an unsampled request costs a random number and a
+ * request attribute.  The access logger writes through an asynchronous appender (see logback-spring.xml) that drops
+ * lines rather than block a request when it falls behind.
+ */
+public class AccessLog extends HandlerInterceptorAdapter {
+
+    private final static Logger LOG = Logger.getLogger("access");
+
+    private static final String START = AccessLog.class.getName() + ".start";
+
+    private final int sampleEvery;
+
+    /**
+     * @param sampleEvery log one request in this many on average, 1 logs every request, 0 none
+     */
+    public AccessLog(int sampleEvery) {
+        if (sampleEvery < 0)
+            throw new IllegalArgumentException("sampleEvery must not be negative");
+        this.sampleEvery = sampleEvery;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        //an async request comes through again when its result is written, the first decision stands
+        if (request.getAttribute(START) == null)
+            request.setAttribute(START, sampled() ? System.nanoTime() : Boolean.FALSE);
+        return true;
+    }
+
+    private boolean sampled() {
+        return sampleEvery > 0 && (sampleEvery == 1 || ThreadLocalRandom.current().nextInt(sampleEvery) == 0);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object start = request.getAttribute(START);
+        if (!(start instanceof Long) || !LOG.isInfoEnabled())
+            return;
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - (Long) start);
+        String line = request.getMethod() + " " + request.getRequestURI() + " " + response.getStatus() + " " + micros + "us";
+        LOG.info((ex == null) ? line : line + " " + ex);
+    }
+}
@@ -0,0 +1,202 @@
+package com.ibotta.api;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.ibotta.dao.Anagrams;
+import com.ibotta.dao.Dictionary;
+import com.ibotta.dao.GroupListener;
+import com.ibotta.dao.Signature;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the responses of GET /anagrams/:word.json as ready to write UTF-8 JSON, keyed by lower case word and limit.
+ *
+ * The cache is a Caffeine cache, whose W-TinyLFU admission keeps the hot words of a skewed workload.  Each entry
+ * remembers the version of its signature's stripe when it was built.  The dictionary bumps the version of a stripe
+ * while the changed group is still locked, so an entry built from a group that has changed since no longer matches
+ * and is rebuilt on its next read.  A stripe covers one signature in practice, there are many more stripes than hot
+ * groups.
+ */
+public class AnagramCache implements GroupListener, PublicMetrics {
+
+    private static final int STRIPES = 1 << 16;
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final Dictionary dictionary;
+    private final Cache<Key, Entry> cache;
+    private final AtomicLongArray versions = new AtomicLongArray(STRIPES);
+    private final LongAdder stale = new LongAdder();
+
+    /**
+     * @param dictionary the dictionary to cache, the cache listens to its changes
+     * @param maximumSize most responses to keep
+     */
+    public AnagramCache(@NotNull Dictionary dictionary, long maximumSize) {
+        this.dictionary = dictionary;
+        this.cache = Caffeine.newBuilder().maximumSize(maximumSize).recordStats().build();
+        dictionary.addGroupListener(this);
+    }
+
+    /**
+     * Same result as {@link Dictionary#getAnagrams(String, Integer)}, serialized ahead of time
+     * @param word the word to look up
+     * @param limit most anagrams to return, null for all
+     * @return the anagrams, writes its cached JSON when serialized by Jackson
+     */
+    public Anagrams getAnagrams(@NotNull String word, Integer limit) {
+        String lower = word.toLowerCase();
+        Key key = new Key(lower, limit);
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null) {
+            if (versions.get(entry.stripe) == entry.version)
+                return entry.anagrams;
+            stale.increment();
+        }
+        int stripe = stripe(Signature.high(lower), Signature.low(lower));
+        long version = versions.get(stripe); //read before the group so a change made meanwhile invalidates the entry
+        entry = new Entry(stripe, version, Serialized.of(dictionary.getAnagrams(lower, limit).getWords()));
+        cache.put(key, entry);
+        return entry.anagrams;
+    }
+
+    private static int stripe(long high, long low) {
+        long h = (high * 0x9E3779B97F4A7C15L) ^ low;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    @Override
+    public void wordAdded(long high, long low, String word, int size) {
+        versions.incrementAndGet(stripe(high, low));
+    }
+
+    @Override
+    public void wordRemoved(long high, long low, String word, int size) {
+        versions.incrementAndGet(stripe(high, low));
+    }
+
+    @Override
+    public void groupRemoved(long high, long low, int size) {
+        versions.incrementAndGet(stripe(high, low));
+    }
+
+    /**
+     * Published on the actuator metrics endpoint as cache.anagrams.*, a read of an entry whose group has changed
+     * counts as a miss
+     */
+    @Override
+    public Collection<Metric<?>> metrics() {
+        CacheStats s = cache.stats();
+        long staleHits = stale.sum();
+        long hits = Math.max(0, s.hitCount() - staleHits);
+        long misses = s.missCount() + staleHits;
+        long requests = hits + misses;
+        return Arrays.asList(
+                new Metric<>("cache.anagrams.size", cache.estimatedSize()),
+                new Metric<>("cache.anagrams.hits", hits),
+                new Metric<>("cache.anagrams.misses", misses),
+                new Metric<>("cache.anagrams.hitRate", (requests > 0) ? (double) hits / requests : 0.0),
+                new Metric<>("cache.anagrams.evictions", s.evictionCount()));
+    }
+
+    private static final class Key {
+        final String word;
+        final Integer limit;
+
+        Key(String word, Integer limit) {
+            this.word = word;
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key) o;
+            return word.equals(k.word) && Objects.equals(limit, k.limit);
+        }
+
+        @Override
+        public int hashCode() {
+            return word.hashCode() * 31 + Objects.hashCode(limit);
+        }
+    }
+
+    private static final class Entry {
+        final int stripe;
+        final long version;
+        final Anagrams anagrams;
+
+        Entry(int stripe, long version, Anagrams anagrams) {
+            this.stripe = stripe;
+            this.version = version;
+            this.anagrams = anagrams;
+        }
+    }
+
+    /**
+     * Anagrams that Jackson writes as the bytes they were serialized to when cached
+     */
+    static final class Serialized extends Anagrams implements JsonSerializable {
+        private final SerializedString json;
+
+        private Serialized(List<String> words, SerializedString json) {
+            super(words);
+            this.json = json;
+        }
+
+        static Serialized of(List<String> words) {
+            List<String> copy = Collections.unmodifiableList(new ArrayList<>(words));
+            StringWriter out = new StringWriter();
+            try (JsonGenerator gen = JSON.createGenerator(out)) {
+                gen.writeStartObject();
+                gen.writeArrayFieldStart("anagrams");
+                for (String w : copy)
+                    gen.writeString(w);
+                gen.writeEndArray();
+                gen.writeEndObject();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            SerializedString json = new SerializedString(out.toString());
+            json.asUnquotedUTF8(); //encode once now, every write reuses the bytes
+            return new Serialized(copy, json);
+        }
+
+        @Override
+        public void setWords(List<String> words) {
+            throw new UnsupportedOperationException("Cached anagrams can't be changed");
+        }
+
+        @Override
+        public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeRawValue(json);
+        }
+
+        @Override
+        public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer) throws IOException {
+            serialize(gen, serializers);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.ibotta.api;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import javax.validation.ValidationException;
+
+/**
+ * A query param is out of range or malformed, e.g. a page limit that is too large or a cursor that isn't one
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class BadRequestException extends ValidationException {
+
+    public BadRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,237 @@
+package com.ibotta.api;
+
+import com.ibotta.config.AnagramConfig;
+import com.ibotta.dao.Dictionary;
+import com.ibotta.dao.GroupListener;
+import org.apache.log4j.Logger;
+
+import javax.validation.constraints.NotNull;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The named dictionaries served under /dictionaries/{name}.  A dictionary is loaded the first time it is used, with
+ * an {@link Endpoint} and response cache of its own, and unloaded once it has gone unused for the idle time.
+ *
+ * Requests hold a {@link Lease} while they run, and until a streamed body is written, so a dictionary is never
+ * unloaded under one.  Unloading closes the dictionary's write-ahead log and the next use replays it, a dictionary
+ * without a log that has been changed is kept loaded instead so its changes aren't lost.
+ */
+public class DictionaryRegistry implements Closeable {
+
+    private final static Logger LOG = Logger.getLogger(DictionaryRegistry.class);
+
+    /** Response cache entries of a dictionary without a responseCacheSize */
+    public static final long DEFAULT_CACHE_SIZE = 100000;
+
+    private final Map<String, Slot> slots;
+    private final long idleMillis;
+    private final ScheduledExecutorService evictor;
+
+    /**
+     * @param configs config of each dictionary by name
+     * @param idleMillis how long a dictionary may go unused before it is unloaded, 0 or less to keep them loaded
+     */
+    public DictionaryRegistry(@NotNull Map<String, AnagramConfig> configs, long idleMillis) {
+        Map<String, Slot> slots = new LinkedHashMap<>();
+        configs.forEach((name, config) -> slots.put(name, new Slot(name, config)));
+        this.slots = Collections.unmodifiableMap(slots);
+        this.idleMillis = idleMillis;
+        if (idleMillis > 0 && !slots.isEmpty()) {
+            evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "dictionary-evictor");
+                t.setDaemon(true);
+                return t;
+            });
+            long period = Math.max(1000, idleMillis / 4);
+            evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            evictor = null;
+        }
+    }
+
+    /**
+     * Names of the dictionaries that can be served
+     * @return the names, in config order
+     */
+    public Set<String> getNames() {
+        return slots.keySet();
+    }
+
+    /**
+     * Check whether a dictionary is loaded
+     * @param name the dictionary
+     * @return true if it is in memory
+     */
+    public boolean isLoaded(String name) {
+        Slot slot = slots.get(name);
+        return slot != null && slot.isLoaded();
+    }
+
+    /**
+     * Gets a dictionary for the length of a request, loading it if needed.  Requests for a dictionary that is being
+     * loaded wait for the load, other dictionaries are not held up
+     * @param name the dictionary
+     * @return the lease, close it when the request is done
+     * @throws UnknownDictionaryException if there is no dictionary with the name
+     * @throws IOException if the dictionary could not be loaded
+     */
+    public Lease lease(String name) throws IOException {
+        Slot slot = slots.get(name);
+        if (slot == null)
+            throw new UnknownDictionaryException(name);
+        return slot.acquire();
+    }
+
+    /**
+     * Unloads the dictionaries that have gone unused for the idle time, runs periodically on its own
+     * @return count of dictionaries unloaded
+     */
+    public int evictIdle() {
+        if (idleMillis <= 0)
+            return 0;
+        int evicted = 0;
+        long now = System.currentTimeMillis();
+        for (Slot slot : slots.values()) {
+            try {
+                if (slot.evictIfIdle(now))
+                    evicted++;
+            } catch (IOException | RuntimeException ex) {
+                LOG.error("Could not unload dictionary " + slot.name, ex);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Unloads every dictionary, called by Spring on shutdown
+     */
+    @Override
+    public void close() {
+        if (evictor != null)
+            evictor.shutdownNow();
+        for (Slot slot : slots.values()) {
+            try {
+                slot.unload();
+            } catch (IOException ex) {
+                LOG.error("Could not close dictionary " + slot.name, ex);
+            }
+        }
+    }
+
+    /**
+     * A loaded dictionary and the endpoint that serves it, held for the length of a request
+     */
+    public static final class Lease implements AutoCloseable {
+        private final Slot slot;
+        private final Loaded loaded;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(Slot slot, Loaded loaded) {
+            this.slot = slot;
+            this.loaded = loaded;
+        }
+
+        public Dictionary getDictionary() {
+            return loaded.dictionary;
+        }
+
+        public Endpoint getEndpoint() {
+            return loaded.endpoint;
+        }
+
+        /**
+         * Releases the dictionary, only the first call counts
+         */
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true))
+                slot.release();
+        }
+    }
+
+    private static final class Loaded {
+        final Dictionary dictionary;
+        final Endpoint endpoint;
+        volatile boolean modified;
+
+        Loaded(Dictionary dictionary, long cacheSize) {
+            this.dictionary = dictionary;
+            this.endpoint = new Endpoint(dictionary, new AnagramCache(dictionary, cacheSize));
+            dictionary.addGroupListener(new GroupListener() {
+                @Override
+                public void wordAdded(long high, long low, String word, int size) {
+                    modified = true;
+                }
+
+                @Override
+                public void wordRemoved(long high, long low, String word, int size) {
+                    modified = true;
+                }
+
+                @Override
+                public void groupRemoved(long high, long low, int size) {
+                    modified = true;
+                }
+            });
+        }
+    }
+
+    private final class Slot {
+        final String name;
+        final AnagramConfig config;
+        private Loaded loaded;
+        private int leases;
+        private long lastUsed;
+
+        Slot(String name, AnagramConfig config) {
+            this.name = name;
+            this.config = config;
+        }
+
+        synchronized boolean isLoaded() {
+            return loaded != null;
+        }
+
+        synchronized Lease acquire() throws IOException {
+            if (loaded == null) {
+                LOG.info("Loading dictionary " + name + " from " + config.dictionaryFile);
+                long size = (config.responseCacheSize != null) ? Long.parseLong(config.responseCacheSize) : DEFAULT_CACHE_SIZE;
+                loaded = new Loaded(new Dictionary(config), size);
+            }
+            leases++;
+            lastUsed = System.currentTimeMillis();
+            return new Lease(this, loaded);
+        }
+
+        synchronized void release() {
+            leases--;
+            lastUsed = System.currentTimeMillis();
+        }
+
+        synchronized boolean evictIfIdle(long now) throws IOException {
+            if (loaded == null || leases > 0 || now - lastUsed < idleMillis)
+                return false;
+            if (config.walDir == null && loaded.modified)
+                return false; //nowhere to keep the changes
+            LOG.info("Unloading dictionary " + name + ", unused for " + (now - lastUsed) + "ms");
+            unload();
+            return true;
+        }
+
+        synchronized void unload() throws IOException {
+            Loaded unloading = loaded;
+            loaded = null;
+            if (unloading != null)
+                unloading.dictionary.close();
+        }
+    }
+}
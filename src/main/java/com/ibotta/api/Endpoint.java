@@ -1,21 +1,38 @@
 package com.ibotta.api;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.ibotta.cluster.Cluster;
 import com.ibotta.dao.*;
+import com.ibotta.search.PhraseSearch;
+import com.ibotta.search.Phrases;
+import com.ibotta.search.SubAnagramSearch;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.ValidationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.List;
-
-import static com.ibotta.dao.DataUtils.logDictionaryStats;
-
+import java.util.Map;
 
 /**
- * Rest Controller Class, exposes JSON endpoints
+ * Rest Controller Class, exposes JSON endpoints.  Requests are logged by the sampled {@link AccessLog}, handlers only
+ * log details at debug level, building the message only inside an isDebugEnabled() check so nothing is formatted
+ * unless debug is on.
+ * Words and groups are reached through the {@link Cluster}, which on a standalone node is the dictionary itself
  */
 @RestController
 @RequestMapping("/")
@@ -23,15 +40,40 @@ public class Endpoint {
 
     private final static Logger LOG = Logger.getLogger(Endpoint.class);
 
+    private static final int DEFAULT_PHRASE_WORDS = 3;
+    private static final int DEFAULT_PHRASE_LIMIT = 100;
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int STREAM_FLUSH_GROUPS = 1000;
+    private static final long DEFAULT_CACHE_SIZE = 100000;
 
     private final Dictionary dictionary;
+    private final AnagramCache cache;
+    private final Cluster cluster;
     private final Stats stats;
+    private final PhraseSearch phraseSearch;
+    private final SubAnagramSearch subAnagramSearch;
+    private final DictionaryLoader loader = new DictionaryLoader();
 
 
-    @Autowired
     public Endpoint(Dictionary dictionary) {
+        this(dictionary, new AnagramCache(dictionary, DEFAULT_CACHE_SIZE));
+    }
+
+    public Endpoint(Dictionary dictionary, AnagramCache cache) {
+        this(dictionary, cache, Cluster.standalone(dictionary));
+    }
+
+    @Autowired
+    public Endpoint(Dictionary dictionary, AnagramCache cache, Cluster cluster) {
         this.dictionary = dictionary;
+        this.cache = cache;
+        this.cluster = cluster;
         this.stats = new Stats(dictionary);
+        this.phraseSearch = new PhraseSearch(dictionary);
+        this.subAnagramSearch = new SubAnagramSearch(dictionary);
     }
 
     /**
@@ -43,31 +85,142 @@ public class Endpoint {
     public ResponseEntity addWords(@RequestBody Words body)  {
         if (body.words == null)
             throw new ValidationException("Null word list posted in JSON body");
-        LOG.info("words.json POST");
-        LOG.debug(" - Array size " + body.words.length);
-        dictionary.addWords(body);
-        logDictionaryStats(LOG, dictionary);
+        try {
+            cluster.addWords(body.words);
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException(ex.getMessage(), ex);
+        }
+        if (LOG.isDebugEnabled())
+            LOG.debug("Added up to " + body.words.length + " words");
         return new ResponseEntity(HttpStatus.CREATED);
     }
 
+    /**
+    * POST /words/stream.json: Streams a very large upload of words into the corpus.  The body is either a JSON array of
+    * words (or a JSON object with a words array, like POST /words.json) when the content type is JSON, or one word per
+    * line otherwise, optionally gzipped.  Words are inserted in batches as the body is read so memory use doesn't
+    * depend on the size of the upload.  Returns the counts of words read, added, duplicate and rejected.
+    *
+    * curl -X POST -H "Content-Type: text/plain" --data-binary @words.txt http://localhost:9000/words/stream.json
+    */
+    @RequestMapping(value = "/words/stream.json", method = RequestMethod.POST, produces = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<DictionaryLoader.Result> streamWords(HttpServletRequest request) throws IOException {
+        DictionaryLoader.Result result;
+        try (InputStream in = request.getInputStream()) {
+            //a dictionary of its own takes the whole upload as one batch of events
+            if (isJson(request.getContentType())) {
+                result = cluster.isDistributed() ? loader.loadJson(cluster, in) : loader.loadJson(dictionary, in);
+            } else {
+                String encoding = request.getCharacterEncoding();
+                Charset charset = (encoding != null) ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+                result = cluster.isDistributed() ? loader.load(cluster, in, charset) : loader.load(dictionary, in, charset);
+            }
+        } catch (JsonProcessingException ex) {
+            throw new ValidationException("Could not read the posted words: " + ex.getOriginalMessage(), ex);
+        }
+        if (LOG.isDebugEnabled())
+            LOG.debug("Streamed " + result);
+        return new ResponseEntity<>(result, HttpStatus.CREATED);
+    }
+
+    private static boolean isJson(String contentType) {
+        if (contentType == null)
+            return false;
+        try {
+            MediaType type = MediaType.parseMediaType(contentType);
+            return MediaType.APPLICATION_JSON.isCompatibleWith(type) || type.getSubtype().endsWith("+json");
+        } catch (InvalidMediaTypeException ex) {
+            return false;
+        }
+    }
+
     /**
     * GET /anagrams/:word.json
     * Returns a JSON array of English-language words that are anagrams of the word passed in the URL.
     * This endpoint should support an optional query param that indicates the maximum number of results to return.
+    * Responses come from the {@link AnagramCache}, already serialized, or from the owners when this node isn't one.
     *
     * http://localhost:64367/anagrams/act.json?limit=1
     */
     @RequestMapping(value = "/anagrams/{word}.json", method = RequestMethod.GET)
     public @ResponseBody Anagrams getAnagrams(@PathVariable(required = true) String word, @RequestParam(value = "limit", required = false) Integer limit) {
-        LOG.info("/anagrams/" + word + ".json called");
-        Anagrams anagrams = dictionary.getAnagrams(word, limit);
-        List<String> words = anagrams.getWords();
-        LOG.info(" - " + words.size() + " anagrams returned");
+        Anagrams anagrams = cluster.owns(word) ? cache.getAnagrams(word, limit) : cluster.getAnagrams(word, limit);
         if (LOG.isDebugEnabled())
-            words.forEach(w -> LOG.debug(" - " + w));
+            LOG.debug(anagrams.getWords().size() + " anagrams of " + word);
         return anagrams;
     }
 
+    /**
+    * POST /anagrams.json: Takes a JSON array of words in the same body as POST /words.json and returns a JSON object that maps
+    * each word to the array of its anagrams.  Supports the same optional limit query param as GET /anagrams/:word.json,
+    * applied to each word.  Words that are anagrams of each other share one lookup and the response is streamed.
+    *
+    * http://localhost:9000/anagrams.json?limit=5
+    */
+    @RequestMapping(value = "/anagrams.json", method = RequestMethod.POST, produces = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> getAnagrams(@RequestBody Words body, @RequestParam(value = "limit", required = false) Integer limit) {
+        if (body.words == null)
+            throw new ValidationException("Null word list posted in JSON body");
+        if (LOG.isDebugEnabled())
+            LOG.debug("Looking up the anagrams of " + body.words.length + " words");
+        Map<String, Anagrams> anagrams = cluster.getAnagrams(Arrays.asList(body.words), limit);
+        StreamingResponseBody stream = out -> {
+            try (JsonGenerator json = JSON.createGenerator(out)) {
+                json.writeStartObject();
+                for (Map.Entry<String, Anagrams> e : anagrams.entrySet()) {
+                    json.writeArrayFieldStart(e.getKey());
+                    for (String w : e.getValue().getWords())
+                        json.writeString(w);
+                    json.writeEndArray();
+                }
+                json.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(stream);
+    }
+
+    /**
+     * GET /subanagrams/:letters.json
+     * Returns the words that can be spelled from some or all of the letters, longest first.
+     * _ or * is a blank tile that stands for any letter, an optional query param limits the number of results returned.
+     *
+     * http://localhost:64367/subanagrams/retains_.json?limit=20
+     */
+    @RequestMapping(value = "/subanagrams/{letters}.json", method = RequestMethod.GET)
+    public @ResponseBody Anagrams getSubAnagrams(@PathVariable String letters, @RequestParam(value = "limit", required = false) Integer limit) {
+        try {
+            Anagrams words = subAnagramSearch.search(letters, limit);
+            if (LOG.isDebugEnabled())
+                LOG.debug(words.getWords().size() + " words spelled from " + letters);
+            return words;
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * GET /phrases/:text.json
+     * Returns phrases of dictionary words whose letters together are exactly the letters of the text, spaces ignored.
+     * Optional query params limit the number of words in a phrase (maxWords, default 3) and the number of phrases returned.
+     *
+     * http://localhost:64367/phrases/dormitory.json?maxWords=2&limit=10
+     */
+    @RequestMapping(value = "/phrases/{text}.json", method = RequestMethod.GET)
+    public @ResponseBody Phrases getPhrases(@PathVariable String text,
+                                            @RequestParam(value = "maxWords", required = false) Integer maxWords,
+                                            @RequestParam(value = "limit", required = false) Integer limit) {
+        try {
+            Phrases phrases = phraseSearch.search(text,
+                    (maxWords != null) ? maxWords : DEFAULT_PHRASE_WORDS,
+                    (limit != null) ? limit : DEFAULT_PHRASE_LIMIT);
+            if (LOG.isDebugEnabled())
+                LOG.debug(phrases.getPhrases().size() + " phrases of " + text + ", truncated: " + phrases.isTruncated());
+            return phrases;
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException(ex.getMessage(), ex);
+        }
+    }
+
     /**
      * DELETE /words/:word.json: Deletes a single word from the data store.
      *
@@ -75,10 +228,9 @@ public class Endpoint {
      */
     @RequestMapping(value = "/words/{word}.json", method = RequestMethod.DELETE, produces = {MediaType.APPLICATION_JSON_VALUE})
     public void deleteWord(@PathVariable String word) {
-        LOG.info("/words/" + word + ".json called");
-        boolean success = dictionary.deleteWord(word);
-        LOG.debug(" - " + word + " deleted: " + success);
-        logDictionaryStats(LOG, dictionary);
+        boolean success = cluster.deleteWord(word);
+        if (LOG.isDebugEnabled())
+            LOG.debug(word + " deleted: " + success);
     }
 
     /**
@@ -88,9 +240,8 @@ public class Endpoint {
      */
     @RequestMapping(value = "/words.json", method = RequestMethod.DELETE, produces = {MediaType.APPLICATION_JSON_VALUE})
     public ResponseEntity deleteAll() {
-        LOG.info("words.json - DELETE");
-        dictionary.deleteAll();
-        logDictionaryStats(LOG, dictionary);
+        cluster.deleteAll();
+        LOG.debug("Dictionary cleared");
         return new ResponseEntity(HttpStatus.NO_CONTENT);
     }
 
@@ -101,10 +252,9 @@ public class Endpoint {
      */
     @RequestMapping(value = "/delete/{word}.json", method = RequestMethod.GET, produces = {MediaType.APPLICATION_JSON_VALUE})
     public @ResponseBody Anagrams deleteAnagram(@PathVariable String word) {
-        LOG.info("/words/" + word + ".json called");
-        Anagrams removed = dictionary.deleteAnagrams(word);
-        LOG.debug(" - " + word + " deleted: " + removed.getWords().size() + " anagrams");
-        logDictionaryStats(LOG, dictionary);
+        Anagrams removed = cluster.deleteAnagrams(word);
+        if (LOG.isDebugEnabled())
+            LOG.debug(word + " deleted with " + removed.getWords().size() + " anagrams");
         return removed;
     }
 
@@ -115,12 +265,69 @@ public class Endpoint {
      */
     @RequestMapping(value = "/anagrams/size/{size}", method = RequestMethod.GET, produces = {MediaType.APPLICATION_JSON_VALUE})
     public @ResponseBody List<Anagrams> getAnagramGroupsBySize(@PathVariable int size) {
-        LOG.info("/size/" + size + " called");
-        List<Anagrams> anagrams = dictionary.getAnagramGroupsBySize(size);
-        LOG.debug(anagrams.size() + " groups returned");
+        List<Anagrams> anagrams = cluster.getAnagramGroupsBySize(size);
+        if (LOG.isDebugEnabled())
+            LOG.debug(anagrams.size() + " groups of size " + size + " or more");
         return anagrams;
     }
 
+    /**
+     * GET /anagrams/size/:size?limit=:limit&cursor=:cursor
+     * One page of the groups with size >= x.  The response holds the groups and a next cursor, pass it as cursor to
+     * get the following page, it is null on the last page.
+     *
+     * http://localhost:9000/anagrams/size/2?limit=100
+     */
+    @RequestMapping(value = "/anagrams/size/{size}", params = "limit", method = RequestMethod.GET, produces = {MediaType.APPLICATION_JSON_VALUE})
+    public @ResponseBody AnagramPage getAnagramGroupsBySize(@PathVariable int size, @RequestParam("limit") int limit,
+                                                            @RequestParam(value = "cursor", required = false) String cursor) {
+        try {
+            AnagramPage page = cluster.getAnagramGroupsBySize(size, cursor, limit);
+            if (LOG.isDebugEnabled())
+                LOG.debug(page.getGroups().size() + " groups of size " + size + " or more after " + cursor);
+            return page;
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * GET /anagrams/size/:size with Accept: application/x-ndjson
+     * Streams every group with size >= x as newline delimited JSON, one {"anagrams":[...]} object per line, without
+     * building the whole response in memory first.
+     *
+     * curl -H "Accept: application/x-ndjson" http://localhost:9000/anagrams/size/1
+     */
+    @RequestMapping(value = "/anagrams/size/{size}", method = RequestMethod.GET, produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAnagramGroupsBySize(@PathVariable int size) {
+        StreamingResponseBody stream = out -> {
+            try (JsonGenerator json = JSON.createGenerator(out)) {
+                json.setRootValueSeparator(null); //lines are split by the newline alone
+                int[] count = new int[1];
+                cluster.forEachGroupBySize(size, group -> {
+                    try {
+                        json.writeStartObject();
+                        json.writeArrayFieldStart("anagrams");
+                        for (String w : group.getWords())
+                            json.writeString(w);
+                        json.writeEndArray();
+                        json.writeEndObject();
+                        json.writeRaw('\n');
+                        if (++count[0] % STREAM_FLUSH_GROUPS == 0)
+                            json.flush();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+                if (LOG.isDebugEnabled())
+                    LOG.debug(count[0] + " groups of size " + size + " or more streamed");
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(stream);
+    }
+
     /**
      * Endpoint that takes a set of words and returns whether or not they are all anagrams of each other
      *
@@ -128,10 +335,9 @@ public class Endpoint {
      */
     @RequestMapping(value = "/validate.json", method = RequestMethod.POST)
     public @ResponseBody boolean validateAnagrams(@RequestBody String[] words) {
-        LOG.info("validate.json POST");
-        LOG.debug(" - Array size " + words.length);
         boolean result = DataUtils.validateAnagrams(words);
-        LOG.debug("Result: " + result);
+        if (LOG.isDebugEnabled())
+            LOG.debug(words.length + " words are anagrams: " + result);
         return result;
     }
 
@@ -143,7 +349,8 @@ public class Endpoint {
      */
     @RequestMapping(value = "/stats.json", method = RequestMethod.GET)
     public @ResponseBody ResponseEntity<Stats> getStats() {
-        stats.calculate();
-        return ResponseEntity.ok(stats);
+        if (cluster.isDistributed())
+            return ResponseEntity.ok(cluster.getStats());
+        return ResponseEntity.ok(stats.snapshot());
     }
 }
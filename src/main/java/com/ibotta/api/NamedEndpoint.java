@@ -0,0 +1,150 @@
+package com.ibotta.api;
+
+import com.ibotta.dao.AnagramPage;
+import com.ibotta.dao.Anagrams;
+import com.ibotta.dao.DictionaryLoader;
+import com.ibotta.dao.Stats;
+import com.ibotta.dao.Words;
+import com.ibotta.search.Phrases;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The routes of {@link Endpoint} under /dictionaries/:name for each named dictionary in the config, e.g.
+ * GET /dictionaries/scrabble/anagrams/read.json.  The dictionary is loaded on first use by the
+ * {@link DictionaryRegistry}, unknown names are 404
+ */
+@RestController
+@RequestMapping("/dictionaries/{name}")
+public class NamedEndpoint {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final DictionaryRegistry registry;
+
+    @Autowired
+    public NamedEndpoint(DictionaryRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * A call to the endpoint of one dictionary
+     */
+    private interface EndpointCall<T> {
+        T on(Endpoint endpoint) throws IOException;
+    }
+
+    private <T> T call(String name, EndpointCall<T> call) throws IOException {
+        try (DictionaryRegistry.Lease lease = registry.lease(name)) {
+            return call.on(lease.getEndpoint());
+        }
+    }
+
+    /**
+     * Calls a route that streams its body, the lease is held until the body is written so the dictionary can't be
+     * unloaded under the stream
+     */
+    private ResponseEntity<StreamingResponseBody> stream(String name, EndpointCall<ResponseEntity<StreamingResponseBody>> call) throws IOException {
+        DictionaryRegistry.Lease lease = registry.lease(name);
+        try {
+            ResponseEntity<StreamingResponseBody> response = call.on(lease.getEndpoint());
+            StreamingResponseBody body = response.getBody();
+            if (body == null) {
+                lease.close();
+                return response;
+            }
+            StreamingResponseBody held = out -> {
+                try {
+                    body.writeTo(out);
+                } finally {
+                    lease.close();
+                }
+            };
+            return new ResponseEntity<>(held, response.getHeaders(), response.getStatusCode());
+        } catch (IOException | RuntimeException ex) {
+            lease.close();
+            throw ex;
+        }
+    }
+
+    @RequestMapping(value = "/words.json", method = RequestMethod.POST)
+    public ResponseEntity addWords(@PathVariable String name, @RequestBody Words body) throws IOException {
+        return call(name, e -> e.addWords(body));
+    }
+
+    @RequestMapping(value = "/words/stream.json", method = RequestMethod.POST, produces = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<DictionaryLoader.Result> streamWords(@PathVariable String name, HttpServletRequest request) throws IOException {
+        return call(name, e -> e.streamWords(request));
+    }
+
+    @RequestMapping(value = "/anagrams/{word}.json", method = RequestMethod.GET)
+    public @ResponseBody Anagrams getAnagrams(@PathVariable String name, @PathVariable String word,
+                                              @RequestParam(value = "limit", required = false) Integer limit) throws IOException {
+        return call(name, e -> e.getAnagrams(word, limit));
+    }
+
+    @RequestMapping(value = "/anagrams.json", method = RequestMethod.POST, produces = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> getAnagrams(@PathVariable String name, @RequestBody Words body,
+                                                             @RequestParam(value = "limit", required = false) Integer limit) throws IOException {
+        return stream(name, e -> e.getAnagrams(body, limit));
+    }
+
+    @RequestMapping(value = "/subanagrams/{letters}.json", method = RequestMethod.GET)
+    public @ResponseBody Anagrams getSubAnagrams(@PathVariable String name, @PathVariable String letters,
+                                                 @RequestParam(value = "limit", required = false) Integer limit) throws IOException {
+        return call(name, e -> e.getSubAnagrams(letters, limit));
+    }
+
+    @RequestMapping(value = "/phrases/{text}.json", method = RequestMethod.GET)
+    public @ResponseBody Phrases getPhrases(@PathVariable String name, @PathVariable String text,
+                                            @RequestParam(value = "maxWords", required = false) Integer maxWords,
+                                            @RequestParam(value = "limit", required = false) Integer limit) throws IOException {
+        return call(name, e -> e.getPhrases(text, maxWords, limit));
+    }
+
+    @RequestMapping(value = "/words/{word}.json", method = RequestMethod.DELETE, produces = {MediaType.APPLICATION_JSON_VALUE})
+    public void deleteWord(@PathVariable String name, @PathVariable String word) throws IOException {
+        call(name, e -> {
+            e.deleteWord(word);
+            return null;
+        });
+    }
+
+    @RequestMapping(value = "/words.json", method = RequestMethod.DELETE, produces = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity deleteAll(@PathVariable String name) throws IOException {
+        return call(name, Endpoint::deleteAll);
+    }
+
+    @RequestMapping(value = "/delete/{word}.json", method = RequestMethod.GET, produces = {MediaType.APPLICATION_JSON_VALUE})
+    public @ResponseBody Anagrams deleteAnagram(@PathVariable String name, @PathVariable String word) throws IOException {
+        return call(name, e -> e.deleteAnagram(word));
+    }
+
+    @RequestMapping(value = "/anagrams/size/{size}", method = RequestMethod.GET, produces = {MediaType.APPLICATION_JSON_VALUE})
+    public @ResponseBody List<Anagrams> getAnagramGroupsBySize(@PathVariable String name, @PathVariable int size) throws IOException {
+        return call(name, e -> e.getAnagramGroupsBySize(size));
+    }
+
+    @RequestMapping(value = "/anagrams/size/{size}", params = "limit", method = RequestMethod.GET, produces = {MediaType.APPLICATION_JSON_VALUE})
+    public @ResponseBody AnagramPage getAnagramGroupsBySize(@PathVariable String name, @PathVariable int size, @RequestParam("limit") int limit,
+                                                            @RequestParam(value = "cursor", required = false) String cursor) throws IOException {
+        return call(name, e -> e.getAnagramGroupsBySize(size, limit, cursor));
+    }
+
+    @RequestMapping(value = "/anagrams/size/{size}", method = RequestMethod.GET, produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAnagramGroupsBySize(@PathVariable String name, @PathVariable int size) throws IOException {
+        return stream(name, e -> e.streamAnagramGroupsBySize(size));
+    }
+
+    @RequestMapping(value = "/stats.json", method = RequestMethod.GET)
+    public @ResponseBody ResponseEntity<Stats> getStats(@PathVariable String name) throws IOException {
+        return call(name, Endpoint::getStats);
+    }
+}
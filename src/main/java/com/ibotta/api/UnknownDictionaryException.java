@@ -0,0 +1,15 @@
+package com.ibotta.api;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * No dictionary is configured with the requested name
+ */
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class UnknownDictionaryException extends RuntimeException {
+
+    public UnknownDictionaryException(String name) {
+        super("No dictionary named " + name);
+    }
+}
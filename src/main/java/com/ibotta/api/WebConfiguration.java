@@ -0,0 +1,32 @@
+package com.ibotta.api;
+
+import com.ibotta.config.AnagramConfig;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Adds the sampled access log to every request, the rate is accessLogSampleEvery in the config
+ */
+@Configuration
+public class WebConfiguration extends WebMvcConfigurerAdapter {
+
+    private static final int DEFAULT_SAMPLE_EVERY = 100;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AccessLog(sampleEvery()));
+    }
+
+    private static int sampleEvery() {
+        try {
+            String configured = AnagramConfig.instance().accessLogSampleEvery;
+            return (configured != null) ? Integer.parseInt(configured) : DEFAULT_SAMPLE_EVERY;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,667 @@
+package com.ibotta.cluster;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibotta.dao.*;
+import org.apache.log4j.Logger;
+
+import javax.validation.constraints.NotNull;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Spreads a dictionary over several nodes.  Each group belongs to the nodes its signature hash maps to on a
+ * {@link HashRing}: changes go to every owner, lookups to the first owner that answers, and whole-corpus queries
+ * ask every node for the groups it is primary for and add the answers up.
+ *
+ * Every node starts from the same dictionary file, so its copies of the groups it doesn't own are only a starting
+ * state that is never read: lookups of those groups are forwarded and fan-out queries only count primary groups.
+ * The node a request arrives at writes to the owners itself and fails the request with
+ * {@link ClusterUnavailableException} if any owner can't be reached, the owners that were reached keep the change and
+ * a retry repeats it harmlessly.  Membership is fixed by the config and there is no repair, a node that was down
+ * keeps what it had until a group is written again.  Fan-out queries need every node.
+ *
+ * A standalone cluster hands everything straight to the dictionary.
+ */
+public class Cluster implements DictionaryLoader.Target, Closeable {
+
+    private final static Logger LOG = Logger.getLogger(Cluster.class);
+
+    /** Copies kept of each group when not configured */
+    public static final int DEFAULT_REPLICAS = 2;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+    private static final int READ_TIMEOUT_MILLIS = 30000;
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final Dictionary dictionary;
+    private final HashRing ring;
+    private final int self;
+    private final int replicas;
+    private final CorpusStats primaryStats;
+    private final ExecutorService pool;
+    private final Dictionary.SignatureFilter primary = this::isPrimary;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final JavaType anagramsType = mapper.constructType(Anagrams.class);
+    private final JavaType anagramsListType = mapper.getTypeFactory().constructCollectionType(List.class, Anagrams.class);
+    private final JavaType wordListsType = mapper.getTypeFactory().constructMapType(LinkedHashMap.class,
+            mapper.constructType(String.class), mapper.getTypeFactory().constructCollectionType(List.class, String.class));
+
+    /**
+     * A node of its own, every call goes to the dictionary
+     * @param dictionary the dictionary
+     * @return the cluster
+     */
+    public static Cluster standalone(@NotNull Dictionary dictionary) {
+        return new Cluster(dictionary);
+    }
+
+    private Cluster(Dictionary dictionary) {
+        this.dictionary = dictionary;
+        this.ring = null;
+        this.self = 0;
+        this.replicas = 1;
+        this.primaryStats = null;
+        this.pool = null;
+    }
+
+    /**
+     * Joins a cluster.  Must be created before the dictionary takes any writes, it starts counting the groups this node
+     * is primary for from the groups the dictionary holds
+     * @param dictionary this node's dictionary
+     * @param nodes base URL of every node, e.g. http://host:9000, the same list on every node
+     * @param self base URL of this node, one of nodes
+     * @param replicas copies kept of each group, at most one per node
+     */
+    public Cluster(@NotNull Dictionary dictionary, @NotNull List<String> nodes, @NotNull String self, int replicas) {
+        if (replicas < 1)
+            throw new IllegalArgumentException("replicas must be positive");
+        List<String> urls = nodes.stream().map(Cluster::trim).collect(Collectors.toList());
+        this.dictionary = dictionary;
+        this.ring = new HashRing(urls, HashRing.DEFAULT_POINTS);
+        this.self = urls.indexOf(trim(self));
+        if (this.self < 0)
+            throw new IllegalArgumentException(self + " is not one of the cluster nodes " + urls);
+        this.replicas = Math.min(replicas, urls.size());
+        AtomicInteger threads = new AtomicInteger();
+        this.pool = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "cluster-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        primaryStats = new CorpusStats();
+        dictionary.addGroupListener(new PrimaryListener());
+        for (Anagrams group : dictionary) {
+            List<String> words = group.getWords();
+            long high = Signature.high(words.get(0));
+            long low = Signature.low(words.get(0));
+            if (isPrimary(high, low))
+                for (int i = 0; i < words.size(); i++)
+                    primaryStats.wordAdded(high, low, words.get(i), i + 1);
+        }
+        LOG.info("Node " + urls.get(this.self) + " of " + urls + ", " + this.replicas + " copies of each group, primary for "
+                + primaryStats.groupCount() + " groups");
+    }
+
+    private static String trim(String url) {
+        url = url.trim();
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /**
+     * Check whether there are other nodes
+     * @return false for a standalone node
+     */
+    public boolean isDistributed() {
+        return ring != null;
+    }
+
+    /**
+     * Check whether this node holds a copy of a word's group, lookups of the word can then be answered locally
+     * @param word the word
+     * @return true if this node is one of the owners
+     */
+    public boolean owns(String word) {
+        if (ring == null)
+            return true;
+        for (int node : owners(word))
+            if (node == self)
+                return true;
+        return false;
+    }
+
+    /**
+     * Check whether this node is the first owner of a group, fan-out queries count a group on its primary only
+     * @param high high half of the signature
+     * @param low low half of the signature
+     * @return true if this node is the primary
+     */
+    public boolean isPrimary(long high, long low) {
+        return ring == null || ring.primary(Signature.hash(high, low)) == self;
+    }
+
+    /**
+     * Filter that accepts the groups this node is primary for
+     * @return the filter
+     */
+    public Dictionary.SignatureFilter primaryFilter() {
+        return (ring == null) ? Dictionary.SignatureFilter.ALL : primary;
+    }
+
+    private int[] owners(long high, long low) {
+        return ring.owners(Signature.hash(high, low), replicas);
+    }
+
+    private int[] owners(String word) {
+        String lower = word.toLowerCase();
+        long high = Signature.high(lower);
+        long low = Signature.low(lower);
+        return Signature.isValid(high, low) ? owners(high, low) : new int[] { self }; //the local dictionary rejects it
+    }
+
+    private int[] everyNode() {
+        return IntStream.range(0, ring.getNodes().size()).toArray();
+    }
+
+    /**
+     * Adds words on the nodes that own them
+     * @param words the words to add
+     * @throws IllegalArgumentException if a word is invalid, nothing is added then
+     */
+    public void addWords(@NotNull String[] words) {
+        if (ring == null) {
+            dictionary.addWords(words);
+            return;
+        }
+        Part[] parts = new Part[ring.getNodes().size()];
+        for (String word : words) {
+            if (word == null || word.isEmpty())
+                throw new IllegalArgumentException(word + " is not a valid word");
+            String lower = word.toLowerCase();
+            long high = Signature.high(lower);
+            long low = Signature.low(lower);
+            if (!Signature.isValid(high, low))
+                throw new IllegalArgumentException(word + " is not a valid word");
+            route(parts, lower, high, low);
+        }
+        write(parts);
+    }
+
+    /**
+     * Adds a chunk of an upload on the nodes that own its words
+     * @param words the chunk
+     * @return count of words that were new on their primary node
+     */
+    @Override
+    public int insert(SignedWords words) {
+        if (ring == null)
+            return dictionary.insert(words);
+        Part[] parts = new Part[ring.getNodes().size()];
+        for (int i = 0; i < words.size(); i++)
+            route(parts, words.word(i), words.high(i), words.low(i));
+        return write(parts);
+    }
+
+    /**
+     * Words headed for one node, the counted ones are those it is primary for
+     */
+    private static final class Part {
+        final List<String> counted = new ArrayList<>();
+        final List<String> copies = new ArrayList<>();
+
+        String[] words() {
+            List<String> all = new ArrayList<>(counted);
+            all.addAll(copies);
+            return all.toArray(new String[0]);
+        }
+    }
+
+    private void route(Part[] parts, String word, long high, long low) {
+        int[] owners = owners(high, low);
+        for (int i = 0; i < owners.length; i++) {
+            if (parts[owners[i]] == null)
+                parts[owners[i]] = new Part();
+            (i == 0 ? parts[owners[i]].counted : parts[owners[i]].copies).add(word);
+        }
+    }
+
+    private int write(Part[] parts) {
+        int[] nodes = IntStream.range(0, parts.length).filter(n -> parts[n] != null).toArray();
+        List<Integer> added = onEach(nodes, node -> (node == self)
+                ? addLocal(parts[node].words(), parts[node].counted.size())
+                : call(node, "POST", "/cluster/words.json?counted=" + parts[node].counted.size(), words(parts[node].words()), mapper.constructType(Integer.class)));
+        return added.stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private static Words words(String[] list) {
+        Words words = new Words();
+        words.words = list;
+        return words;
+    }
+
+    /**
+     * Adds words sent by another node to this node's dictionary
+     * @param words the words, the counted ones first
+     * @param counted how many of the words to count, the rest are copies
+     * @return count of the counted words that were new
+     */
+    public int addLocal(@NotNull String[] words, int counted) {
+        int n = Math.max(0, Math.min(counted, words.length));
+        int added = dictionary.insert(sign(words, 0, n));
+        if (n < words.length)
+            dictionary.insert(sign(words, n, words.length));
+        return added;
+    }
+
+    private static SignedWords sign(String[] words, int from, int to) {
+        SignedWords signed = new SignedWords(to - from);
+        for (int i = from; i < to; i++)
+            signed.add(words[i]);
+        return signed;
+    }
+
+    /**
+     * Gets the anagrams of a word from the first of its owners that answers
+     * @param word the word to search for
+     * @param limit limits the number of results returned
+     * @return the anagrams
+     */
+    public Anagrams getAnagrams(String word, Integer limit) {
+        if (owns(word))
+            return dictionary.getAnagrams(word, limit);
+        String path = "/anagrams/" + encode(word) + ".json" + ((limit != null) ? "?limit=" + limit : "");
+        return first(owners(word), node -> call(node, "GET", path, null, anagramsType));
+    }
+
+    /**
+     * Gets the anagrams of a batch of words, each owner is asked once for all of its words
+     * @param words the words to search for
+     * @param limit limits the number of results returned for each word
+     * @return anagrams of each distinct word in the order the words were given
+     */
+    public Map<String, Anagrams> getAnagrams(@NotNull List<String> words, Integer limit) {
+        if (ring == null)
+            return dictionary.getAnagrams(words, limit);
+        List<String> local = new ArrayList<>();
+        Map<List<Integer>, List<String>> remote = new HashMap<>();
+        for (String word : words) {
+            if (word == null)
+                continue;
+            if (owns(word))
+                local.add(word);
+            else
+                remote.computeIfAbsent(Arrays.stream(owners(word)).boxed().collect(Collectors.toList()), k -> new ArrayList<>()).add(word);
+        }
+        String query = (limit != null) ? "?limit=" + limit : "";
+        List<CompletableFuture<Map<String, List<String>>>> asked = new ArrayList<>();
+        for (Map.Entry<List<Integer>, List<String>> e : remote.entrySet()) {
+            int[] owners = e.getKey().stream().mapToInt(Integer::intValue).toArray();
+            Words body = words(e.getValue().toArray(new String[0]));
+            asked.add(CompletableFuture.supplyAsync(() -> first(owners, node -> call(node, "POST", "/anagrams.json" + query, body, wordListsType)), pool));
+        }
+        Map<String, Anagrams> found = new HashMap<>(dictionary.getAnagrams(local, limit));
+        for (CompletableFuture<Map<String, List<String>>> answer : asked)
+            join(answer).forEach((word, anagrams) -> found.put(word, new Anagrams(anagrams)));
+
+        Map<String, Anagrams> result = new LinkedHashMap<>();
+        for (String word : words)
+            if (word != null && !result.containsKey(word))
+                result.put(word, found.getOrDefault(word, new Anagrams()));
+        return result;
+    }
+
+    /**
+     * Deletes a word on every owner
+     * @param word what to delete
+     * @return true if the primary had the word
+     */
+    public boolean deleteWord(String word) {
+        if (ring == null)
+            return dictionary.deleteWord(word);
+        String path = "/cluster/words/" + encode(word) + ".json";
+        return onEach(owners(word), node -> (node == self)
+                ? dictionary.deleteWord(word)
+                : call(node, "DELETE", path, null, mapper.constructType(Boolean.class))).get(0);
+    }
+
+    /**
+     * Deletes the group of a word on every owner
+     * @param word a word of the group
+     * @return the words the primary deleted
+     */
+    public Anagrams deleteAnagrams(String word) {
+        if (ring == null)
+            return dictionary.deleteAnagrams(word);
+        String path = "/cluster/anagrams/" + encode(word) + ".json";
+        return onEach(owners(word), node -> (node == self)
+                ? dictionary.deleteAnagrams(word)
+                : call(node, "DELETE", path, null, anagramsType)).get(0);
+    }
+
+    /**
+     * Clears every node
+     */
+    public void deleteAll() {
+        if (ring == null) {
+            dictionary.deleteAll();
+            return;
+        }
+        onEach(everyNode(), node -> {
+            if (node == self)
+                dictionary.deleteAll();
+            else
+                call(node, "DELETE", "/cluster/words.json", null, null);
+            return null;
+        });
+    }
+
+    /**
+     * Gets the groups with size >= the size specified from every node
+     * @param size the minimum size of the groups to return
+     * @return the groups, in no particular order
+     */
+    public List<Anagrams> getAnagramGroupsBySize(int size) {
+        if (ring == null)
+            return dictionary.getAnagramGroupsBySize(size);
+        List<List<Anagrams>> parts = onEach(everyNode(), node -> (node == self)
+                ? dictionary.getAnagramGroupsBySize(size, primary)
+                : call(node, "GET", "/cluster/groups/" + size, null, anagramsListType));
+        List<Anagrams> groups = new ArrayList<>();
+        parts.forEach(groups::addAll);
+        return groups;
+    }
+
+    /**
+     * Gets one page of the groups with size >= the size specified.  Every node returns its own first page after the
+     * cursor, the page is the first of their groups in signature order, so cursors work as they do on one node
+     * @param size the minimum size of the groups to return
+     * @param cursor where to continue from, the next cursor of the previous page or null for the first page
+     * @param limit most groups on the page
+     * @return the page
+     */
+    public AnagramPage getAnagramGroupsBySize(int size, String cursor, int limit) {
+        if (ring == null)
+            return dictionary.getAnagramGroupsBySize(size, cursor, limit);
+        Dictionary.checkPageLimit(limit);
+        AnagramPage.parseCursor(cursor); //a bad cursor is the caller's fault, not the nodes'
+        String path = "/cluster/groups/" + size + "?limit=" + limit + ((cursor != null) ? "&cursor=" + encode(cursor) : "");
+        List<AnagramPage> pages = onEach(everyNode(), node -> (node == self)
+                ? dictionary.getAnagramGroupsBySize(size, cursor, limit, primary)
+                : call(node, "GET", path, null, mapper.constructType(AnagramPage.class)));
+
+        List<Anagrams> groups = new ArrayList<>();
+        boolean more = false;
+        for (AnagramPage page : pages) {
+            groups.addAll(page.getGroups());
+            more |= page.getNext() != null;
+        }
+        groups.sort(Comparator.comparing((Anagrams g) -> Signature.high(g.getWords().get(0)))
+                .thenComparing(g -> Signature.low(g.getWords().get(0))));
+        if (groups.size() > limit) {
+            groups = new ArrayList<>(groups.subList(0, limit));
+            more = true;
+        }
+        String next = null;
+        if (more && !groups.isEmpty()) {
+            String last = groups.get(groups.size() - 1).getWords().get(0);
+            next = AnagramPage.cursor(Signature.high(last), Signature.low(last));
+        }
+        return new AnagramPage(groups, next);
+    }
+
+    /**
+     * Hands each group with size >= the size specified to an action, this node's groups first and then those of each
+     * other node as it streams them
+     * @param size the minimum size of the groups to visit
+     * @param action called with each group
+     */
+    public void forEachGroupBySize(int size, Consumer<Anagrams> action) {
+        if (ring == null) {
+            dictionary.forEachGroupBySize(size, action);
+            return;
+        }
+        dictionary.forEachGroupBySize(size, primary, action);
+        for (int node = 0; node < ring.getNodes().size(); node++) {
+            if (node == self)
+                continue;
+            try {
+                HttpURLConnection c = open(node, "GET", "/cluster/groups/" + size, NDJSON);
+                try (InputStream in = body(c); JsonParser parser = mapper.getFactory().createParser(in);
+                     MappingIterator<Anagrams> groups = mapper.readValues(parser, Anagrams.class)) {
+                    while (groups.hasNextValue())
+                        action.accept(groups.nextValue());
+                }
+            } catch (IOException ex) {
+                throw new ClusterUnavailableException("Could not stream the groups of " + ring.getNodes().get(node), ex);
+            }
+        }
+    }
+
+    /**
+     * Adds up the counts of every node
+     * @return the stats of the whole cluster
+     */
+    public Stats getStats() {
+        if (ring == null) {
+            return new Stats(dictionary).snapshot();
+        }
+        List<PartialStats> parts = onEach(everyNode(), node -> (node == self)
+                ? localStats()
+                : call(node, "GET", "/cluster/stats.json", null, mapper.constructType(PartialStats.class)));
+        long[] lengths = new long[CorpusStats.MAX_LENGTH + 1];
+        int groups = 0;
+        int largest = 0;
+        List<List<String>> largestGroups = new ArrayList<>();
+        for (PartialStats part : parts) {
+            for (int i = 0; i < Math.min(lengths.length, part.lengths.length); i++)
+                lengths[i] += part.lengths[i];
+            groups += part.groups;
+            int size = part.largestGroups.isEmpty() ? 0 : part.largestGroups.get(0).size();
+            if (size > largest) {
+                largest = size;
+                largestGroups.clear();
+            }
+            if (size == largest && size > 0)
+                largestGroups.addAll(part.largestGroups);
+        }
+        return new Stats(lengths, groups, largestGroups);
+    }
+
+    /**
+     * The counts of the groups this node is primary for
+     * @return the counts
+     */
+    public PartialStats localStats() {
+        CorpusStats counts = (primaryStats != null) ? primaryStats : dictionary.getStatistics();
+        PartialStats part = new PartialStats();
+        part.lengths = counts.lengthHistogram();
+        part.groups = counts.groupCount();
+        int size = counts.largestGroupSize();
+        List<Anagrams> largest = new ArrayList<>();
+        if (size < 2) {
+            dictionary.forEachGroupBySize(size, primaryFilter(), largest::add);
+        } else {
+            long[] signatures = counts.signaturesOfSize(size);
+            for (int i = 0; i < signatures.length; i += 2) {
+                Anagrams group = dictionary.getGroup(signatures[i], signatures[i + 1]);
+                if (group != null && group.getWords().size() == size)
+                    largest.add(group);
+            }
+        }
+        part.largestGroups = largest.stream().map(Anagrams::getWords).collect(Collectors.toList());
+        return part;
+    }
+
+    /**
+     * A call to one node, local or remote
+     */
+    private interface NodeCall<T> {
+        T on(int node) throws IOException;
+    }
+
+    /**
+     * Runs a call on each of a set of nodes at once, this node's share on the calling thread
+     * @return the results in the order of the nodes
+     * @throws ClusterUnavailableException if any node failed, once every call has finished
+     */
+    private <T> List<T> onEach(int[] nodes, NodeCall<T> call) {
+        List<CompletableFuture<T>> remote = new ArrayList<>(nodes.length);
+        for (int node : nodes)
+            remote.add((node == self) ? null : CompletableFuture.supplyAsync(() -> {
+                try {
+                    return call.on(node);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }, pool));
+        T local = null;
+        for (int node : nodes) {
+            if (node != self)
+                continue;
+            try {
+                local = call.on(self);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        List<T> results = new ArrayList<>(nodes.length);
+        ClusterUnavailableException failed = null;
+        for (int i = 0; i < nodes.length; i++) {
+            try {
+                results.add((remote.get(i) != null) ? remote.get(i).join() : local);
+            } catch (CompletionException ex) {
+                LOG.warn("Node " + ring.getNodes().get(nodes[i]) + " failed: " + ex.getCause());
+                failed = new ClusterUnavailableException("Could not reach " + ring.getNodes().get(nodes[i]), ex.getCause());
+            }
+        }
+        if (failed != null)
+            throw failed;
+        return results;
+    }
+
+    /**
+     * Runs a call on the first of a set of nodes that answers
+     */
+    private <T> T first(int[] nodes, NodeCall<T> call) {
+        IOException last = null;
+        for (int node : nodes) {
+            try {
+                return call.on(node);
+            } catch (IOException ex) {
+                LOG.warn("Node " + ring.getNodes().get(node) + " failed, trying the next owner: " + ex);
+                last = ex;
+            }
+        }
+        throw new ClusterUnavailableException("None of the owners could be reached", last);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw ex;
+        }
+    }
+
+    private HttpURLConnection open(int node, String method, String path, String accept) throws IOException {
+        HttpURLConnection c = (HttpURLConnection) new URL(ring.getNodes().get(node) + path).openConnection();
+        c.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        c.setReadTimeout(READ_TIMEOUT_MILLIS);
+        c.setRequestMethod(method);
+        c.setRequestProperty("Accept", accept);
+        return c;
+    }
+
+    private <T> T call(int node, String method, String path, Object body, JavaType type) throws IOException {
+        HttpURLConnection c = open(node, method, path, "application/json");
+        if (body != null) {
+            c.setDoOutput(true);
+            c.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = c.getOutputStream()) {
+                mapper.writeValue(out, body);
+            }
+        }
+        try (InputStream in = body(c)) {
+            return (type != null && c.getResponseCode() != HttpURLConnection.HTTP_NO_CONTENT) ? mapper.readValue(in, type) : null;
+        }
+    }
+
+    /**
+     * The body of a successful response
+     * @throws IOException for any other status
+     */
+    private static InputStream body(HttpURLConnection c) throws IOException {
+        int status = c.getResponseCode();
+        if (status >= 300) {
+            InputStream error = c.getErrorStream();
+            if (error != null)
+                error.close();
+            throw new IOException(c.getRequestMethod() + " " + c.getURL() + " answered " + status);
+        }
+        return c.getInputStream();
+    }
+
+    private static String encode(String text) {
+        try {
+            return URLEncoder.encode(text, "UTF-8").replace("+", "%20");
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (pool != null)
+            pool.shutdownNow();
+    }
+
+    /**
+     * Counts the groups this node is primary for, on the writing thread like the dictionary's own statistics
+     */
+    private final class PrimaryListener implements GroupListener {
+        @Override
+        public void wordAdded(long high, long low, String word, int size) {
+            if (isPrimary(high, low))
+                primaryStats.wordAdded(high, low, word, size);
+        }
+
+        @Override
+        public void wordRemoved(long high, long low, String word, int size) {
+            if (isPrimary(high, low))
+                primaryStats.wordRemoved(high, low, word, size);
+        }
+
+        @Override
+        public void groupRemoved(long high, long low, int size) {
+            if (isPrimary(high, low))
+                primaryStats.groupRemoved(high, low, size);
+        }
+    }
+}
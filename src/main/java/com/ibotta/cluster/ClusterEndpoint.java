@@ -0,0 +1,133 @@
+package com.ibotta.cluster;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.ibotta.api.BadRequestException;
+import com.ibotta.dao.AnagramPage;
+import com.ibotta.dao.Anagrams;
+import com.ibotta.dao.Dictionary;
+import com.ibotta.dao.Words;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.validation.ValidationException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Routes the nodes of a {@link Cluster} call on each other.  Every call acts on this node's dictionary only, changes
+ * aren't passed on and queries only return the groups this node is primary for
+ */
+@RestController
+@RequestMapping("/cluster")
+public class ClusterEndpoint {
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final Dictionary dictionary;
+    private final Cluster cluster;
+
+    @Autowired
+    public ClusterEndpoint(Dictionary dictionary, Cluster cluster) {
+        this.dictionary = dictionary;
+        this.cluster = cluster;
+    }
+
+    /**
+     * POST /cluster/words.json?counted=:n: Adds the words, returns how many of the first n were new
+     */
+    @RequestMapping(value = "/words.json", method = RequestMethod.POST)
+    public @ResponseBody int addWords(@RequestBody Words body, @RequestParam("counted") int counted) {
+        if (body.words == null)
+            throw new ValidationException("Null word list posted in JSON body");
+        return cluster.addLocal(body.words, counted);
+    }
+
+    /**
+     * DELETE /cluster/words/:word.json: Deletes a word, returns whether it was found
+     */
+    @RequestMapping(value = "/words/{word}.json", method = RequestMethod.DELETE)
+    public @ResponseBody boolean deleteWord(@PathVariable String word) {
+        return dictionary.deleteWord(word);
+    }
+
+    /**
+     * DELETE /cluster/anagrams/:word.json: Deletes the group of a word, returns the words deleted
+     */
+    @RequestMapping(value = "/anagrams/{word}.json", method = RequestMethod.DELETE)
+    public @ResponseBody Anagrams deleteAnagrams(@PathVariable String word) {
+        return dictionary.deleteAnagrams(word);
+    }
+
+    /**
+     * DELETE /cluster/words.json: Clears this node
+     */
+    @RequestMapping(value = "/words.json", method = RequestMethod.DELETE)
+    public ResponseEntity deleteAll() {
+        dictionary.deleteAll();
+        return new ResponseEntity(HttpStatus.NO_CONTENT);
+    }
+
+    /**
+     * GET /cluster/groups/:size: The primary groups with size >= x
+     */
+    @RequestMapping(value = "/groups/{size}", method = RequestMethod.GET, produces = {MediaType.APPLICATION_JSON_VALUE})
+    public @ResponseBody List<Anagrams> getGroups(@PathVariable int size) {
+        return dictionary.getAnagramGroupsBySize(size, cluster.primaryFilter());
+    }
+
+    /**
+     * GET /cluster/groups/:size?limit=:limit&cursor=:cursor: One page of the primary groups with size >= x
+     */
+    @RequestMapping(value = "/groups/{size}", params = "limit", method = RequestMethod.GET, produces = {MediaType.APPLICATION_JSON_VALUE})
+    public @ResponseBody AnagramPage getGroups(@PathVariable int size, @RequestParam("limit") int limit,
+                                               @RequestParam(value = "cursor", required = false) String cursor) {
+        try {
+            return dictionary.getAnagramGroupsBySize(size, cursor, limit, cluster.primaryFilter());
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * GET /cluster/groups/:size with Accept: application/x-ndjson: Streams the primary groups with size >= x
+     */
+    @RequestMapping(value = "/groups/{size}", method = RequestMethod.GET, produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamGroups(@PathVariable int size) {
+        StreamingResponseBody stream = out -> {
+            try (JsonGenerator json = JSON.createGenerator(out)) {
+                json.setRootValueSeparator(null); //lines are split by the newline alone
+                dictionary.forEachGroupBySize(size, cluster.primaryFilter(), group -> {
+                    try {
+                        json.writeStartObject();
+                        json.writeArrayFieldStart("anagrams");
+                        for (String w : group.getWords())
+                            json.writeString(w);
+                        json.writeEndArray();
+                        json.writeEndObject();
+                        json.writeRaw('\n');
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(stream);
+    }
+
+    /**
+     * GET /cluster/stats.json: The counts of the primary groups
+     */
+    @RequestMapping(value = "/stats.json", method = RequestMethod.GET)
+    public @ResponseBody PartialStats getStats() {
+        return cluster.localStats();
+    }
+}
@@ -0,0 +1,106 @@
+package com.ibotta.cluster;
+
+import com.ibotta.dao.Signature;
+
+import javax.validation.constraints.NotNull;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Consistent hash ring of the nodes of a cluster, keyed by signature hash.
+ *
+ * Every node is placed on the ring at a number of points derived from its address only, so all nodes build the same
+ * ring from the same list in any order, and adding or removing a node only moves the keys next to its points.
+ * The owners of a key are the first distinct nodes found walking the ring clockwise from it, the first is its primary.
+ */
+public final class HashRing {
+
+    /** Points per node, enough to spread keys within a few percent of even for small clusters */
+    public static final int DEFAULT_POINTS = 128;
+
+    private final List<String> nodes;
+    private final long[] points;
+    private final int[] owners;
+
+    /**
+     * @param nodes addresses of the nodes, each must be distinct
+     * @param pointsPerNode points each node takes on the ring
+     */
+    public HashRing(@NotNull List<String> nodes, int pointsPerNode) {
+        if (nodes.isEmpty())
+            throw new IllegalArgumentException("A ring needs at least one node");
+        if (pointsPerNode < 1)
+            throw new IllegalArgumentException("pointsPerNode must be positive");
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+        long[][] placed = new long[nodes.size() * pointsPerNode][];
+        for (int n = 0; n < nodes.size(); n++) {
+            long seed = fnv(nodes.get(n));
+            for (int p = 0; p < pointsPerNode; p++)
+                placed[n * pointsPerNode + p] = new long[] { Signature.hash(seed, p), n };
+        }
+        //ties are broken by address so the order never depends on the order of the list
+        Arrays.sort(placed, (a, b) -> (a[0] != b[0]) ? Long.compare(a[0], b[0]) : nodes.get((int) a[1]).compareTo(nodes.get((int) b[1])));
+        points = new long[placed.length];
+        owners = new int[placed.length];
+        for (int i = 0; i < placed.length; i++) {
+            points[i] = placed[i][0];
+            owners[i] = (int) placed[i][1];
+        }
+    }
+
+    private static long fnv(String node) {
+        long h = 0xCBF29CE484222325L;
+        for (byte b : node.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= 0x100000001B3L;
+        }
+        return h;
+    }
+
+    /**
+     * The nodes of the ring, in the order given
+     * @return the node addresses
+     */
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * The node a key belongs to first
+     * @param hash the key, a signature hash
+     * @return index of the node in {@link #getNodes()}
+     */
+    public int primary(long hash) {
+        return owners[start(hash)];
+    }
+
+    /**
+     * The nodes that hold copies of a key
+     * @param hash the key, a signature hash
+     * @param count copies wanted, at most one per node
+     * @return indexes of the nodes in {@link #getNodes()}, primary first
+     */
+    public int[] owners(long hash, int count) {
+        int[] found = new int[Math.min(count, nodes.size())];
+        int n = 0;
+        for (int i = start(hash), seen = 0; n < found.length && seen < points.length; i = (i + 1) % points.length, seen++) {
+            int node = owners[i];
+            boolean taken = false;
+            for (int j = 0; j < n && !taken; j++)
+                taken = found[j] == node;
+            if (!taken)
+                found[n++] = node;
+        }
+        return found;
+    }
+
+    private int start(long hash) {
+        int i = Arrays.binarySearch(points, hash);
+        if (i < 0)
+            i = -i - 1;
+        return (i == points.length) ? 0 : i;
+    }
+}
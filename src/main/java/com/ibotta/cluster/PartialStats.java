@@ -0,0 +1,15 @@
+package com.ibotta.cluster;
+
+import java.util.List;
+
+/**
+ * The counts of the groups one node is primary for, the stats of the cluster are these added up
+ */
+public class PartialStats {
+    /** Count of words of each length, indexed by length */
+    public long[] lengths;
+    /** Count of groups */
+    public int groups;
+    /** The largest of the groups */
+    public List<List<String>> largestGroups;
+}
@@ -5,8 +5,11 @@ import org.apache.commons.io.IOUtils;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -16,6 +19,21 @@ public class AnagramConfig {
     private static AnagramConfig anagramConfig;
 
     public String dictionaryFile;
+    public String storageEngine;
+    public String snapshotFile;
+    public String alphabet;
+    public String walDir;
+    public String walCompactBytes;
+    public String accessLogSampleEvery;
+    public String responseCacheSize;
+    public String serverMode;
+    public String serverPort;
+    public String clusterNodes;
+    public String clusterSelf;
+    public String clusterReplicas;
+    public String dictionaryIdleMinutes;
+    /** Named dictionaries served besides this one, each with its own dictionaryFile, storageEngine, snapshotFile and responseCacheSize, the alphabet is shared */
+    public Map<String, AnagramConfig> dictionaries = Collections.emptyMap();
 
     public static AnagramConfig instance() throws IOException {
         if (anagramConfig != null)
@@ -29,8 +47,55 @@ public class AnagramConfig {
         Map map = (Map)yaml.read();
         anagramConfig = new AnagramConfig();
         anagramConfig.dictionaryFile = map.get("dictionaryFile").toString().trim();
+        anagramConfig.storageEngine = optional(map, "storageEngine");
+        anagramConfig.snapshotFile = optional(map, "snapshotFile");
+        anagramConfig.alphabet = optional(map, "alphabet");
+        anagramConfig.walDir = optional(map, "walDir");
+        anagramConfig.walCompactBytes = optional(map, "walCompactBytes");
+        anagramConfig.accessLogSampleEvery = optional(map, "accessLogSampleEvery");
+        anagramConfig.responseCacheSize = optional(map, "responseCacheSize");
+        anagramConfig.serverMode = optional(map, "serverMode");
+        anagramConfig.serverPort = optional(map, "server.port");
+        anagramConfig.clusterNodes = optional(map, "clusterNodes");
+        anagramConfig.clusterSelf = optional(map, "clusterSelf");
+        anagramConfig.clusterReplicas = optional(map, "clusterReplicas");
+        anagramConfig.dictionaryIdleMinutes = optional(map, "dictionaryIdleMinutes");
+        anagramConfig.dictionaries = named(map.get("dictionaries"), anagramConfig);
         return anagramConfig;
     }
 
+    /**
+     * Reads the named dictionaries, the alphabet and write-ahead log settings are shared with the default dictionary
+     * and each one logs to a directory of its own under walDir.  Signatures are computed with one alphabet for the
+     * whole process, so a dictionary that sets its own alphabet is refused rather than silently given the shared one
+     */
+    private static Map<String, AnagramConfig> named(Object value, AnagramConfig base) {
+        if (!(value instanceof Map))
+            return Collections.emptyMap();
+        Map<String, AnagramConfig> named = new LinkedHashMap<>();
+        for (Object e : ((Map) value).entrySet()) {
+            String name = ((Map.Entry) e).getKey().toString().trim();
+            Object entry = ((Map.Entry) e).getValue();
+            if (!(entry instanceof Map) || optional((Map) entry, "dictionaryFile") == null)
+                throw new IllegalArgumentException("Dictionary " + name + " needs a dictionaryFile");
+            if (((Map) entry).containsKey("alphabet"))
+                throw new IllegalArgumentException("Dictionary " + name + " can't set an alphabet, every dictionary uses the top level alphabet");
+            AnagramConfig config = new AnagramConfig();
+            config.dictionaryFile = optional((Map) entry, "dictionaryFile");
+            config.storageEngine = optional((Map) entry, "storageEngine");
+            config.snapshotFile = optional((Map) entry, "snapshotFile");
+            config.responseCacheSize = optional((Map) entry, "responseCacheSize");
+            config.alphabet = base.alphabet;
+            config.walDir = (base.walDir != null) ? new File(base.walDir, name).getPath() : null;
+            config.walCompactBytes = base.walCompactBytes;
+            named.put(name, config);
+        }
+        return Collections.unmodifiableMap(named);
+    }
+
+    private static String optional(Map map, String key) {
+        Object value = map.get(key);
+        return (value != null) ? value.toString().trim() : null;
+    }
 
 }
\ No newline at end of file
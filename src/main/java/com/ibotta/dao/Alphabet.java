@@ -0,0 +1,142 @@
+package com.ibotta.dao;
+
+import javax.validation.constraints.NotNull;
+import java.util.Arrays;
+
+/**
+ * Maps the characters a corpus may use onto the 27 signature symbols (a-z and hyphen).
+ *
+ * Lookups are a table read: ASCII characters go through a 128 entry table, anything else through a second table
+ * that only covers the characters the alphabet adds.  Validating a word is a single pass with no allocation.
+ * Characters outside the alphabet map to -1.
+ *
+ * One alphabet is active for the whole process (see {@link #use(Alphabet)}), signatures, validation and the
+ * snapshots all depend on it, so it is chosen once at startup before any words are loaded.  Snapshots record the
+ * alphabet they were built with and aren't mapped under another.
+ */
+public final class Alphabet {
+
+    /** a-z, A-Z and hyphen */
+    public static final Alphabet ENGLISH = english();
+
+    /** ENGLISH plus the accented Latin-1 letters, each counted as the letter it is based on */
+    public static final Alphabet LATIN1 = ENGLISH.extend("latin1",
+            "àáâãäåçèéêëìíîïñòóôõöøùúûüýÿÀÁÂÃÄÅÇÈÉÊËÌÍÎÏÑÒÓÔÕÖØÙÚÛÜÝ",
+            "aaaaaaceeeeiiiinoooooouuuuyyaaaaaaceeeeiiiinoooooouuuuy");
+
+    private static volatile Alphabet active = ENGLISH;
+
+    private final String name;
+    private final byte[] ascii;
+    private final byte[] extended;
+
+    private Alphabet(String name, byte[] ascii, byte[] extended) {
+        this.name = name;
+        this.ascii = ascii;
+        this.extended = extended;
+    }
+
+    private static Alphabet english() {
+        byte[] ascii = new byte[128];
+        Arrays.fill(ascii, (byte) -1);
+        for (char c = 'a'; c <= 'z'; c++) {
+            ascii[c] = (byte) (c - 'a');
+            ascii[Character.toUpperCase(c)] = (byte) (c - 'a');
+        }
+        ascii['-'] = Signature.SYMBOLS - 1;
+        return new Alphabet("english", ascii, new byte[0]);
+    }
+
+    /**
+     * Creates an alphabet that also accepts some extra characters, e.g. for a corpus in another language
+     * @param name name of the new alphabet
+     * @param chars the characters to add
+     * @param counted for each added character, the character of this alphabet it is counted as
+     * @return the new alphabet
+     */
+    public Alphabet extend(@NotNull String name, @NotNull String chars, @NotNull String counted) {
+        if (chars.length() != counted.length())
+            throw new IllegalArgumentException("Every added character needs exactly one character to be counted as");
+        byte[] ascii = this.ascii.clone();
+        int size = extended.length;
+        for (int i = 0; i < chars.length(); i++)
+            size = Math.max(size, chars.charAt(i) + 1);
+        byte[] extended = Arrays.copyOf(this.extended, size);
+        Arrays.fill(extended, this.extended.length, size, (byte) -1);
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            int s = symbol(counted.charAt(i));
+            if (s < 0)
+                throw new IllegalArgumentException(counted.charAt(i) + " is not in the " + this.name + " alphabet");
+            if (c < 128)
+                ascii[c] = (byte) s;
+            else
+                extended[c] = (byte) s;
+        }
+        return new Alphabet(name, ascii, extended);
+    }
+
+    /**
+     * Gets the symbol a character is counted as
+     * @param c the character to look up
+     * @return 0-25 for letters, 26 for hyphen, -1 if the character is not in the alphabet
+     */
+    public int symbol(char c) {
+        if (c < 128)
+            return ascii[c];
+        return c < extended.length ? extended[c] : -1;
+    }
+
+    /**
+     * Checks that a word is not empty and only uses characters of the alphabet
+     * @param word the word to check
+     * @return true if every character can be counted
+     */
+    public boolean isValid(CharSequence word) {
+        if (word == null || word.length() == 0)
+            return false;
+        for (int i = 0, n = word.length(); i < n; i++)
+            if (symbol(word.charAt(i)) < 0)
+                return false;
+        return true;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * The alphabet in use
+     * @return the active alphabet
+     */
+    public static Alphabet active() {
+        return active;
+    }
+
+    /**
+     * Switches the alphabet, words already signed under another alphabet are not re-signed
+     * @param alphabet the alphabet to use from now on
+     */
+    public static void use(@NotNull Alphabet alphabet) {
+        active = alphabet;
+    }
+
+    /**
+     * Looks up a built in alphabet by its configured name
+     * @param name alphabet name from the config, case insensitive, null for english
+     * @return the alphabet
+     */
+    public static Alphabet fromConfig(String name) {
+        if (name == null || name.trim().isEmpty())
+            return ENGLISH;
+        for (Alphabet a : new Alphabet[] { ENGLISH, LATIN1 })
+            if (a.name.equalsIgnoreCase(name.trim()))
+                return a;
+        throw new IllegalArgumentException("Unknown alphabet " + name);
+    }
+}
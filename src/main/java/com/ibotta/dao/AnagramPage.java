@@ -0,0 +1,61 @@
+package com.ibotta.dao;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * One page of anagram groups and the cursor that fetches the page after it
+ */
+public class AnagramPage {
+
+    private final List<Anagrams> groups;
+    private final String next;
+
+    @JsonCreator
+    public AnagramPage(@JsonProperty("groups") List<Anagrams> groups, @JsonProperty("next") String next) {
+        this.groups = groups;
+        this.next = next;
+    }
+
+    /**
+     * Cursor that continues after a signature, pages are ordered by signature
+     * @param high high half of the signature
+     * @param low low half of the signature
+     * @return the cursor
+     */
+    public static String cursor(long high, long low) {
+        return Long.toHexString(high) + "-" + Long.toHexString(low);
+    }
+
+    /**
+     * Reads a cursor made by {@link #cursor(long, long)}
+     * @param cursor the cursor, null or empty for the first page
+     * @return high and low half of the signature, null for the first page
+     */
+    public static long[] parseCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty())
+            return null;
+        int dash = cursor.indexOf('-');
+        try {
+            if (dash > 0)
+                return new long[] { Long.parseLong(cursor.substring(0, dash), 16), Long.parseLong(cursor.substring(dash + 1), 16) };
+        } catch (NumberFormatException ex) {
+            //fall through
+        }
+        throw new IllegalArgumentException("Invalid cursor " + cursor);
+    }
+
+    public List<Anagrams> getGroups() {
+        return groups;
+    }
+
+    /**
+     * Cursor to pass for the next page
+     * @return the cursor, null on the last page
+     */
+    public String getNext() {
+        return next;
+    }
+}
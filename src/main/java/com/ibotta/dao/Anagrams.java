@@ -2,14 +2,42 @@ package com.ibotta.dao;
 
 import com.fasterxml.jackson.annotation.JsonGetter;
 
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Vector;
 
 /**
  * Wrapper for anagram word list returned in JSON response
  */
 public class Anagrams {
-    private List<String> words = new Vector<>();
+    private List<String> words = Collections.emptyList();
+
+    public Anagrams() { }
+
+    public Anagrams(List<String> words) {
+        this.words = words;
+    }
+
+    /**
+     * Wraps a stored group without copying it, the list can't be modified
+     * @param group the words of the group
+     * @return wrapper around the group
+     */
+    public static Anagrams of(String[] group) {
+        return new Anagrams(Collections.unmodifiableList(Arrays.asList(group)));
+    }
+
+    /**
+     * Read only view of a group that leaves out one word and stops after a number of words, nothing is copied
+     * @param group the words of the group, must not change while the view is in use
+     * @param word the word to leave out
+     * @param limit maximum number of words in the view, null for no limit
+     * @return wrapper around the view
+     */
+    public static Anagrams excluding(List<String> group, String word, Integer limit) {
+        return new Anagrams(new ExcludingView(group, group.indexOf(word), limit));
+    }
 
     @JsonGetter(value = "anagrams")
     public List<String> getWords() {
@@ -19,4 +47,29 @@ public class Anagrams {
     public void setWords(List<String> words) {
         this.words = words;
     }
+
+    private static final class ExcludingView extends AbstractList<String> {
+        private final List<String> group;
+        private final int skip;
+        private final int size;
+
+        ExcludingView(List<String> group, int skip, Integer limit) {
+            this.group = group;
+            this.skip = skip;
+            int available = group.size() - ((skip >= 0) ? 1 : 0);
+            this.size = (limit != null) ? Math.max(0, Math.min(limit, available)) : available;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            return group.get((skip >= 0 && index >= skip) ? index + 1 : index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
 }
@@ -0,0 +1,130 @@
+package com.ibotta.dao;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.LongStream;
+
+/**
+ * Counts kept up to date by the store on every change so statistics never need a scan of the corpus.
+ *
+ * Every word in a group has the group's length, so word lengths are kept as a histogram indexed by length
+ * which gives exact min/max/median/average in one pass over at most {@link #MAX_LENGTH} buckets.
+ * Groups of two or more words are also indexed by size (size to the set of signatures with that size), so the largest
+ * groups and the groups above a size are found without visiting the rest.
+ */
+public class CorpusStats implements GroupListener {
+
+    /** Longest word a signature can encode */
+    public static final int MAX_LENGTH = Signature.SYMBOLS * Signature.MAX_COUNT;
+
+    private final AtomicLongArray lengths = new AtomicLongArray(MAX_LENGTH + 1);
+    private final LongAdder groups = new LongAdder();
+    private final ConcurrentSkipListMap<Integer, SignatureMap<Boolean>> bySize = new ConcurrentSkipListMap<>();
+
+    @Override
+    public void wordAdded(long high, long low, String word, int size) {
+        sizeChanged(high, low, size - 1, size);
+    }
+
+    @Override
+    public void wordRemoved(long high, long low, String word, int size) {
+        sizeChanged(high, low, size + 1, size);
+    }
+
+    @Override
+    public void groupRemoved(long high, long low, int size) {
+        sizeChanged(high, low, size, 0);
+    }
+
+    private void sizeChanged(long high, long low, int from, int to) {
+        lengths.addAndGet(Signature.length(high, low), to - from);
+        if (from == 0)
+            groups.increment();
+        else if (to == 0)
+            groups.decrement();
+        if (from > 1)
+            bySize.get(from).remove(high, low);
+        if (to > 1)
+            bySize.computeIfAbsent(to, s -> new SignatureMap<>()).put(high, low, Boolean.TRUE);
+    }
+
+    /**
+     * Records the groups already in a store, for a store opened before the stats were attached
+     * @param store the store to count
+     */
+    void addAll(CorpusStore store) {
+        for (Anagrams group : store) {
+            String word = group.getWords().get(0);
+            sizeChanged(Signature.high(word), Signature.low(word), 0, group.getWords().size());
+        }
+    }
+
+    /**
+     * Count of words with a given length
+     * @param length the word length, 0 to {@link #MAX_LENGTH}
+     * @return the count
+     */
+    public long wordsOfLength(int length) {
+        return lengths.get(length);
+    }
+
+    /**
+     * Counts of words by length
+     * @return the count of words of each length, indexed by length
+     */
+    public long[] lengthHistogram() {
+        long[] counts = new long[MAX_LENGTH + 1];
+        for (int length = 0; length < counts.length; length++)
+            counts[length] = lengths.get(length);
+        return counts;
+    }
+
+    /**
+     * Count of anagram groups
+     * @return Count of anagram groups
+     */
+    public int groupCount() {
+        return groups.intValue();
+    }
+
+    /**
+     * Size of the largest group(s)
+     * @return Size of the largest group(s), 0 if there are no groups
+     */
+    public int largestGroupSize() {
+        for (Map.Entry<Integer, SignatureMap<Boolean>> e : bySize.descendingMap().entrySet())
+            if (!e.getValue().isEmpty())
+                return e.getKey();
+        return (groupCount() > 0) ? 1 : 0;
+    }
+
+    /**
+     * Indexed group sizes, only groups of two or more words are indexed by size
+     * @param atLeast smallest size to list
+     * @return the sizes of at least atLeast that have groups, ascending
+     */
+    public int[] groupSizes(int atLeast) {
+        return bySize.tailMap(Math.max(2, atLeast)).entrySet().stream()
+                .filter(e -> !e.getValue().isEmpty())
+                .mapToInt(Map.Entry::getKey)
+                .toArray();
+    }
+
+    /**
+     * Signatures of the groups with a given size, only groups of two or more words are indexed
+     * @param size the group size, at least 2
+     * @return high and low half of each signature, interleaved
+     */
+    public long[] signaturesOfSize(int size) {
+        if (size < 2)
+            throw new IllegalArgumentException("Only groups of two or more words are indexed by size");
+        SignatureMap<Boolean> signatures = bySize.get(size);
+        if (signatures == null)
+            return new long[0];
+        LongStream.Builder found = LongStream.builder();
+        signatures.forEach((high, low, v) -> found.add(high).add(low));
+        return found.build().toArray();
+    }
+}
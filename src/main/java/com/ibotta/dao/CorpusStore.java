@@ -0,0 +1,74 @@
+package com.ibotta.dao;
+
+import java.util.stream.Stream;
+
+/**
+ * Storage engine behind a Dictionary, holds the anagram groups keyed by {@link Signature}.
+ * Words passed to a store have already been validated and lower cased by the dictionary.
+ *
+ * Every single-signature operation is atomic: add, remove and removeGroup on the same signature take effect
+ * in one total order and never lose each other's updates, while reads see either the whole of a write or none of it.
+ * Operations on different signatures don't block each other beyond sharing a segment.
+ */
+public interface CorpusStore extends Iterable<Anagrams> {
+
+    /**
+     * Gets the group for a signature
+     * @return the group, null if no words have the signature
+     */
+    Anagrams get(long high, long low);
+
+    /**
+     * Checks whether a word is stored in the group for its signature
+     * @return true if it exists
+     */
+    boolean contains(long high, long low, String word);
+
+    /**
+     * Adds a word to the group for its signature, creating the group if needed
+     * @return true if the word was added, false if it already exists
+     */
+    boolean add(long high, long low, String word);
+
+    /**
+     * Removes a word from the group for its signature, removing the group once it is empty
+     * @return true if the word was found and removed
+     */
+    boolean remove(long high, long low, String word);
+
+    /**
+     * Removes the whole group for a signature
+     * @return the removed group, null if there was none
+     */
+    Anagrams removeGroup(long high, long low);
+
+    /**
+     * Weakly consistent stream of every group in the store
+     * @return stream of groups
+     */
+    Stream<Anagrams> groups();
+
+    /**
+     * Count of anagram groups in the store
+     * @return Count of anagram groups in the store
+     */
+    int groupCount();
+
+    /**
+     * Check whether the store has stuff
+     * @return true if it doesn't
+     */
+    boolean isEmpty();
+
+    /**
+     * Removes every group
+     */
+    void clear();
+
+    /**
+     * Sets the listener told about every change to a group, including the removals done by {@link #clear()}.
+     * Groups already in the store are not reported.
+     * @param listener the listener, replaces any previous one
+     */
+    void setListener(GroupListener listener);
+}
@@ -24,14 +24,12 @@ public class DataUtils {
     }
 
     /**
-     * Checks the word for valid characters [A-Z and hypen]
+     * Checks the word for valid characters [A-Z and hypen, plus any the active {@link Alphabet} adds]
      * @param the word to validate
      * @return true if the word contains valid characters
      */
     public static boolean validCharacters(String word) {
-        if (word == null || word == "")
-            return false;
-        return word.matches("[A-Za-z\\-]+");
+        return Alphabet.active().isValid(word);
     }
 
     /**
@@ -42,18 +40,31 @@ public class DataUtils {
     public static boolean validateAnagrams(@NotNull String[] words) {
         if (words.length < 2)
             return false; //got to have at least 2 words in the list
-        String key = null;
-        for (String w : words) {
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < words.length; i++) {
+            String w = words[i];
             if (!validCharacters(w))
                 throw new IllegalArgumentException(w + " not a valid word");
-            if (key == null)
-                key = createKeyFromWord(w);
-            else if (!key.equals(createKeyFromWord(w)))
+            if (i == 0) {
+                high = Signature.high(w);
+                low = Signature.low(w);
+                if (!Signature.isValid(high, low))
+                    return validateSortedKeys(words); //too many repeated letters to encode
+            } else if (Signature.high(w) != high || Signature.low(w) != low)
                 return false;
         }
         return true;
     }
 
+    private static boolean validateSortedKeys(String[] words) {
+        String key = createKeyFromWord(words[0]);
+        for (String w : words)
+            if (!key.equals(createKeyFromWord(w)))
+                return false;
+        return true;
+    }
+
     /**
      * Gets stats from the dictionary object passed to the method and logs them to the specified log
      * @param log The log to use for logging
@@ -70,7 +81,5 @@ public class DataUtils {
         log.debug(" - " + stats.getMax() + " max word length");
         log.debug(" - " + stats.getAverage() + " avg word length");
         log.debug(" - " + stats.getMedian() + " median word length");
-
-        dictionary.deleteObserver(stats);
     }
 }
@@ -1,60 +1,158 @@
 package com.ibotta.dao;
 
 import com.ibotta.config.AnagramConfig;
-import org.apache.commons.io.FileUtils;
+import com.ibotta.metrics.Metrics;
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
-import org.springframework.core.io.ClassPathResource;
 
 import javax.validation.constraints.NotNull;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Observable;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
- * Data container for the anagram dictionary, extends Observable and can notify observer objects of changes
+ * Data container for the anagram dictionary, publishes every change to subscribers of its {@link DictionaryEventBus}
+ * and, when walDir is configured, records it in a {@link WriteAheadLog} before the change is acknowledged
  */
-public class Dictionary extends Observable implements Iterable<Anagrams> {
+public class Dictionary implements Iterable<Anagrams>, Closeable {
 
     private final static Logger LOG = Logger.getLogger(Dictionary.class);
-    private final ConcurrentHashMap<String, Anagrams> corpus = new ConcurrentHashMap<>();
+
+    /** Most groups on one page of a size query */
+    public static final int MAX_PAGE_LIMIT = 10000;
+
+    private final CorpusStore corpus;
+    private final CorpusStats statistics = new CorpusStats();
+    private final DictionaryEventBus events = new DictionaryEventBus();
+    private final ThreadLocal<DictionaryEventBus.Batch> batch = new ThreadLocal<>();
+    private volatile LetterIndex letterIndex;
+    private volatile WriteAheadLog wal;
+    private final List<GroupListener> listeners = new CopyOnWriteArrayList<>();
 
     /**
-     * Reads the dictionary file passed in by the config and parses the anagrams from the file
+     * Loads the dictionary named in the config.  A prebuilt snapshot (snapshotFile) is memory mapped when one exists,
+     * otherwise the anagrams are parsed from the dictionary file.  With a walDir the newest compacted snapshot in it
+     * takes the place of both, and the changes logged since are replayed on top
      * @param Config containing the path to the dictionary file to load
      * @throws IOException if the file cannot be read
      */
     public Dictionary(@NotNull AnagramConfig config) throws IOException {
         if (config.dictionaryFile == null)
             throw new IllegalArgumentException("dictionaryFile path not specified in config");
-
-        ClassPathResource res = new ClassPathResource(config.dictionaryFile);
-        File file = res.getFile();
-        LOG.info("Loading dictionary file " + file.getAbsolutePath());
-        DateTime start = DateTime.now();
-        List<String> dictionary = FileUtils.readLines(file, Charset.defaultCharset());
-        for (String word : dictionary)
-            addWord(word);
-        DateTime end = DateTime.now();
-        long span = end.getMillis() - start.getMillis();
-        LOG.debug("Dictionary file loaded in " + span + "ms");
+        Alphabet.use(Alphabet.fromConfig(config.alphabet));
+        StorageEngine engine = StorageEngine.fromConfig(config.storageEngine);
+        WriteAheadLog.Recovery recovery = (config.walDir != null) ? WriteAheadLog.recover(new File(config.walDir)) : null;
+        CorpusStore mapped;
+        if (recovery != null && recovery.snapshot != null) {
+            //no fallback here, the segments the snapshot replaced are gone
+            LOG.info("Mapping compacted snapshot " + recovery.snapshot.getAbsolutePath() + " into " + engine + " store");
+            mapped = engine.open(DictionarySnapshot.map(recovery.snapshot));
+        } else {
+            mapped = openSnapshot(config.snapshotFile, engine);
+        }
+        corpus = (mapped != null) ? mapped : engine.newStore();
+        statistics.addAll(corpus);
+        corpus.setListener(new ChangeListener());
+        if (mapped == null)
+            new DictionaryLoader().load(this, config.dictionaryFile);
+        if (recovery != null) {
+            replay(recovery);
+            wal = new WriteAheadLog(recovery, walCompactBytes(config.walCompactBytes), this);
+            WriteAheadLog.deleteObsolete(recovery);
+        }
         DataUtils.logDictionaryStats(LOG, this);
     }
 
     /**
-     * Add a list of words to the dictionary if they do not already exist
+     * Creates an empty dictionary, words can be added directly or with a {@link DictionaryLoader}
+     * @param engine storage engine that holds the words
+     */
+    public Dictionary(@NotNull StorageEngine engine) {
+        corpus = engine.newStore();
+        corpus.setListener(new ChangeListener());
+    }
+
+    private static long walCompactBytes(String configured) {
+        return (configured != null) ? Long.parseLong(configured) : WriteAheadLog.DEFAULT_COMPACT_BYTES;
+    }
+
+    /**
+     * Applies the logged changes to the store, before the log is attached so nothing is logged twice
+     */
+    private void replay(WriteAheadLog.Recovery recovery) throws IOException {
+        WriteAheadLog.Target target = new WriteAheadLog.Target() {
+            @Override
+            public void add(String word) {
+                corpus.add(Signature.high(word), Signature.low(word), word);
+            }
+
+            @Override
+            public void remove(String word) {
+                corpus.remove(Signature.high(word), Signature.low(word), word);
+            }
+
+            @Override
+            public void removeGroup(long high, long low) {
+                corpus.removeGroup(high, low);
+            }
+        };
+        for (File segment : recovery.segments) {
+            DateTime start = DateTime.now();
+            long records = WriteAheadLog.replay(segment, target);
+            LOG.info("Replayed " + records + " changes from " + segment.getName() + " in " + (DateTime.now().getMillis() - start.getMillis()) + "ms");
+        }
+    }
+
+    private static CorpusStore openSnapshot(String path, StorageEngine engine) {
+        try {
+            File file = DictionarySnapshot.locate(path);
+            if (file == null)
+                return null;
+            LOG.info("Mapping dictionary snapshot " + file.getAbsolutePath() + " into " + engine + " store");
+            DateTime start = DateTime.now();
+            CorpusStore store = engine.open(DictionarySnapshot.map(file));
+            LOG.debug("Dictionary snapshot mapped in " + (DateTime.now().getMillis() - start.getMillis()) + "ms");
+            return store;
+        } catch (IOException ex) {
+            LOG.warn("Could not map dictionary snapshot " + path + ", loading the dictionary file instead", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the current contents of the dictionary to a snapshot file that can be mapped at startup
+     * @param file where to write the snapshot
+     * @throws IOException if the file can't be written
+     */
+    public void writeSnapshot(@NotNull File file) throws IOException {
+        DictionarySnapshot.write(this, file);
+    }
+
+    /**
+     * Add a list of words to the dictionary if they do not already exist, subscribers get the changes as one batch
      * @param words the list to add
      */
     public void addWords(@NotNull Words words) { addWords(words.words); }
     public void addWords(@NotNull String[] words) {
-        for (String w : words)
-            addWord(w);
-        setChangedAndNotifyObservers();
+        DictionaryEventBus.Batch open = openBatch();
+        boolean changed = false;
+        try {
+            for (String w : words)
+                changed |= add(w);
+        } finally {
+            closeBatch(open);
+            if (changed)
+                sync();
+        }
     }
 
     /**
@@ -63,19 +161,49 @@ public class Dictionary extends Observable implements Iterable<Anagrams> {
      * @return true if the word was added, false if the word already exists
      */
     public boolean addWord(String word) {
-        if (!DataUtils.validCharacters(word))
+        boolean added = add(word);
+        if (added)
+            sync();
+        return added;
+    }
+
+    private boolean add(String word) {
+        if (word == null || word.isEmpty())
             throw new IllegalArgumentException(word + " is not a valid word");
+        checkLog();
         word = word.toLowerCase();
-        String key = DataUtils.createKeyFromWord(word);
-        Anagrams anagrams = corpus.get(key);
-        if (anagrams == null)
-            anagrams = new Anagrams();
-        else if (anagrams.getWords().contains(word))
-            return false;
-        anagrams.getWords().add(word);
-        corpus.put(key, anagrams);
-        setChangedAndNotifyObservers();
-        return true;
+        long start = Metrics.SIGNATURE.start();
+        long high = Signature.high(word);
+        long low = Signature.low(word);
+        Metrics.SIGNATURE.stop(start);
+        if (!Signature.isValid(high, low)) {
+            //the alphabet is only checked again to tell the two reasons apart
+            if (!DataUtils.validCharacters(word))
+                throw new IllegalArgumentException(word + " is not a valid word");
+            throw new IllegalArgumentException(word + " repeats a letter more than " + Signature.MAX_COUNT + " times");
+        }
+        return corpus.add(high, low, word);
+    }
+
+    /**
+     * Adds a batch of signed words, subscribers get the changes as one batch
+     * @param words the batch to add
+     * @return count of words that were not already in the dictionary
+     */
+    public int insert(@NotNull SignedWords words) {
+        checkLog();
+        DictionaryEventBus.Batch open = openBatch();
+        try {
+            int added = 0;
+            for (int i = 0; i < words.size(); i++)
+                if (corpus.add(words.high(i), words.low(i), words.word(i)))
+                    added++;
+            if (added > 0)
+                sync();
+            return added;
+        } finally {
+            closeBatch(open);
+        }
     }
 
     /**
@@ -84,11 +212,8 @@ public class Dictionary extends Observable implements Iterable<Anagrams> {
      * @return true if it exists
      */
     public boolean containsWord(String word) {
-        String key = DataUtils.createKeyFromWord(word);
-        Anagrams anagrams = corpus.get(key);
-        if (anagrams == null)
-            return false;
-        return anagrams.getWords().contains(word.toLowerCase());
+        word = word.toLowerCase();
+        return corpus.contains(Signature.high(word), Signature.low(word), word);
     }
 
     /**
@@ -100,16 +225,69 @@ public class Dictionary extends Observable implements Iterable<Anagrams> {
     public Anagrams getAnagrams(String word) { return getAnagrams(word, null); }
     public Anagrams getAnagrams(String word, Integer limit) {
         word = word.toLowerCase();
-        String key = DataUtils.createKeyFromWord(word);
-        List<String> words = corpus.getOrDefault(key, new Anagrams()).getWords();
+        long start = Metrics.SIGNATURE.start();
+        long high = Signature.high(word);
+        long low = Signature.low(word);
+        Metrics.SIGNATURE.stop(start);
+        Anagrams group = getGroup(high, low);
         //there may be a key for an anagram, but if it wasn't added to the word list return empty anagram wrapper
-        if (!words.contains(word))
+        if (group == null || !group.getWords().contains(word))
             return new Anagrams();
-        words.remove(word); //remove the word that was searched
-        words = (limit != null) ? words.stream().limit(limit).collect(Collectors.toList()) : words;
-        Anagrams anagrams = new Anagrams();
-        anagrams.setWords(words);
-        return anagrams;
+        return Anagrams.excluding(group.getWords(), word, limit); //leave out the word that was searched
+    }
+
+    /**
+     * Gets the anagrams of a batch of words.  Words are signed in parallel and each distinct signature is looked up
+     * once, so words that are anagrams of each other share one lookup
+     * @param words the words to search the anagrams dictionary for
+     * @param limit limits the number of results returned for each word
+     * @return anagrams of each distinct word in the order the words were given, empty for words not in the dictionary
+     */
+    public Map<String, Anagrams> getAnagrams(@NotNull List<String> words, Integer limit) {
+        int n = words.size();
+        String[] lower = new String[n];
+        long[] highs = new long[n];
+        long[] lows = new long[n];
+        SignatureMap<Anagrams> groups = new SignatureMap<>();
+        Anagrams none = new Anagrams();
+        IntStream.range(0, n).parallel().forEach(i -> {
+            String word = words.get(i);
+            if (word == null)
+                return;
+            lower[i] = word.toLowerCase();
+            highs[i] = Signature.high(lower[i]);
+            lows[i] = Signature.low(lower[i]);
+            if (Signature.isValid(highs[i], lows[i]))
+                groups.compute(highs[i], lows[i], g -> (g != null) ? g : lookup(highs[i], lows[i], none));
+        });
+
+        Map<String, Anagrams> result = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            if (lower[i] == null || result.containsKey(words.get(i)))
+                continue;
+            Anagrams group = groups.get(highs[i], lows[i]);
+            boolean found = group != null && group.getWords().contains(lower[i]);
+            result.put(words.get(i), found ? Anagrams.excluding(group.getWords(), lower[i], limit) : new Anagrams());
+        }
+        return result;
+    }
+
+    private Anagrams lookup(long high, long low, Anagrams none) {
+        Anagrams group = getGroup(high, low);
+        return (group != null) ? group : none;
+    }
+
+    /**
+     * Gets the group stored for a signature
+     * @param high high half of the signature
+     * @param low low half of the signature
+     * @return the group, null if no words have the signature
+     */
+    public Anagrams getGroup(long high, long low) {
+        long start = Metrics.CORPUS_LOOKUP.start();
+        Anagrams group = corpus.get(high, low);
+        Metrics.CORPUS_LOOKUP.stop(start);
+        return group;
     }
 
     /**
@@ -118,17 +296,13 @@ public class Dictionary extends Observable implements Iterable<Anagrams> {
      * @return true if the word was found in the dictionary and deleted
      */
     public boolean deleteWord(String word) {
-        String key = DataUtils.createKeyFromWord(word);
-        Anagrams anagrams = corpus.get(key);
-        if (anagrams == null)
-            return false;
+        checkLog();
         word = word.toLowerCase();
-        boolean removed = anagrams.getWords().remove(word);
+        long high = Signature.high(word);
+        long low = Signature.low(word);
+        boolean removed = corpus.remove(high, low, word);
         if (removed)
-            setChangedAndNotifyObservers();
-        if (anagrams.getWords().isEmpty())
-            corpus.remove(key);
-
+            sync();
         return removed;
     }
 
@@ -138,34 +312,208 @@ public class Dictionary extends Observable implements Iterable<Anagrams> {
      * @return the list of words deleted corresponding to the anagram
      */
     public Anagrams deleteAnagrams(String anagram) {
-        String key = DataUtils.createKeyFromWord(anagram);
-        Anagrams anagrams = corpus.remove(key);
+        checkLog();
+        anagram = anagram.toLowerCase();
+        Anagrams anagrams = corpus.removeGroup(Signature.high(anagram), Signature.low(anagram));
         if (anagrams == null)
             return new Anagrams();
-        setChangedAndNotifyObservers();
+        sync();
         return anagrams;
     }
 
     /**
-     * Gets groupings of anagram lists with size >= the size specified
+     * Gets groupings of anagram lists with size >= the size specified.  Groups of two or more words are looked up
+     * through the group size index, so only the groups returned are visited
      * @param size the minimum size of the groups to return
      * @return Anagram word groups with size >= size specified
      */
     public List<Anagrams> getAnagramGroupsBySize(int size) {
-        List<Anagrams> anagrams = corpus.values()
-                                .parallelStream()
-                                .filter(a -> a.getWords().size() >= size)
-                                //.flatMap(a -> a.getWords().stream())
-                                .collect(Collectors.toList());
+        return getAnagramGroupsBySize(size, SignatureFilter.ALL);
+    }
+
+    /**
+     * Gets the groups with size >= the size specified whose signature passes a filter
+     * @param size the minimum size of the groups to return
+     * @param filter which signatures to include
+     * @return Anagram word groups with size >= size specified
+     */
+    public List<Anagrams> getAnagramGroupsBySize(int size, @NotNull SignatureFilter filter) {
+        if (size < 2 && filter == SignatureFilter.ALL)
+            return corpus.groups().parallel().collect(Collectors.toList()); //every group matches
+        List<Anagrams> anagrams = new ArrayList<>();
+        forEachGroupBySize(size, filter, anagrams::add);
         return anagrams;
     }
 
+    /**
+     * Gets one page of the groups with size >= the size specified, ordered by signature.  The order doesn't depend on
+     * group sizes so a group that grows or shrinks between pages is neither skipped nor repeated because of it.
+     * Groups of two or more words are found through the size index, smaller sizes match every group and cost a scan
+     * @param size the minimum size of the groups to return
+     * @param cursor where to continue from, the next cursor of the previous page or null for the first page
+     * @param limit most groups on the page, 1 to {@link #MAX_PAGE_LIMIT}
+     * @return the page
+     */
+    public AnagramPage getAnagramGroupsBySize(int size, String cursor, int limit) {
+        return getAnagramGroupsBySize(size, cursor, limit, SignatureFilter.ALL);
+    }
+
+    /**
+     * Gets one page of the groups with size >= the size specified whose signature passes a filter, the filter is
+     * applied before paging so every page but the last is full
+     * @param size the minimum size of the groups to return
+     * @param cursor where to continue from, the next cursor of the previous page or null for the first page
+     * @param limit most groups on the page, 1 to {@link #MAX_PAGE_LIMIT}
+     * @param filter which signatures to include
+     * @return the page
+     */
+    public AnagramPage getAnagramGroupsBySize(int size, String cursor, int limit, @NotNull SignatureFilter filter) {
+        checkPageLimit(limit);
+        long[] after = AnagramPage.parseCursor(cursor);
+        //one extra to know whether there is a next page, never more than there are groups to pick from
+        SignatureHeap page = new SignatureHeap(Math.min(limit, statistics.groupCount()) + 1);
+        forEachSignatureBySize(size, (high, low) -> {
+            if ((after == null || SignatureHeap.compare(high, low, after[0], after[1]) > 0) && filter.accept(high, low))
+                page.offer(high, low);
+        });
+        boolean more = page.size() > limit;
+        long[] signatures = page.drain();
+        List<Anagrams> groups = new ArrayList<>(limit);
+        int n = Math.min(limit, signatures.length / 2);
+        for (int i = 0; i < n; i++) {
+            Anagrams group = corpus.get(signatures[2 * i], signatures[2 * i + 1]);
+            if (group != null && group.getWords().size() >= size)
+                groups.add(group);
+        }
+        String next = more ? AnagramPage.cursor(signatures[2 * n - 2], signatures[2 * n - 1]) : null;
+        return new AnagramPage(groups, next);
+    }
+
+    /**
+     * Checks the limit of a page of a size query
+     * @param limit most groups on the page
+     * @throws IllegalArgumentException if it isn't 1 to {@link #MAX_PAGE_LIMIT}
+     */
+    public static void checkPageLimit(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_LIMIT)
+            throw new IllegalArgumentException("limit must be 1 to " + MAX_PAGE_LIMIT);
+    }
+
+    /**
+     * Hands each group with size >= the size specified to an action without collecting them, the groups are read
+     * one at a time so memory use doesn't depend on how many match.  Weakly consistent with concurrent changes
+     * @param size the minimum size of the groups to visit
+     * @param action called with each group
+     */
+    public void forEachGroupBySize(int size, Consumer<Anagrams> action) {
+        forEachGroupBySize(size, SignatureFilter.ALL, action);
+    }
+
+    /**
+     * Hands each group with size >= the size specified whose signature passes a filter to an action
+     * @param size the minimum size of the groups to visit
+     * @param filter which signatures to include
+     * @param action called with each group
+     */
+    public void forEachGroupBySize(int size, @NotNull SignatureFilter filter, Consumer<Anagrams> action) {
+        if (size < 2) {
+            if (filter == SignatureFilter.ALL) {
+                corpus.groups().forEach(action);
+                return;
+            }
+            corpus.groups().forEach(group -> {
+                if (group.getWords().isEmpty())
+                    return;
+                String word = group.getWords().get(0);
+                if (filter.accept(Signature.high(word), Signature.low(word)))
+                    action.accept(group);
+            });
+            return;
+        }
+        for (int s : statistics.groupSizes(size)) {
+            long[] signatures = statistics.signaturesOfSize(s);
+            for (int i = 0; i < signatures.length; i += 2) {
+                if (!filter.accept(signatures[i], signatures[i + 1]))
+                    continue;
+                Anagrams group = corpus.get(signatures[i], signatures[i + 1]);
+                if (group != null && group.getWords().size() >= size)
+                    action.accept(group);
+            }
+        }
+    }
+
+    private interface SignatureVisitor {
+        void visit(long high, long low);
+    }
+
+    /**
+     * Selects groups by signature, e.g. the groups one node of a cluster answers for
+     */
+    public interface SignatureFilter {
+        /** Filter that accepts every signature */
+        SignatureFilter ALL = (high, low) -> true;
+
+        boolean accept(long high, long low);
+    }
+
+    private void forEachSignatureBySize(int size, SignatureVisitor visitor) {
+        if (size < 2) {
+            corpus.groups().forEach(group -> {
+                if (group.getWords().isEmpty())
+                    return;
+                String word = group.getWords().get(0);
+                visitor.visit(Signature.high(word), Signature.low(word));
+            });
+            return;
+        }
+        for (int s : statistics.groupSizes(size)) {
+            long[] signatures = statistics.signaturesOfSize(s);
+            for (int i = 0; i < signatures.length; i += 2)
+                visitor.visit(signatures[i], signatures[i + 1]);
+        }
+    }
+
+    /**
+     * Gets the largest anagram group(s), only the groups of that size are visited
+     * @return the largest groups, empty if the dictionary is empty
+     */
+    public List<Anagrams> getLargestGroups() {
+        int size = statistics.largestGroupSize();
+        if (size < 2)
+            return getAnagramGroupsBySize(size); //every group is a single word
+        long[] signatures = statistics.signaturesOfSize(size);
+        List<Anagrams> groups = new ArrayList<>(signatures.length / 2);
+        for (int i = 0; i < signatures.length; i += 2) {
+            Anagrams group = corpus.get(signatures[i], signatures[i + 1]);
+            if (group != null)
+                groups.add(group);
+        }
+        return groups;
+    }
+
+    /**
+     * Word and group counts, kept up to date on every change
+     * @return the statistics of this dictionary
+     */
+    public CorpusStats getStatistics() {
+        return statistics;
+    }
+
     /**
      * Don't do it!
+     * Subscribers get a single CLEARED event, a write that races the clear may be delivered either side of it
      */
     public void deleteAll() {
-        corpus.clear();
-        setChangedAndNotifyObservers();
+        checkLog();
+        DictionaryEventBus.Batch open = openBatch();
+        try {
+            corpus.clear();
+            if (open != null)
+                open.add(new DictionaryEvent(DictionaryEvent.Type.CLEARED, 0, 0, null, 0));
+        } finally {
+            closeBatch(open);
+        }
+        sync();
     }
 
     /**
@@ -182,15 +530,147 @@ public class Dictionary extends Observable implements Iterable<Anagrams> {
      */
     @Override
     public Iterator<Anagrams> iterator() {
-        return corpus.values().iterator();
+        return corpus.iterator();
+    }
+
+    /**
+     * Index of the dictionary's signatures by letter inventory, built on first use and kept up to date after that
+     * @return the letter index
+     */
+    public LetterIndex getLetterIndex() {
+        if (letterIndex == null) {
+            synchronized (this) {
+                if (letterIndex == null)
+                    letterIndex = new LetterIndex(this);
+            }
+        }
+        return letterIndex;
     }
 
     /**
-     * Calls necessary super class methods when the dictionary changes
+     * Changes made to the dictionary, delivered asynchronously
+     * @return the event bus of this dictionary
      */
-    private void setChangedAndNotifyObservers() {
-        super.setChanged();
-        super.notifyObservers();
+    public DictionaryEventBus getEvents() {
+        return events;
+    }
+
+    /**
+     * Adds a listener that is told about every change on the writing thread while the group is still locked, so a
+     * read of the group that starts after the call sees the change.  Meant for caches that must never serve a stale
+     * group, anything else should subscribe to {@link #getEvents()}
+     * @param listener the listener, must be quick and must not change the dictionary
+     */
+    public void addGroupListener(@NotNull GroupListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Waits until the changes made so far are in the write-ahead log, if there is one
+     */
+    private void sync() {
+        WriteAheadLog log = wal;
+        if (log != null)
+            log.sync();
+    }
+
+    /**
+     * Refuses a change before it is made once the write-ahead log has failed, the log would drop its records so the
+     * change would only ever be in memory
+     */
+    private void checkLog() {
+        WriteAheadLog log = wal;
+        if (log != null)
+            log.checkHealthy();
+    }
+
+    /**
+     * Stops the event dispatcher and writes out the rest of the write-ahead log, called by Spring on shutdown and when
+     * a named dictionary is unloaded
+     * @throws IOException if the log can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        events.close();
+        WriteAheadLog log = wal;
+        wal = null;
+        if (log != null)
+            log.close();
+    }
+
+    /**
+     * Starts collecting the changes made by this thread into one batch
+     * @return the batch, null if nobody is subscribed
+     */
+    DictionaryEventBus.Batch openBatch() {
+        if (batch.get() != null || !events.hasSubscribers())
+            return null;
+        DictionaryEventBus.Batch open = events.open();
+        batch.set(open);
+        return open;
+    }
+
+    void closeBatch(DictionaryEventBus.Batch open) {
+        if (open == null)
+            return;
+        batch.remove();
+        open.close();
+    }
+
+    /**
+     * Feeds every change to the statistics and the event bus, runs on the writing thread while the group is locked
+     */
+    private final class ChangeListener implements GroupListener {
+        @Override
+        public void wordAdded(long high, long low, String word, int size) {
+            statistics.wordAdded(high, low, word, size);
+            WriteAheadLog log = wal;
+            if (log != null)
+                log.append(WriteAheadLog.ADD, high, low, word);
+            for (GroupListener l : listeners)
+                l.wordAdded(high, low, word, size);
+            publish(DictionaryEvent.Type.WORD_ADDED, high, low, word, size);
+        }
+
+        @Override
+        public void wordRemoved(long high, long low, String word, int size) {
+            statistics.wordRemoved(high, low, word, size);
+            WriteAheadLog log = wal;
+            if (log != null)
+                log.append(WriteAheadLog.REMOVE, high, low, word);
+            for (GroupListener l : listeners)
+                l.wordRemoved(high, low, word, size);
+            publish(DictionaryEvent.Type.WORD_REMOVED, high, low, word, size);
+        }
+
+        @Override
+        public void groupRemoved(long high, long low, int size) {
+            statistics.groupRemoved(high, low, size);
+            WriteAheadLog log = wal;
+            if (log != null)
+                log.appendRemoveGroup(high, low);
+            for (GroupListener l : listeners)
+                l.groupRemoved(high, low, size);
+            publish(DictionaryEvent.Type.GROUP_REMOVED, high, low, null, size);
+        }
+
+        @Override
+        public void groupCleared(long high, long low, int size) {
+            statistics.groupRemoved(high, low, size); //deleteAll publishes a single CLEARED event instead
+            WriteAheadLog log = wal;
+            if (log != null)
+                log.appendRemoveGroup(high, low); //one record per group keeps the log in step with racing writes
+            for (GroupListener l : listeners)
+                l.groupCleared(high, low, size);
+        }
+
+        private void publish(DictionaryEvent.Type type, long high, long low, String word, int size) {
+            DictionaryEventBus.Batch open = batch.get();
+            if (open != null)
+                open.add(new DictionaryEvent(type, high, low, word, size));
+            else if (events.hasSubscribers())
+                events.publish(new DictionaryEvent(type, high, low, word, size));
+        }
     }
 
 }
@@ -0,0 +1,51 @@
+package com.ibotta.dao;
+
+/**
+ * A single change to a dictionary, delivered to subscribers of its {@link DictionaryEventBus}
+ */
+public final class DictionaryEvent {
+
+    public enum Type {
+        /** A word was added to its group */
+        WORD_ADDED,
+        /** A word was removed from its group */
+        WORD_REMOVED,
+        /** A whole group was removed */
+        GROUP_REMOVED,
+        /** Every group was removed */
+        CLEARED
+    }
+
+    private final Type type;
+    private final long high;
+    private final long low;
+    private final String word;
+    private final int size;
+
+    DictionaryEvent(Type type, long high, long low, String word, int size) {
+        this.type = type;
+        this.high = high;
+        this.low = low;
+        this.word = word;
+        this.size = size;
+    }
+
+    public Type getType() { return type; }
+
+    /** High half of the signature of the changed group, 0 for CLEARED */
+    public long getHigh() { return high; }
+
+    /** Low half of the signature of the changed group, 0 for CLEARED */
+    public long getLow() { return low; }
+
+    /** The word added or removed, null for GROUP_REMOVED and CLEARED */
+    public String getWord() { return word; }
+
+    /** Words in the group after the change, or the words it held for GROUP_REMOVED */
+    public int getSize() { return size; }
+
+    @Override
+    public String toString() {
+        return type + ((word != null) ? " " + word : "") + " (" + size + ")";
+    }
+}
@@ -0,0 +1,217 @@
+package com.ibotta.dao;
+
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Delivers the changes made to a dictionary to subscribers such as caches and persistence, off the writing thread.
+ *
+ * Writers only append to a lock-free queue and never wait for a subscriber.  A single dispatcher thread drains the
+ * queue and hands each subscriber the pending events as one list, in the order they were published.
+ * A {@link Batch} reserves its place in the queue when it is opened, so events added to it later still come out
+ * ahead of anything published after it was opened; the dispatcher holds back at an open batch until it is closed.
+ */
+public class DictionaryEventBus {
+
+    private final static Logger LOG = Logger.getLogger(DictionaryEventBus.class);
+
+    private static final int MAX_DELIVERY = 8192;
+
+    /**
+     * Events published together and delivered in one list, close it once every event is added
+     */
+    public final class Batch implements AutoCloseable {
+        private final List<DictionaryEvent> events = new ArrayList<>();
+        private volatile boolean closed;
+
+        /**
+         * Adds an event, only from the thread that opened the batch
+         * @param event the event
+         */
+        public void add(DictionaryEvent event) {
+            if (closed)
+                throw new IllegalStateException("Batch is closed");
+            events.add(event);
+        }
+
+        @Override
+        public void close() {
+            if (closed)
+                return;
+            closed = true;
+            schedule();
+        }
+    }
+
+    private final ConcurrentLinkedQueue<Batch> queue = new ConcurrentLinkedQueue<>();
+    private final CopyOnWriteArrayList<Consumer<List<DictionaryEvent>>> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Object progress = new Object();
+    private final AtomicLong published = new AtomicLong();
+    private long delivered;
+    private volatile ExecutorService dispatcher;
+    private volatile boolean closed;
+
+    /**
+     * Adds a subscriber, it receives the events published from now on
+     * @param subscriber receives each list of events, on the dispatcher thread
+     */
+    public void subscribe(Consumer<List<DictionaryEvent>> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * Removes a subscriber, it may still receive a list that is already being delivered
+     * @param subscriber the subscriber to remove
+     */
+    public void unsubscribe(Consumer<List<DictionaryEvent>> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * Check whether anyone is listening, publishing is skipped when nobody is
+     * @return true if there are subscribers
+     */
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    /**
+     * Publishes a single event
+     * @param event the event
+     */
+    public void publish(DictionaryEvent event) {
+        if (!hasSubscribers())
+            return;
+        Batch batch = open();
+        batch.add(event);
+        batch.close();
+    }
+
+    /**
+     * Opens a batch, its events are delivered together once it is closed
+     * @return the open batch
+     */
+    public Batch open() {
+        Batch batch = new Batch();
+        published.incrementAndGet();
+        queue.add(batch);
+        return batch;
+    }
+
+    /**
+     * Waits until every batch published or opened before the call has been delivered
+     * @param timeout how long to wait at most
+     * @param unit unit of the timeout
+     * @return true if everything was delivered in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (progress) {
+            long target = published.get();
+            while (delivered < target) {
+                long wait = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (wait <= 0)
+                    return false;
+                progress.wait(wait);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops the dispatcher thread once it has delivered what is already queued, events published afterwards are
+     * dropped
+     */
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            if (dispatcher != null)
+                dispatcher.shutdown();
+        }
+    }
+
+    private void schedule() {
+        if (!scheduled.compareAndSet(false, true))
+            return;
+        ExecutorService dispatcher = dispatcher();
+        try {
+            if (dispatcher != null) {
+                dispatcher.execute(this::drain);
+                return;
+            }
+        } catch (RejectedExecutionException ex) {
+            //closed meanwhile
+        }
+        scheduled.set(false);
+        LOG.debug("Event bus is closed, dropping events");
+    }
+
+    private ExecutorService dispatcher() {
+        if (dispatcher == null) {
+            synchronized (this) {
+                if (closed)
+                    return null;
+                if (dispatcher == null)
+                    dispatcher = Executors.newSingleThreadExecutor(r -> {
+                        Thread t = new Thread(r, "dictionary-events");
+                        t.setDaemon(true);
+                        return t;
+                    });
+            }
+        }
+        return dispatcher;
+    }
+
+    private void drain() {
+        while (true) {
+            List<DictionaryEvent> events = new ArrayList<>();
+            int batches = 0;
+            Batch head;
+            while ((head = queue.peek()) != null && head.closed && events.size() < MAX_DELIVERY) {
+                queue.poll();
+                events.addAll(head.events);
+                batches++;
+            }
+            if (batches > 0) {
+                deliver(events);
+                synchronized (progress) {
+                    delivered += batches;
+                    progress.notifyAll();
+                }
+                continue;
+            }
+            scheduled.set(false);
+            //a batch may have closed after the check above, only stop if nobody else will pick it up
+            head = queue.peek();
+            if (head == null || !head.closed || !scheduled.compareAndSet(false, true))
+                return;
+        }
+    }
+
+    private void deliver(List<DictionaryEvent> events) {
+        if (events.isEmpty())
+            return;
+        List<DictionaryEvent> view = Collections.unmodifiableList(events);
+        for (Consumer<List<DictionaryEvent>> subscriber : subscribers) {
+            try {
+                subscriber.accept(view);
+            } catch (RuntimeException ex) {
+                LOG.error("Dictionary event subscriber failed on " + events.size() + " events", ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.ibotta.dao;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.ibotta.metrics.Metrics;
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.springframework.core.io.ClassPathResource;
+
+import javax.validation.constraints.NotNull;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streams a word list (plain text or gzipped, one word per line, or a JSON array of words) into a Dictionary.
+ *
+ * Lines are read in chunks and each chunk is validated and signed on a fork-join pool while the next chunk is read.
+ * Signed chunks are merged into the dictionary in order on the calling thread.  A load into a Dictionary reaches event
+ * subscribers as one batch, a load into another target as one batch per chunk.
+ * The loader holds no state between loads and can be reused, e.g. to reload a running dictionary.
+ */
+public class DictionaryLoader {
+
+    private final static Logger LOG = Logger.getLogger(DictionaryLoader.class);
+
+    private static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    /**
+     * Loader that signs words on the common fork-join pool
+     */
+    public DictionaryLoader() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param pool pool that validates and signs the chunks
+     * @param chunkSize number of lines handed to each task
+     */
+    public DictionaryLoader(@NotNull ForkJoinPool pool, int chunkSize) {
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("chunkSize must be positive");
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Where the signed chunks go, a dictionary or something that forwards them to one
+     */
+    public interface Target {
+        /**
+         * Adds a chunk of signed words, called for one chunk at a time in the order they were read
+         * @param words the chunk
+         * @return count of words that were not already there
+         * @throws IOException if the words could not be added
+         */
+        int insert(SignedWords words) throws IOException;
+    }
+
+    /**
+     * Summary of a load
+     */
+    public static class Result {
+        private long read;
+        private long added;
+        private long rejected;
+        private long millis;
+
+        /** Lines read from the source */
+        public long getRead() { return read; }
+
+        /** Words that were not already in the dictionary */
+        public long getAdded() { return added; }
+
+        /** Lines that were not valid words */
+        public long getRejected() { return rejected; }
+
+        /** Valid words that were already in the dictionary */
+        public long getDuplicates() { return read - added - rejected; }
+
+        /** Time taken by the load */
+        public long getMillis() { return millis; }
+
+        /** Lines read per second */
+        public long getWordsPerSecond() {
+            return read * 1000 / Math.max(1, millis);
+        }
+
+        @Override
+        public String toString() {
+            return read + " words (" + added + " new, " + getDuplicates() + " duplicate, " + rejected + " rejected) in " + millis + "ms, " + getWordsPerSecond() + " words/sec";
+        }
+    }
+
+    /**
+     * Loads a word list from the file system, or from the classpath if there is no such file.
+     * Gzipped lists are detected from their content, not their name.
+     * @param dictionary where to add the words
+     * @param path file or classpath resource to load
+     * @return summary of the load
+     * @throws IOException if the list cannot be read
+     */
+    public Result load(@NotNull Dictionary dictionary, @NotNull String path) throws IOException {
+        File file = new File(path);
+        if (!file.isFile()) {
+            ClassPathResource res = new ClassPathResource(path);
+            if (!res.exists())
+                throw new IOException("Dictionary file " + path + " not found");
+            try {
+                file = res.getFile();
+            } catch (IOException ex) {
+                //packed inside an archive, stream the resource instead
+                LOG.info("Loading dictionary resource " + res.getPath());
+                try (InputStream in = res.getInputStream()) {
+                    return load(dictionary, in);
+                }
+            }
+        }
+        LOG.info("Loading dictionary file " + file.getAbsolutePath());
+        try (InputStream in = FileUtils.openInputStream(file)) {
+            return load(dictionary, in);
+        }
+    }
+
+    /**
+     * Loads a word list from a stream, the stream is not closed
+     * @param dictionary where to add the words
+     * @param in plain or gzipped word list
+     * @return summary of the load
+     * @throws IOException if the list cannot be read
+     */
+    public Result load(@NotNull Dictionary dictionary, @NotNull InputStream in) throws IOException {
+        return load(dictionary, in, Charset.defaultCharset());
+    }
+
+    /**
+     * Loads a word list from a stream, the stream is not closed
+     * @param dictionary where to add the words
+     * @param in plain or gzipped word list
+     * @param charset encoding of the list
+     * @return summary of the load
+     * @throws IOException if the list cannot be read
+     */
+    public Result load(@NotNull Dictionary dictionary, @NotNull InputStream in, @NotNull Charset charset) throws IOException {
+        return inOneBatch(dictionary, () -> load(dictionary::insert, in, charset));
+    }
+
+    /**
+     * Loads a word list from a stream into a target, the stream is not closed
+     * @param target where to add the words
+     * @param in plain or gzipped word list
+     * @param charset encoding of the list
+     * @return summary of the load
+     * @throws IOException if the list cannot be read or the target fails
+     */
+    public Result load(@NotNull Target target, @NotNull InputStream in, @NotNull Charset charset) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(decompress(in), charset));
+        return load(target, reader::readLine);
+    }
+
+    /**
+     * Loads the words of a JSON array, or of the "words" array of a JSON object like the body of POST /words.json.
+     * The JSON is parsed as it is read so the whole array is never held in memory, the stream is not closed
+     * @param dictionary where to add the words
+     * @param in plain or gzipped JSON
+     * @return summary of the load
+     * @throws IOException if the JSON cannot be read or is not a list of words
+     */
+    public Result loadJson(@NotNull Dictionary dictionary, @NotNull InputStream in) throws IOException {
+        return inOneBatch(dictionary, () -> loadJson(dictionary::insert, in));
+    }
+
+    /**
+     * Loads the words of a JSON array or of the "words" array of a JSON object into a target, the stream is not closed
+     * @param target where to add the words
+     * @param in plain or gzipped JSON
+     * @return summary of the load
+     * @throws IOException if the JSON cannot be read, is not a list of words or the target fails
+     */
+    public Result loadJson(@NotNull Target target, @NotNull InputStream in) throws IOException {
+        JsonParser parser = JSON.createParser(decompress(in));
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_OBJECT) {
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                token = parser.nextToken();
+                if ("words".equals(parser.getCurrentName()) && token == JsonToken.START_ARRAY)
+                    break;
+                parser.skipChildren();
+            }
+        }
+        if (token != JsonToken.START_ARRAY)
+            throw new JsonParseException(parser, "Expected an array of words");
+        return load(target, () -> {
+            JsonToken next = parser.nextToken();
+            if (next == JsonToken.END_ARRAY || next == null)
+                return null;
+            if (next != JsonToken.VALUE_STRING)
+                throw new JsonParseException(parser, "Expected a word but got " + next);
+            return parser.getText();
+        });
+    }
+
+    /**
+     * A load into a dictionary, see {@link #inOneBatch(Dictionary, Load)}
+     */
+    private interface Load {
+        Result run() throws IOException;
+    }
+
+    /**
+     * Runs a load as one batch for the dictionary's subscribers.  Batches belong to the thread and every chunk is merged
+     * on the calling thread, so each chunk's insert joins the batch instead of opening its own
+     */
+    private static Result inOneBatch(Dictionary dictionary, Load load) throws IOException {
+        DictionaryEventBus.Batch open = dictionary.openBatch();
+        try {
+            return load.run();
+        } finally {
+            dictionary.closeBatch(open);
+        }
+    }
+
+    /**
+     * Source of the words of a list, one at a time
+     */
+    private interface WordReader {
+        /** @return the next word, null at the end of the list */
+        String next() throws IOException;
+    }
+
+    private Result load(Target target, WordReader words) throws IOException {
+        long start = System.nanoTime();
+        Result result = new Result();
+        Deque<ForkJoinTask<SignedWords>> pending = new ArrayDeque<>();
+        int maxPending = pool.getParallelism() * 2;
+
+        String[] chunk = new String[chunkSize];
+        int n = 0;
+        String word;
+        while ((word = words.next()) != null) {
+            chunk[n++] = word;
+            if (n < chunkSize)
+                continue;
+            pending.add(pool.submit(sign(chunk, n)));
+            chunk = new String[chunkSize];
+            n = 0;
+            if (pending.size() >= maxPending)
+                merge(target, pending.poll(), result);
+        }
+        if (n > 0)
+            pending.add(pool.submit(sign(chunk, n)));
+        while (!pending.isEmpty())
+            merge(target, pending.poll(), result);
+
+        Metrics.DICTIONARY_LOAD.stop(start);
+        result.millis = (System.nanoTime() - start) / 1000000;
+        LOG.info("Loaded " + result);
+        return result;
+    }
+
+    private static ForkJoinTask<SignedWords> sign(String[] lines, int count) {
+        return ForkJoinTask.adapt(() -> {
+            SignedWords signed = new SignedWords(count);
+            for (int i = 0; i < count; i++)
+                signed.add(lines[i]);
+            return signed;
+        });
+    }
+
+    private static void merge(Target target, ForkJoinTask<SignedWords> task, Result result) throws IOException {
+        SignedWords signed;
+        try {
+            signed = task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading dictionary", ex);
+        } catch (ExecutionException ex) {
+            throw new IOException("Failed to sign dictionary words", ex.getCause());
+        }
+        result.read += signed.size() + signed.getRejected();
+        result.rejected += signed.getRejected();
+        result.added += target.insert(signed);
+    }
+
+    private static InputStream decompress(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, 1 << 16);
+        buffered.mark(2);
+        int magic = buffered.read() | (buffered.read() << 8);
+        buffered.reset();
+        return (magic == GZIPInputStream.GZIP_MAGIC) ? new GZIPInputStream(buffered, 1 << 16) : buffered;
+    }
+}
@@ -0,0 +1,337 @@
+package com.ibotta.dao;
+
+import org.apache.log4j.Logger;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prebuilt binary image of a dictionary that can be memory mapped at startup instead of parsing the word list.
+ *
+ * Layout (big endian):
+ * <pre>
+ * header   long magic, int version, int segment count, long group count, long word count,
+ *          16 bytes name of the alphabet the signatures were made with (ASCII, zero padded)
+ * sections one per segment: long index offset, int slots, int groups, long arena offset, long arena length
+ * index    per segment, open addressing slots of [long high][long low][long record address]
+ * arena    per segment, packed group records of [int word count][short word length][word bytes]
+ * </pre>
+ * Segments, slots and records use exactly the layout of {@link OffHeapCorpusStore} so the off heap engine
+ * serves from the mapped file directly; the heap engine copies the groups out of it.  A snapshot is only mapped
+ * under the alphabet it was built with, its signatures and the words it kept depend on it.
+ */
+public class DictionarySnapshot {
+
+    private final static Logger LOG = Logger.getLogger(DictionarySnapshot.class);
+
+    static final long MAGIC = 0x414E414752414D53L; //ANAGRAMS
+    static final int VERSION = 2;
+    private static final int HEADER_BYTES = 48;
+    private static final int ALPHABET_BYTES = 16;
+    private static final int SECTION_BYTES = 32;
+
+    /**
+     * Index and arena of one segment, both mapped read only
+     */
+    static final class Section {
+        final ByteBuffer index;
+        final int slots;
+        final int size;
+        final ByteBuffer arena;
+
+        Section(ByteBuffer index, int slots, int size, ByteBuffer arena) {
+            this.index = index;
+            this.slots = slots;
+            this.size = size;
+            this.arena = arena;
+        }
+    }
+
+    /**
+     * Group waiting to be written, with the index slot it was given
+     */
+    private static final class Entry {
+        final long high;
+        final long low;
+        final List<String> words;
+        int slot;
+
+        Entry(long high, long low, List<String> words) {
+            this.high = high;
+            this.low = low;
+            this.words = words;
+        }
+    }
+
+    private final File file;
+    private final Section[] sections;
+    private final long groupCount;
+    private final long wordCount;
+    private final String alphabet;
+
+    private DictionarySnapshot(File file, Section[] sections, long groupCount, long wordCount, String alphabet) {
+        this.file = file;
+        this.sections = sections;
+        this.groupCount = groupCount;
+        this.wordCount = wordCount;
+        this.alphabet = alphabet;
+    }
+
+    /**
+     * Memory maps a snapshot file
+     * @param file the snapshot to map
+     * @return the mapped snapshot
+     * @throws IOException if the file can't be read, isn't a snapshot or was built with another alphabet
+     */
+    public static DictionarySnapshot map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            int segments = OffHeapCorpusStore.SEGMENTS;
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES + segments * SECTION_BYTES);
+            if (header.getLong(0) != MAGIC)
+                throw new IOException(file + " is not a dictionary snapshot");
+            if (header.getInt(8) != VERSION)
+                throw new IOException(file + " has unsupported snapshot version " + header.getInt(8));
+            if (header.getInt(12) != segments)
+                throw new IOException(file + " has " + header.getInt(12) + " segments, expected " + segments);
+            String alphabet = readAlphabet(header);
+            if (!alphabet.equals(Alphabet.active().getName()))
+                throw new IOException(file + " was built with the " + alphabet + " alphabet, " + Alphabet.active() + " is in use");
+
+            Section[] sections = new Section[segments];
+            for (int i = 0; i < segments; i++) {
+                int offset = HEADER_BYTES + i * SECTION_BYTES;
+                long indexOffset = header.getLong(offset);
+                int slots = header.getInt(offset + 8);
+                int size = header.getInt(offset + 12);
+                long arenaOffset = header.getLong(offset + 16);
+                long arenaLength = header.getLong(offset + 24);
+                ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, (long) slots * OffHeapCorpusStore.SLOT_BYTES);
+                ByteBuffer arena = channel.map(FileChannel.MapMode.READ_ONLY, arenaOffset, arenaLength);
+                sections[i] = new Section(index, slots, size, arena);
+            }
+            return new DictionarySnapshot(file, sections, header.getLong(16), header.getLong(24), alphabet);
+        }
+    }
+
+    /**
+     * Reads the name of the alphabet a snapshot was built with, without mapping it
+     * @param file the snapshot
+     * @return the alphabet name, null if the file isn't a snapshot of the current version
+     * @throws IOException if the file can't be read
+     */
+    public static String alphabetOf(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining())
+                if (channel.read(header) < 0)
+                    return null;
+            if (header.getLong(0) != MAGIC || header.getInt(8) != VERSION)
+                return null;
+            return readAlphabet(header);
+        }
+    }
+
+    private static String readAlphabet(ByteBuffer header) {
+        StringBuilder name = new StringBuilder();
+        for (int i = 32; i < 32 + ALPHABET_BYTES && header.get(i) != 0; i++)
+            name.append((char) header.get(i));
+        return name.toString();
+    }
+
+    /**
+     * Finds the snapshot named in the config, first on the file system then on the classpath.
+     * A classpath resource packed inside an archive is extracted to a temp file so it can be mapped.
+     * @param path configured snapshot path, may be null
+     * @return the snapshot file, null if there is none
+     * @throws IOException if the resource can't be extracted
+     */
+    public static File locate(String path) throws IOException {
+        if (path == null || path.isEmpty())
+            return null;
+        File file = new File(path);
+        if (file.isFile())
+            return file;
+        ClassPathResource res = new ClassPathResource(path);
+        if (!res.exists())
+            return null;
+        try {
+            return res.getFile();
+        } catch (IOException ex) {
+            Path temp = Files.createTempFile("dictionary", ".snapshot");
+            temp.toFile().deleteOnExit();
+            try (InputStream in = res.getInputStream()) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return temp.toFile();
+        }
+    }
+
+    /**
+     * Writes every group of a dictionary or store to a snapshot file, replacing any existing file
+     * @param groups the groups to write
+     * @param file where to write the snapshot
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Iterable<Anagrams> groups, File file) throws IOException {
+        int segments = OffHeapCorpusStore.SEGMENTS;
+        List<List<Entry>> buckets = new ArrayList<>(segments);
+        for (int i = 0; i < segments; i++)
+            buckets.add(new ArrayList<>());
+
+        long groupCount = 0;
+        long wordCount = 0;
+        for (Anagrams anagrams : groups) {
+            List<String> words = anagrams.getWords();
+            if (words.isEmpty())
+                continue;
+            String first = words.get(0);
+            long high = Signature.high(first);
+            long low = Signature.low(first);
+            buckets.get(OffHeapCorpusStore.segmentOf(Signature.hash(high, low))).add(new Entry(high, low, words));
+            groupCount++;
+            wordCount += words.size();
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + segments * SECTION_BYTES);
+        header.putLong(MAGIC).putInt(VERSION).putInt(segments).putLong(groupCount).putLong(wordCount);
+        String alphabet = Alphabet.active().getName();
+        if (alphabet.length() > ALPHABET_BYTES)
+            throw new IllegalStateException("Alphabet name " + alphabet + " is longer than " + ALPHABET_BYTES + " characters");
+        for (int i = 0; i < ALPHABET_BYTES; i++)
+            header.put((byte) ((i < alphabet.length()) ? alphabet.charAt(i) : 0));
+        ByteBuffer[] indexes = new ByteBuffer[segments];
+        ByteBuffer[] arenas = new ByteBuffer[segments];
+        long offset = header.capacity();
+        for (int i = 0; i < segments; i++) {
+            List<Entry> bucket = buckets.get(i);
+            int slots = OffHeapCorpusStore.INITIAL_SLOTS;
+            while (bucket.size() > (slots >> 1))
+                slots <<= 1;
+            indexes[i] = buildIndex(bucket, slots);
+            arenas[i] = buildArena(bucket, indexes[i]);
+            header.putLong(offset).putInt(slots).putInt(bucket.size());
+            offset += indexes[i].capacity();
+            header.putLong(offset).putLong(arenas[i].capacity());
+            offset += arenas[i].capacity();
+        }
+        header.flip();
+
+        Path temp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp").toPath();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header);
+            for (int i = 0; i < segments; i++) {
+                writeFully(channel, indexes[i]);
+                writeFully(channel, arenas[i]);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        LOG.info("Wrote snapshot of " + wordCount + " words in " + groupCount + " groups to " + file.getAbsolutePath());
+    }
+
+    /**
+     * Visits each group in the snapshot along with its signature
+     * @param visitor receives the signature and the words of each group
+     */
+    public void forEachGroup(SignatureMap.Visitor<List<String>> visitor) {
+        for (Section section : sections) {
+            for (int slot = 0; slot < section.slots; slot++) {
+                int offset = slot * OffHeapCorpusStore.SLOT_BYTES;
+                long address = section.index.getLong(offset + 16);
+                if (address == 0)
+                    continue;
+                visitor.visit(section.index.getLong(offset), section.index.getLong(offset + 8), readGroup(section.arena, (int) address));
+            }
+        }
+    }
+
+    Section section(int i) {
+        return sections[i];
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getGroupCount() {
+        return groupCount;
+    }
+
+    public long getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * Name of the alphabet the snapshot was built with
+     * @return the alphabet name
+     */
+    public String getAlphabet() {
+        return alphabet;
+    }
+
+    private static ByteBuffer buildIndex(List<Entry> bucket, int slots) {
+        ByteBuffer index = ByteBuffer.allocate(slots * OffHeapCorpusStore.SLOT_BYTES);
+        int mask = slots - 1;
+        for (Entry entry : bucket) {
+            int slot = (int) Signature.hash(entry.high, entry.low) & mask;
+            while (index.getLong(slot * OffHeapCorpusStore.SLOT_BYTES + 16) != 0)
+                slot = (slot + 1) & mask;
+            int offset = slot * OffHeapCorpusStore.SLOT_BYTES;
+            index.putLong(offset, entry.high);
+            index.putLong(offset + 8, entry.low);
+            index.putLong(offset + 16, -1); //placeholder, filled in once the record is written
+            entry.slot = slot;
+        }
+        return index;
+    }
+
+    private static ByteBuffer buildArena(List<Entry> bucket, ByteBuffer index) {
+        long bytes = 0;
+        for (Entry entry : bucket)
+            bytes += OffHeapCorpusStore.HEADER_BYTES + (long) entry.words.size() * entry.words.get(0).length();
+        if (bytes > Integer.MAX_VALUE)
+            throw new IllegalStateException("Snapshot segment larger than 2GB");
+        ByteBuffer arena = ByteBuffer.allocate((int) bytes);
+        for (Entry entry : bucket) {
+            int length = entry.words.get(0).length();
+            int pos = arena.position();
+            arena.putInt(entry.words.size()).putShort((short) length);
+            for (String w : entry.words)
+                for (int j = 0; j < length; j++)
+                    arena.put((byte) w.charAt(j));
+            index.putLong(entry.slot * OffHeapCorpusStore.SLOT_BYTES + 16, OffHeapCorpusStore.address(pos));
+        }
+        arena.flip();
+        return arena;
+    }
+
+    private static List<String> readGroup(ByteBuffer arena, int pos) {
+        int count = arena.getInt(pos);
+        int length = arena.getShort(pos + 4) & 0xFFFF;
+        List<String> words = new ArrayList<>(count);
+        char[] chars = new char[length];
+        int p = pos + OffHeapCorpusStore.HEADER_BYTES;
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < length; j++)
+                chars[j] = (char) (arena.get(p++) & 0xFF);
+            words.add(new String(chars));
+        }
+        return words;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.rewind();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+}
@@ -0,0 +1,48 @@
+package com.ibotta.dao;
+
+/**
+ * Told about every change to a group.
+ * Stores call it while the group is still locked, so the changes to any one group arrive in the order they happened.
+ * It must be quick and must not call back into the store.
+ */
+public interface GroupListener {
+
+    /** Listener that ignores every change */
+    GroupListener NONE = new GroupListener() { };
+
+    /**
+     * A word was added to a group
+     * @param high high half of the group signature
+     * @param low low half of the group signature
+     * @param word the word added
+     * @param size words in the group after the change, 1 if the group is new
+     */
+    default void wordAdded(long high, long low, String word, int size) { }
+
+    /**
+     * A word was removed from a group
+     * @param high high half of the group signature
+     * @param low low half of the group signature
+     * @param word the word removed
+     * @param size words in the group after the change, 0 if the group is gone
+     */
+    default void wordRemoved(long high, long low, String word, int size) { }
+
+    /**
+     * A whole group was removed
+     * @param high high half of the group signature
+     * @param low low half of the group signature
+     * @param size words the group held
+     */
+    default void groupRemoved(long high, long low, int size) { }
+
+    /**
+     * A group was removed by clearing the store, same as {@link #groupRemoved(long, long, int)} unless overridden
+     * @param high high half of the group signature
+     * @param low low half of the group signature
+     * @param size words the group held
+     */
+    default void groupCleared(long high, long low, int size) {
+        groupRemoved(high, low, size);
+    }
+}
@@ -0,0 +1,128 @@
+package com.ibotta.dao;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Keeps each anagram group as an immutable String[] in a {@link SignatureMap}.
+ *
+ * Groups are copy-on-write: a change builds a new array and swaps it in with an atomic compute on the map,
+ * so readers never lock and a group handed out by {@link #get(long, long)} never changes underneath them.
+ */
+public class HeapCorpusStore implements CorpusStore {
+
+    private final SignatureMap<String[]> corpus = new SignatureMap<>();
+    private volatile GroupListener listener = GroupListener.NONE;
+
+    @Override
+    public Anagrams get(long high, long low) {
+        String[] group = corpus.get(high, low);
+        return (group != null) ? Anagrams.of(group) : null;
+    }
+
+    @Override
+    public boolean contains(long high, long low, String word) {
+        String[] group = corpus.get(high, low);
+        return group != null && indexOf(group, word) >= 0;
+    }
+
+    @Override
+    public boolean add(long high, long low, String word) {
+        boolean[] added = new boolean[1];
+        corpus.compute(high, low, group -> {
+            if (group == null) {
+                added[0] = true;
+                listener.wordAdded(high, low, word, 1);
+                return new String[] { word };
+            }
+            if (indexOf(group, word) >= 0)
+                return group;
+            String[] grown = Arrays.copyOf(group, group.length + 1);
+            grown[group.length] = word;
+            added[0] = true;
+            listener.wordAdded(high, low, word, grown.length);
+            return grown;
+        });
+        return added[0];
+    }
+
+    @Override
+    public boolean remove(long high, long low, String word) {
+        boolean[] removed = new boolean[1];
+        corpus.compute(high, low, group -> {
+            int i = (group != null) ? indexOf(group, word) : -1;
+            if (i < 0)
+                return group;
+            removed[0] = true;
+            listener.wordRemoved(high, low, word, group.length - 1);
+            if (group.length == 1)
+                return null;
+            String[] shrunk = new String[group.length - 1];
+            System.arraycopy(group, 0, shrunk, 0, i);
+            System.arraycopy(group, i + 1, shrunk, i, shrunk.length - i);
+            return shrunk;
+        });
+        return removed[0];
+    }
+
+    @Override
+    public Anagrams removeGroup(long high, long low) {
+        String[][] removed = new String[1][];
+        corpus.compute(high, low, group -> {
+            if (group != null)
+                listener.groupRemoved(high, low, group.length);
+            removed[0] = group;
+            return null;
+        });
+        return (removed[0] != null) ? Anagrams.of(removed[0]) : null;
+    }
+
+    @Override
+    public Stream<Anagrams> groups() {
+        return corpus.values().map(Anagrams::of);
+    }
+
+    @Override
+    public int groupCount() {
+        return corpus.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return corpus.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        corpus.clear((high, low, group) -> listener.groupCleared(high, low, group.length));
+    }
+
+    @Override
+    public void setListener(GroupListener listener) {
+        this.listener = (listener != null) ? listener : GroupListener.NONE;
+    }
+
+    @Override
+    public Iterator<Anagrams> iterator() {
+        Iterator<String[]> groups = corpus.iterator();
+        return new Iterator<Anagrams>() {
+            @Override
+            public boolean hasNext() {
+                return groups.hasNext();
+            }
+
+            @Override
+            public Anagrams next() {
+                return Anagrams.of(groups.next());
+            }
+        };
+    }
+
+    private static int indexOf(String[] group, String word) {
+        for (int i = 0; i < group.length; i++)
+            if (group[i].equals(word))
+                return i;
+        return -1;
+    }
+}
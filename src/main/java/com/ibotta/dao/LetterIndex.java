@@ -0,0 +1,146 @@
+package com.ibotta.dao;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Every group signature in a dictionary, bucketed by word length, for queries that look for the words that can be
+ * spelled from a set of letters rather than for one exact signature.
+ *
+ * A bucket keeps its signatures as parallel arrays along with a mask of the symbols each one uses, so a query skips
+ * the lengths it can't use and rejects most of the rest with one mask test before comparing letter counts.
+ * The index follows the dictionary through its event bus: each delivered batch rebuilds only the buckets it touched
+ * and swaps them in whole, so readers never lock.  It trails the dictionary by the event delivery, callers should
+ * expect a signature to have no group by the time they look it up.
+ */
+public class LetterIndex {
+
+    /**
+     * Immutable signatures of one word length
+     */
+    public static final class Bucket {
+        private final long[] highs;
+        private final long[] lows;
+        private final int[] masks;
+
+        private Bucket(int size) {
+            highs = new long[size];
+            lows = new long[size];
+            masks = new int[size];
+        }
+
+        public int size() { return highs.length; }
+
+        public long high(int i) { return highs[i]; }
+
+        public long low(int i) { return lows[i]; }
+
+        /** Symbols used by a signature, see {@link Signature#mask(long, long)} */
+        public int mask(int i) { return masks[i]; }
+    }
+
+    private static final Bucket EMPTY = new Bucket(0);
+
+    private final SignatureMap<?>[] members = new SignatureMap<?>[CorpusStats.MAX_LENGTH + 1];
+    private final AtomicReferenceArray<Bucket> buckets = new AtomicReferenceArray<>(CorpusStats.MAX_LENGTH + 1);
+    private volatile int maxLength;
+
+    /**
+     * Indexes the groups of a dictionary and keeps following its changes
+     * @param dictionary the dictionary to index
+     */
+    LetterIndex(Dictionary dictionary) {
+        //subscribe before the scan, replaying a change the scan already saw leaves a signature in the same state
+        dictionary.getEvents().subscribe(this::apply);
+        synchronized (this) {
+            BitSet touched = new BitSet();
+            for (Anagrams group : dictionary) {
+                List<String> words = group.getWords();
+                if (!words.isEmpty())
+                    set(Signature.high(words.get(0)), Signature.low(words.get(0)), true, touched);
+            }
+            rebuild(touched);
+        }
+    }
+
+    /**
+     * Signatures of the words of a length
+     * @param length the word length
+     * @return the bucket, empty if there are no such words
+     */
+    public Bucket bucket(int length) {
+        if (length < 0 || length > CorpusStats.MAX_LENGTH)
+            return EMPTY;
+        Bucket bucket = buckets.get(length);
+        return (bucket != null) ? bucket : EMPTY;
+    }
+
+    /**
+     * Length of the longest indexed word
+     * @return the length, 0 if the index is empty
+     */
+    public int maxLength() {
+        return maxLength;
+    }
+
+    private synchronized void apply(List<DictionaryEvent> events) {
+        BitSet touched = new BitSet();
+        for (DictionaryEvent e : events) {
+            switch (e.getType()) {
+                case WORD_ADDED:
+                    set(e.getHigh(), e.getLow(), true, touched);
+                    break;
+                case WORD_REMOVED:
+                    set(e.getHigh(), e.getLow(), e.getSize() > 0, touched);
+                    break;
+                case GROUP_REMOVED:
+                    set(e.getHigh(), e.getLow(), false, touched);
+                    break;
+                case CLEARED:
+                    for (int length = 0; length < members.length; length++) {
+                        if (members[length] != null && !members[length].isEmpty()) {
+                            members[length].clear();
+                            touched.set(length);
+                        }
+                    }
+                    break;
+            }
+        }
+        rebuild(touched);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void set(long high, long low, boolean present, BitSet touched) {
+        int length = Signature.length(high, low);
+        SignatureMap<Boolean> signatures = (SignatureMap<Boolean>) members[length];
+        if (signatures == null) {
+            if (!present)
+                return;
+            signatures = new SignatureMap<>();
+            members[length] = signatures;
+        }
+        boolean changed = present ? signatures.put(high, low, Boolean.TRUE) == null : signatures.remove(high, low) != null;
+        if (changed)
+            touched.set(length);
+    }
+
+    private void rebuild(BitSet touched) {
+        for (int length = touched.nextSetBit(0); length >= 0; length = touched.nextSetBit(length + 1)) {
+            Bucket bucket = new Bucket(members[length].size());
+            int[] i = new int[1];
+            members[length].forEach((high, low, v) -> {
+                bucket.highs[i[0]] = high;
+                bucket.lows[i[0]] = low;
+                bucket.masks[i[0]] = Signature.mask(high, low);
+                i[0]++;
+            });
+            buckets.set(length, bucket);
+        }
+        int max = 0;
+        for (int length = members.length - 1; length > 0 && max == 0; length--)
+            if (members[length] != null && !members[length].isEmpty())
+                max = length;
+        maxLength = max;
+    }
+}
@@ -0,0 +1,598 @@
+package com.ibotta.dao;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Stream;
+
+/**
+ * Storage engine that keeps the corpus outside the java heap so very large dictionaries don't add to GC work.
+ *
+ * The store is split into segments by signature hash.  Each segment has an arena of direct ByteBuffer chunks holding
+ * packed group records and an open addressing index of signature -> record address, also in direct memory.
+ * Every word in a group has the same length (they are anagrams) so a record is just
+ * [int word count][short word length][word bytes...] with one byte per character (ISO-8859-1).
+ *
+ * Records are never changed in place, a write appends a new copy of the group and repoints the index slot.
+ * The space left behind is reclaimed by compacting the segment once it outweighs the live records.
+ */
+public class OffHeapCorpusStore implements CorpusStore {
+
+    static final int SEGMENT_BITS = 6;
+    static final int SEGMENTS = 1 << SEGMENT_BITS;
+
+    static final int SLOT_BYTES = 24; //high, low, record address
+    static final int INITIAL_SLOTS = 64;
+
+    static final int HEADER_BYTES = 6;
+    private static final int MIN_CHUNK = 1 << 16;
+    private static final int MAX_CHUNK = 1 << 26;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private volatile GroupListener listener = GroupListener.NONE;
+
+    public OffHeapCorpusStore() {
+        for (int i = 0; i < SEGMENTS; i++)
+            segments[i] = new Segment();
+    }
+
+    /**
+     * Creates a store that serves straight from the sections of a mapped snapshot, nothing is copied.
+     * Later writes append to new direct memory, a segment copies its mapped index the first time it is written.
+     * @param snapshot the mapped snapshot
+     */
+    public OffHeapCorpusStore(DictionarySnapshot snapshot) {
+        for (int i = 0; i < SEGMENTS; i++) {
+            DictionarySnapshot.Section section = snapshot.section(i);
+            segments[i] = new Segment(section.index, section.slots, section.size, section.arena);
+        }
+    }
+
+    /**
+     * Index of the segment that holds a signature
+     * @param hash {@link Signature#hash(long, long)} of the signature
+     * @return the segment index
+     */
+    static int segmentOf(long hash) {
+        return (int) (hash >>> (64 - SEGMENT_BITS));
+    }
+
+    /**
+     * Address of a record at a position in the first arena chunk of a segment
+     */
+    static long address(int position) {
+        return (1L << 32) | position;
+    }
+
+    @Override
+    public Anagrams get(long high, long low) {
+        long h = Signature.hash(high, low);
+        List<String> words = segmentFor(h).get(high, low, h);
+        if (words == null)
+            return null;
+        Anagrams anagrams = new Anagrams();
+        anagrams.setWords(words);
+        return anagrams;
+    }
+
+    @Override
+    public boolean contains(long high, long low, String word) {
+        long h = Signature.hash(high, low);
+        return segmentFor(h).contains(high, low, h, word);
+    }
+
+    @Override
+    public boolean add(long high, long low, String word) {
+        checkEncodable(word);
+        long h = Signature.hash(high, low);
+        return segmentFor(h).add(high, low, h, word, listener);
+    }
+
+    @Override
+    public boolean remove(long high, long low, String word) {
+        long h = Signature.hash(high, low);
+        return segmentFor(h).remove(high, low, h, word, listener);
+    }
+
+    @Override
+    public Anagrams removeGroup(long high, long low) {
+        long h = Signature.hash(high, low);
+        List<String> words = segmentFor(h).removeGroup(high, low, h, listener);
+        if (words == null)
+            return null;
+        Anagrams anagrams = new Anagrams();
+        anagrams.setWords(words);
+        return anagrams;
+    }
+
+    @Override
+    public Stream<Anagrams> groups() {
+        return Arrays.stream(segments).flatMap(s -> s.groups().stream());
+    }
+
+    @Override
+    public int groupCount() {
+        int count = 0;
+        for (Segment s : segments)
+            count += s.size;
+        return count;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (Segment s : segments)
+            if (s.size > 0)
+                return false;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        for (Segment s : segments)
+            s.clear(listener);
+    }
+
+    @Override
+    public void setListener(GroupListener listener) {
+        this.listener = (listener != null) ? listener : GroupListener.NONE;
+    }
+
+    @Override
+    public Iterator<Anagrams> iterator() {
+        return groups().iterator();
+    }
+
+    /**
+     * Direct memory currently reserved by the store, index and arenas
+     * @return size in bytes
+     */
+    public long allocatedBytes() {
+        long bytes = 0;
+        for (Segment s : segments)
+            bytes += s.allocatedBytes();
+        return bytes;
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[segmentOf(hash)];
+    }
+
+    private static void checkEncodable(String word) {
+        for (int i = 0; i < word.length(); i++)
+            if (word.charAt(i) > 0xFF)
+                throw new IllegalArgumentException(word + " can't be stored off heap");
+    }
+
+
+    private static final class Segment {
+        private final StampedLock lock = new StampedLock();
+
+        private ByteBuffer index;
+        private int slots;
+        private volatile int size;
+
+        private ByteBuffer[] chunks;
+        private int chunkCount;
+        private long liveBytes;
+        private long garbageBytes;
+
+        Segment() {
+            reset();
+        }
+
+        Segment(ByteBuffer index, int slots, int size, ByteBuffer arena) {
+            this.index = index;
+            this.slots = slots;
+            this.size = size;
+            chunks = new ByteBuffer[4];
+            chunks[0] = arena;
+            chunks[0].position(arena.limit()); //full, new records go to a fresh chunk
+            chunkCount = 1;
+            liveBytes = arena.limit();
+        }
+
+        List<String> get(long high, long low, long h) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                try {
+                    //the address is checked before the record is decoded so a torn header is never trusted
+                    long address = addressOf(high, low, h);
+                    if (lock.validate(stamp)) {
+                        List<String> words = (address != 0) ? decode(chunk(address), position(address)) : null;
+                        if (lock.validate(stamp))
+                            return words;
+                    }
+                } catch (RuntimeException ex) {
+                    //torn read of a record being moved, retry under the read lock
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return read(high, low, h);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        boolean contains(long high, long low, long h, String word) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                try {
+                    boolean found = find(high, low, h, word);
+                    if (lock.validate(stamp))
+                        return found;
+                } catch (RuntimeException ex) {
+                    //torn read, retry under the read lock
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return find(high, low, h, word);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        boolean add(long high, long low, long h, String word, GroupListener listener) {
+            long stamp = lock.writeLock();
+            try {
+                ensureWritable();
+                int slot = slotOf(high, low, h);
+                if (slot < 0) {
+                    long address = append(null, 0, 0, word, -1);
+                    insert(-slot - 1, high, low, address);
+                    listener.wordAdded(high, low, word, 1);
+                    return true;
+                }
+                long address = index.getLong(slot * SLOT_BYTES + 16);
+                ByteBuffer chunk = chunk(address);
+                int pos = position(address);
+                int count = chunk.getInt(pos);
+                int length = chunk.getShort(pos + 4) & 0xFFFF;
+                if (indexOf(chunk, pos, count, length, word) >= 0)
+                    return false;
+                index.putLong(slot * SLOT_BYTES + 16, append(chunk, pos, count, word, -1));
+                discard(count, length);
+                listener.wordAdded(high, low, word, count + 1);
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        boolean remove(long high, long low, long h, String word, GroupListener listener) {
+            long stamp = lock.writeLock();
+            try {
+                ensureWritable();
+                int slot = slotOf(high, low, h);
+                if (slot < 0)
+                    return false;
+                long address = index.getLong(slot * SLOT_BYTES + 16);
+                ByteBuffer chunk = chunk(address);
+                int pos = position(address);
+                int count = chunk.getInt(pos);
+                int length = chunk.getShort(pos + 4) & 0xFFFF;
+                int i = indexOf(chunk, pos, count, length, word);
+                if (i < 0)
+                    return false;
+                if (count == 1)
+                    delete(slot);
+                else
+                    index.putLong(slot * SLOT_BYTES + 16, append(chunk, pos, count, null, i));
+                discard(count, length);
+                listener.wordRemoved(high, low, word, count - 1);
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        List<String> removeGroup(long high, long low, long h, GroupListener listener) {
+            long stamp = lock.writeLock();
+            try {
+                ensureWritable();
+                int slot = slotOf(high, low, h);
+                if (slot < 0)
+                    return null;
+                long address = index.getLong(slot * SLOT_BYTES + 16);
+                ByteBuffer chunk = chunk(address);
+                int pos = position(address);
+                List<String> words = decode(chunk, pos);
+                delete(slot);
+                discard(words.size(), chunk.getShort(pos + 4) & 0xFFFF);
+                listener.groupRemoved(high, low, words.size());
+                return words;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        List<Anagrams> groups() {
+            long stamp = lock.readLock();
+            try {
+                List<Anagrams> groups = new ArrayList<>(size);
+                for (int slot = 0; slot < slots; slot++) {
+                    long address = index.getLong(slot * SLOT_BYTES + 16);
+                    if (address == 0)
+                        continue;
+                    Anagrams anagrams = new Anagrams();
+                    anagrams.setWords(decode(chunk(address), position(address)));
+                    groups.add(anagrams);
+                }
+                return groups;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void clear(GroupListener listener) {
+            long stamp = lock.writeLock();
+            try {
+                for (int slot = 0; slot < slots; slot++) {
+                    int offset = slot * SLOT_BYTES;
+                    long address = index.getLong(offset + 16);
+                    if (address != 0)
+                        listener.groupCleared(index.getLong(offset), index.getLong(offset + 8), chunk(address).getInt(position(address)));
+                }
+                reset();
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        long allocatedBytes() {
+            long stamp = lock.readLock();
+            try {
+                long bytes = index.capacity();
+                for (int i = 0; i < chunkCount; i++)
+                    bytes += chunks[i].capacity();
+                return bytes;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private void reset() {
+            slots = INITIAL_SLOTS;
+            index = ByteBuffer.allocateDirect(slots * SLOT_BYTES);
+            size = 0;
+            chunks = new ByteBuffer[4];
+            chunkCount = 0;
+            liveBytes = 0;
+            garbageBytes = 0;
+        }
+
+        /**
+         * Copies an index mapped from a snapshot into direct memory before its first change
+         */
+        private void ensureWritable() {
+            if (!index.isReadOnly())
+                return;
+            ByteBuffer copy = ByteBuffer.allocateDirect(index.capacity());
+            copy.put(index.duplicate());
+            index = copy;
+        }
+
+        private List<String> read(long high, long low, long h) {
+            long address = addressOf(high, low, h);
+            return (address != 0) ? decode(chunk(address), position(address)) : null;
+        }
+
+        /**
+         * @return the address of the signature's record, 0 if it isn't present
+         */
+        private long addressOf(long high, long low, long h) {
+            int slot = slotOf(high, low, h);
+            return (slot >= 0) ? index.getLong(slot * SLOT_BYTES + 16) : 0;
+        }
+
+        private boolean find(long high, long low, long h, String word) {
+            int slot = slotOf(high, low, h);
+            if (slot < 0)
+                return false;
+            long address = index.getLong(slot * SLOT_BYTES + 16);
+            ByteBuffer chunk = chunk(address);
+            int pos = position(address);
+            return indexOf(chunk, pos, chunk.getInt(pos), chunk.getShort(pos + 4) & 0xFFFF, word) >= 0;
+        }
+
+        /**
+         * Probes the index for a signature
+         * @return the slot holding the signature, or -(empty slot + 1) if it isn't present
+         */
+        private int slotOf(long high, long low, long h) {
+            ByteBuffer index = this.index;
+            int mask = slots - 1;
+            int slot = (int) h & mask;
+            for (int n = 0; n <= mask; n++) {
+                int offset = slot * SLOT_BYTES;
+                if (index.getLong(offset + 16) == 0)
+                    return -slot - 1;
+                if (index.getLong(offset) == high && index.getLong(offset + 8) == low)
+                    return slot;
+                slot = (slot + 1) & mask;
+            }
+            throw new IllegalStateException("Index is full");
+        }
+
+        private void insert(int slot, long high, long low, long address) {
+            int offset = slot * SLOT_BYTES;
+            index.putLong(offset, high);
+            index.putLong(offset + 8, low);
+            index.putLong(offset + 16, address);
+            size++;
+            if (size > (slots >> 1) + (slots >> 2))
+                rehash(slots << 1);
+        }
+
+        /**
+         * Empties a slot and shifts back any following entries that probed past it
+         */
+        private void delete(int slot) {
+            int mask = slots - 1;
+            index.putLong(slot * SLOT_BYTES + 16, 0);
+            int j = slot;
+            while (true) {
+                j = (j + 1) & mask;
+                int offset = j * SLOT_BYTES;
+                long address = index.getLong(offset + 16);
+                if (address == 0)
+                    break;
+                long high = index.getLong(offset);
+                long low = index.getLong(offset + 8);
+                int ideal = (int) Signature.hash(high, low) & mask;
+                boolean between = (slot <= j) ? (slot < ideal && ideal <= j) : (slot < ideal || ideal <= j);
+                if (between)
+                    continue;
+                int target = slot * SLOT_BYTES;
+                index.putLong(target, high);
+                index.putLong(target + 8, low);
+                index.putLong(target + 16, address);
+                index.putLong(offset + 16, 0);
+                slot = j;
+            }
+            size--;
+        }
+
+        private void rehash(int newSlots) {
+            ByteBuffer bigger = ByteBuffer.allocateDirect(newSlots * SLOT_BYTES);
+            int mask = newSlots - 1;
+            for (int slot = 0; slot < slots; slot++) {
+                int offset = slot * SLOT_BYTES;
+                long address = index.getLong(offset + 16);
+                if (address == 0)
+                    continue;
+                long high = index.getLong(offset);
+                long low = index.getLong(offset + 8);
+                int j = (int) Signature.hash(high, low) & mask;
+                while (bigger.getLong(j * SLOT_BYTES + 16) != 0)
+                    j = (j + 1) & mask;
+                bigger.putLong(j * SLOT_BYTES, high);
+                bigger.putLong(j * SLOT_BYTES + 8, low);
+                bigger.putLong(j * SLOT_BYTES + 16, address);
+            }
+            index = bigger;
+            slots = newSlots;
+        }
+
+        /**
+         * Writes a new record to the arena made of an existing record plus or minus one word
+         * @param source the chunk holding the existing record, null for a new group
+         * @param pos position of the existing record
+         * @param count words in the existing record
+         * @param added word to append, null if none
+         * @param skip index of a word to leave out, -1 if none
+         * @return address of the new record
+         */
+        private long append(ByteBuffer source, int pos, int count, String added, int skip) {
+            int length = (source != null) ? source.getShort(pos + 4) & 0xFFFF : added.length();
+            int newCount = count + ((added != null) ? 1 : 0) - ((skip >= 0) ? 1 : 0);
+            int bytes = HEADER_BYTES + newCount * length;
+            long address = reserve(bytes);
+            ByteBuffer chunk = chunk(address);
+            int out = position(address);
+            chunk.putInt(out, newCount);
+            chunk.putShort(out + 4, (short) length);
+            out += HEADER_BYTES;
+            for (int i = 0; i < count; i++) {
+                if (i == skip)
+                    continue;
+                int in = pos + HEADER_BYTES + i * length;
+                for (int j = 0; j < length; j++)
+                    chunk.put(out++, source.get(in + j));
+            }
+            if (added != null)
+                for (int j = 0; j < length; j++)
+                    chunk.put(out++, (byte) added.charAt(j));
+            liveBytes += bytes;
+            return address;
+        }
+
+        private long reserve(int bytes) {
+            if (bytes > MAX_CHUNK)
+                throw new IllegalStateException("Anagram group too large for the off heap store");
+            ByteBuffer current = (chunkCount > 0) ? chunks[chunkCount - 1] : null;
+            if (current == null || current.remaining() < bytes) {
+                long capacity = (current == null) ? MIN_CHUNK : Math.min(MAX_CHUNK, (long) current.capacity() << 1);
+                current = ByteBuffer.allocateDirect(Math.max((int) Math.max(capacity, MIN_CHUNK), bytes));
+                if (chunkCount == chunks.length)
+                    chunks = Arrays.copyOf(chunks, chunkCount << 1);
+                chunks[chunkCount++] = current;
+            }
+            int pos = current.position();
+            current.position(pos + bytes);
+            return ((long) chunkCount << 32) | pos;
+        }
+
+        /**
+         * Accounts for a record that is no longer referenced and compacts the arena when waste dominates
+         */
+        private void discard(int count, int length) {
+            long bytes = HEADER_BYTES + (long) count * length;
+            liveBytes -= bytes;
+            garbageBytes += bytes;
+            if (garbageBytes > MIN_CHUNK && garbageBytes > liveBytes)
+                compact();
+        }
+
+        private void compact() {
+            ByteBuffer[] old = chunks;
+            chunks = new ByteBuffer[4];
+            chunkCount = 0;
+            liveBytes = 0;
+            garbageBytes = 0;
+            for (int slot = 0; slot < slots; slot++) {
+                int offset = slot * SLOT_BYTES + 16;
+                long address = index.getLong(offset);
+                if (address == 0)
+                    continue;
+                ByteBuffer chunk = old[(int) (address >>> 32) - 1];
+                int pos = position(address);
+                index.putLong(offset, append(chunk, pos, chunk.getInt(pos), null, -1));
+            }
+        }
+
+        private ByteBuffer chunk(long address) {
+            return chunks[(int) (address >>> 32) - 1];
+        }
+
+        private static int position(long address) {
+            return (int) address;
+        }
+
+        private static int indexOf(ByteBuffer chunk, int pos, int count, int length, String word) {
+            if (word.length() != length)
+                return -1;
+            int start = pos + HEADER_BYTES;
+            for (int i = 0; i < count; i++) {
+                int p = start + i * length;
+                int j = 0;
+                while (j < length && (chunk.get(p + j) & 0xFF) == word.charAt(j))
+                    j++;
+                if (j == length)
+                    return i;
+            }
+            return -1;
+        }
+
+        private static List<String> decode(ByteBuffer chunk, int pos) {
+            int count = chunk.getInt(pos);
+            int length = chunk.getShort(pos + 4) & 0xFFFF;
+            //a record of empty words can't exist, and count is bounded by the bytes left before allocating for it
+            if (count < 0 || (count > 0 && length == 0) || count > (chunk.limit() - pos - HEADER_BYTES) / Math.max(length, 1))
+                throw new IndexOutOfBoundsException("Record out of bounds");
+            List<String> words = new ArrayList<>(count);
+            char[] chars = new char[length];
+            int p = pos + HEADER_BYTES;
+            for (int i = 0; i < count; i++) {
+                for (int j = 0; j < length; j++)
+                    chars[j] = (char) (chunk.get(p++) & 0xFF);
+                words.add(new String(chars));
+            }
+            return words;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.ibotta.dao;
+
+/**
+ * Encodes the letter counts of a word into a pair of longs that identify its anagram group.
+ *
+ * Each of the 27 supported symbols (a-z and hyphen, case-insensitive, see {@link Alphabet}) gets a 4 bit counter:
+ * the low half holds a-m, the high half holds n-z and hyphen.  Two words are anagrams of each other
+ * exactly when both halves are equal.  Computing a half is a single pass over the word with no allocation.
+ *
+ * Bit 63 of either half is set when the word contains a character outside the alphabet or repeats
+ * a single symbol more than 15 times; such a signature is not valid and never matches a stored group.
+ */
+public final class Signature {
+
+    /** Number of symbols that can be counted */
+    public static final int SYMBOLS = 27;
+
+    /** Number of symbols held in the low half */
+    static final int LOW_SYMBOLS = 13;
+
+    /** Largest count a single symbol can hold */
+    public static final int MAX_COUNT = 15;
+
+    /** Flag set on a half whose word could not be encoded */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final long LANES = 0x0F0F0F0F0F0F0F0FL; //every other nibble
+    private static final long GUARD = 0x8080808080808080L; //top bit of each byte
+
+    private Signature() { }
+
+    /**
+     * Gets the symbol index for a character in the active {@link Alphabet}
+     * @param c the character to look up
+     * @return 0-25 for letters, 26 for hyphen, -1 if the character can't be encoded
+     */
+    public static int symbol(char c) {
+        return Alphabet.active().symbol(c);
+    }
+
+    /**
+     * Encodes the counts of the symbols a-m
+     * @param word the word to encode
+     * @return the low half of the signature
+     */
+    public static long low(CharSequence word) {
+        return encode(word, 0, LOW_SYMBOLS);
+    }
+
+    /**
+     * Encodes the counts of the symbols n-z and hyphen
+     * @param word the word to encode
+     * @return the high half of the signature
+     */
+    public static long high(CharSequence word) {
+        return encode(word, LOW_SYMBOLS, SYMBOLS);
+    }
+
+    /**
+     * Checks that both halves of a signature were encoded successfully
+     * @param high the high half
+     * @param low the low half
+     * @return true if the signature can identify a group
+     */
+    public static boolean isValid(long high, long low) {
+        return (high | low) > 0;
+    }
+
+    /**
+     * Gets the count of a symbol from an encoded signature
+     * @param high the high half
+     * @param low the low half
+     * @param symbol the symbol index (see {@link #symbol(char)})
+     * @return the number of times the symbol occurs
+     */
+    public static int count(long high, long low, int symbol) {
+        if (symbol < LOW_SYMBOLS)
+            return (int) (low >>> (symbol << 2)) & 0xF;
+        return (int) (high >>> ((symbol - LOW_SYMBOLS) << 2)) & 0xF;
+    }
+
+    /**
+     * Gets the number of symbols encoded in a signature, i.e. the length of each word in the group
+     * @param high the high half
+     * @param low the low half
+     * @return the total of all symbol counts
+     */
+    public static int length(long high, long low) {
+        return nibbleSum(high) + nibbleSum(low);
+    }
+
+    /**
+     * Mixes both halves of a signature into a well distributed hash
+     * @param high the high half
+     * @param low the low half
+     * @return the hash
+     */
+    public static long hash(long high, long low) {
+        long h = high * 0x9E3779B97F4A7C15L + low;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Checks whether every symbol count of one signature is at most the count in another,
+     * i.e. whether the word signed as a can be spelled from the letters of b
+     * @param aHigh high half of the smaller signature
+     * @param aLow low half of the smaller signature
+     * @param bHigh high half of the larger signature
+     * @param bLow low half of the larger signature
+     * @return true if a fits in b
+     */
+    public static boolean fits(long aHigh, long aLow, long bHigh, long bLow) {
+        return excess(aHigh, bHigh) == 0 && excess(aLow, bLow) == 0;
+    }
+
+    /**
+     * Counts the letters of a that b is missing, the number of blank tiles needed to spell a from b
+     * @param aHigh high half of the signature to spell
+     * @param aLow low half of the signature to spell
+     * @param bHigh high half of the available letters
+     * @param bLow low half of the available letters
+     * @return total of max(0, count in a - count in b) over all symbols
+     */
+    public static int missing(long aHigh, long aLow, long bHigh, long bLow) {
+        return excess(aHigh, bHigh) + excess(aLow, bLow);
+    }
+
+    /**
+     * Bit per symbol that occurs in a signature, bit i is set when symbol i has a count above 0
+     * @param high the high half
+     * @param low the low half
+     * @return the presence mask
+     */
+    public static int mask(long high, long low) {
+        int mask = 0;
+        for (int s = 0; s < SYMBOLS; s++)
+            if (count(high, low, s) > 0)
+                mask |= 1 << s;
+        return mask;
+    }
+
+    /**
+     * Sums max(0, a - b) over the 16 nibbles of a half, spreading the nibbles into 8 bit lanes
+     * so all of them are compared at once without borrowing between lanes
+     */
+    private static int excess(long a, long b) {
+        return laneExcess(a & LANES, b & LANES) + laneExcess((a >>> 4) & LANES, (b >>> 4) & LANES);
+    }
+
+    private static int laneExcess(long a, long b) {
+        long d = (a | GUARD) - b;             //0x80 + a - b in each lane, guard bit set where a >= b
+        long ge = d & GUARD;
+        long diff = d & (ge - (ge >>> 7));    //a - b where a >= b, 0 elsewhere
+        return (int) ((diff * 0x0101010101010101L) >>> 56);
+    }
+
+    private static long encode(CharSequence word, int from, int to) {
+        Alphabet alphabet = Alphabet.active();
+        long sig = 0;
+        for (int i = 0, n = word.length(); i < n; i++) {
+            int s = alphabet.symbol(word.charAt(i));
+            if (s < 0)
+                return INVALID;
+            if (s < from || s >= to)
+                continue;
+            int shift = (s - from) << 2;
+            if (((sig >>> shift) & 0xF) == MAX_COUNT)
+                return INVALID;
+            sig += 1L << shift;
+        }
+        return sig;
+    }
+
+    private static int nibbleSum(long v) {
+        v = (v & 0x0F0F0F0F0F0F0F0FL) + ((v >>> 4) & 0x0F0F0F0F0F0F0F0FL);
+        return (int) ((v * 0x0101010101010101L) >>> 56);
+    }
+}
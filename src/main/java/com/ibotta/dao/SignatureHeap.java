@@ -0,0 +1,84 @@
+package com.ibotta.dao;
+
+/**
+ * Keeps the k smallest signatures offered to it, ordered by high half then low half.
+ * A bounded max-heap over two primitive arrays, so selecting a page out of a whole corpus allocates nothing per group.
+ */
+final class SignatureHeap {
+
+    private final long[] highs;
+    private final long[] lows;
+    private int size;
+
+    /**
+     * @param capacity how many signatures to keep
+     */
+    SignatureHeap(int capacity) {
+        highs = new long[capacity];
+        lows = new long[capacity];
+    }
+
+    static int compare(long aHigh, long aLow, long bHigh, long bLow) {
+        int c = Long.compare(aHigh, bHigh);
+        return (c != 0) ? c : Long.compare(aLow, bLow);
+    }
+
+    /**
+     * Offers a signature, it is kept if it is among the smallest seen so far
+     */
+    void offer(long high, long low) {
+        if (size < highs.length) {
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (compare(highs[parent], lows[parent], high, low) >= 0)
+                    break;
+                highs[i] = highs[parent];
+                lows[i] = lows[parent];
+                i = parent;
+            }
+            highs[i] = high;
+            lows[i] = low;
+        } else if (size > 0 && compare(high, low, highs[0], lows[0]) < 0) {
+            siftDown(high, low);
+        }
+    }
+
+    private void siftDown(long high, long low) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && compare(highs[child + 1], lows[child + 1], highs[child], lows[child]) > 0)
+                child++;
+            if (compare(highs[child], lows[child], high, low) <= 0)
+                break;
+            highs[i] = highs[child];
+            lows[i] = lows[child];
+            i = child;
+        }
+        highs[i] = high;
+        lows[i] = low;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Empties the heap
+     * @return the kept signatures in ascending order, high and low half interleaved
+     */
+    long[] drain() {
+        long[] sorted = new long[size * 2];
+        for (int i = size - 1; i >= 0; i--) {
+            sorted[2 * i] = highs[0];
+            sorted[2 * i + 1] = lows[0];
+            size--;
+            if (size > 0)
+                siftDown(highs[size], lows[size]);
+        }
+        return sorted;
+    }
+}
@@ -0,0 +1,332 @@
+package com.ibotta.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Thread safe hash map keyed by a {@link Signature} (a pair of longs) so lookups never box or allocate a key.
+ *
+ * The map is split into segments, each an open addressing table with linear probing guarded by a StampedLock.
+ * Reads are optimistic and only fall back to the read lock when they overlap a write to the same segment,
+ * writes to different segments never contend.  Iteration is weakly consistent, a segment at a time.
+ *
+ * @param <V> the value type
+ */
+public class SignatureMap<V> implements Iterable<V> {
+
+    private static final int SEGMENT_BITS = 6;
+    private static final int SEGMENTS = 1 << SEGMENT_BITS;
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Receives each entry of the map
+     * @param <V> the value type
+     */
+    @FunctionalInterface
+    public interface Visitor<V> {
+        void visit(long high, long low, V value);
+    }
+
+    private final Segment<V>[] segments;
+
+    @SuppressWarnings("unchecked")
+    public SignatureMap() {
+        segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++)
+            segments[i] = new Segment<>();
+    }
+
+    /**
+     * Gets the value stored for a signature
+     * @param high high half of the signature
+     * @param low low half of the signature
+     * @return the value, null if there is none
+     */
+    public V get(long high, long low) {
+        long h = Signature.hash(high, low);
+        return segmentFor(h).get(high, low, h);
+    }
+
+    /**
+     * Stores a value for a signature
+     * @return the previous value, null if there was none
+     */
+    public V put(long high, long low, V value) {
+        if (value == null)
+            throw new IllegalArgumentException("Null values are not supported");
+        long h = Signature.hash(high, low);
+        return segmentFor(h).update(high, low, h, old -> value, true);
+    }
+
+    /**
+     * Removes the value stored for a signature
+     * @return the removed value, null if there was none
+     */
+    public V remove(long high, long low) {
+        long h = Signature.hash(high, low);
+        return segmentFor(h).update(high, low, h, old -> null, true);
+    }
+
+    /**
+     * Atomically replaces the value for a signature with the result of the remapping function,
+     * no other write to the signature can interleave with the function.
+     * @param remap receives the current value (or null) and returns the new value, null removes the entry
+     * @return the new value
+     */
+    public V compute(long high, long low, UnaryOperator<V> remap) {
+        long h = Signature.hash(high, low);
+        return segmentFor(h).update(high, low, h, remap, false);
+    }
+
+    /**
+     * Count of entries in the map
+     * @return Count of entries in the map
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<V> s : segments)
+            size += s.size;
+        return size;
+    }
+
+    /**
+     * Check whether the map has entries
+     * @return true if it doesn't
+     */
+    public boolean isEmpty() {
+        for (Segment<V> s : segments)
+            if (s.size > 0)
+                return false;
+        return true;
+    }
+
+    /**
+     * Removes every entry, one segment at a time
+     */
+    public void clear() {
+        for (Segment<V> s : segments)
+            s.clear(null);
+    }
+
+    /**
+     * Removes every entry, one segment at a time, visiting each entry while its segment is locked for the removal
+     * @param removed receives each signature and value as it is removed
+     */
+    public void clear(Visitor<? super V> removed) {
+        for (Segment<V> s : segments)
+            s.clear(removed);
+    }
+
+    /**
+     * Visits every entry in the map, holding the read lock of one segment at a time
+     * @param visitor receives each signature and its value
+     */
+    public void forEach(Visitor<? super V> visitor) {
+        for (Segment<V> s : segments)
+            s.forEach(visitor);
+    }
+
+    /**
+     * Weakly consistent stream of the values, each segment is a separate unit of work for parallel streams
+     * @return stream of values
+     */
+    public Stream<V> values() {
+        return Arrays.stream(segments).flatMap(s -> s.values().stream());
+    }
+
+    /**
+     * Weakly consistent iterator over the values
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new Iterator<V>() {
+            int segment = 0;
+            Iterator<V> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && segment < SEGMENTS)
+                    current = segments[segment++].values().iterator();
+                return current.hasNext();
+            }
+
+            @Override
+            public V next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return current.next();
+            }
+        };
+    }
+
+    private Segment<V> segmentFor(long hash) {
+        return segments[(int) (hash >>> (64 - SEGMENT_BITS))];
+    }
+
+
+    /**
+     * Arrays of a segment, replaced as a unit on resize so an optimistic reader always sees matching lengths
+     */
+    private static final class Table {
+        final long[] keys; //high and low half of each slot, interleaved
+        final Object[] values;
+
+        Table(int capacity) {
+            keys = new long[capacity * 2];
+            values = new Object[capacity];
+        }
+    }
+
+    private static final class Segment<V> {
+        private final StampedLock lock = new StampedLock();
+        private Table table = new Table(INITIAL_CAPACITY);
+        private volatile int size;
+
+        V get(long high, long low, long h) {
+            long stamp = lock.tryOptimisticRead();
+            V value = find(table, high, low, h);
+            if (lock.validate(stamp))
+                return value;
+            stamp = lock.readLock();
+            try {
+                return find(table, high, low, h);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        V update(long high, long low, long h, UnaryOperator<V> remap, boolean returnOld) {
+            long stamp = lock.writeLock();
+            try {
+                Table t = table;
+                int mask = t.values.length - 1;
+                int i = (int) h & mask;
+                while (t.values[i] != null && (t.keys[i * 2] != high || t.keys[i * 2 + 1] != low))
+                    i = (i + 1) & mask;
+                @SuppressWarnings("unchecked")
+                V old = (V) t.values[i];
+                V value = remap.apply(old);
+                if (value == null) {
+                    if (old != null) {
+                        delete(t, i);
+                        size--;
+                    }
+                } else if (old != null) {
+                    t.values[i] = value;
+                } else {
+                    t.keys[i * 2] = high;
+                    t.keys[i * 2 + 1] = low;
+                    t.values[i] = value;
+                    size++;
+                    if (size > (t.values.length >> 1) + (t.values.length >> 2))
+                        table = resize(t);
+                }
+                return returnOld ? old : value;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void clear(Visitor<? super V> removed) {
+            long stamp = lock.writeLock();
+            try {
+                if (removed != null)
+                    visit(table, removed);
+                table = new Table(INITIAL_CAPACITY);
+                size = 0;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void forEach(Visitor<? super V> visitor) {
+            long stamp = lock.readLock();
+            try {
+                visit(table, visitor);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private static <V> void visit(Table t, Visitor<? super V> visitor) {
+            for (int i = 0; i < t.values.length; i++) {
+                @SuppressWarnings("unchecked")
+                V value = (V) t.values[i];
+                if (value != null)
+                    visitor.visit(t.keys[i * 2], t.keys[i * 2 + 1], value);
+            }
+        }
+
+        List<V> values() {
+            List<V> values = new ArrayList<>(size);
+            forEach((high, low, value) -> values.add(value));
+            return values;
+        }
+
+        /**
+         * Probes for a key without locking, bounded by the table length so a torn read can't loop forever
+         */
+        @SuppressWarnings("unchecked")
+        private static <V> V find(Table t, long high, long low, long h) {
+            int mask = t.values.length - 1;
+            int i = (int) h & mask;
+            for (int n = 0; n <= mask; n++) {
+                Object value = t.values[i];
+                if (value == null)
+                    return null;
+                if (t.keys[i * 2] == high && t.keys[i * 2 + 1] == low)
+                    return (V) value;
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        /**
+         * Empties a slot and shifts back any following entries that probed past it, so no tombstones are needed
+         */
+        private static void delete(Table t, int i) {
+            int mask = t.values.length - 1;
+            t.values[i] = null;
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                if (t.values[j] == null)
+                    break;
+                int ideal = (int) Signature.hash(t.keys[j * 2], t.keys[j * 2 + 1]) & mask;
+                boolean between = (i <= j) ? (i < ideal && ideal <= j) : (i < ideal || ideal <= j);
+                if (between)
+                    continue;
+                t.keys[i * 2] = t.keys[j * 2];
+                t.keys[i * 2 + 1] = t.keys[j * 2 + 1];
+                t.values[i] = t.values[j];
+                t.values[j] = null;
+                i = j;
+            }
+        }
+
+        private static Table resize(Table t) {
+            Table bigger = new Table(t.values.length << 1);
+            int mask = bigger.values.length - 1;
+            for (int i = 0; i < t.values.length; i++) {
+                if (t.values[i] == null)
+                    continue;
+                long high = t.keys[i * 2];
+                long low = t.keys[i * 2 + 1];
+                int j = (int) Signature.hash(high, low) & mask;
+                while (bigger.values[j] != null)
+                    j = (j + 1) & mask;
+                bigger.keys[j * 2] = high;
+                bigger.keys[j * 2 + 1] = low;
+                bigger.values[j] = t.values[i];
+            }
+            return bigger;
+        }
+    }
+}
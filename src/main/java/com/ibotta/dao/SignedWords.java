@@ -0,0 +1,81 @@
+package com.ibotta.dao;
+
+/**
+ * Batch of validated, lower cased words along with their signatures, built without touching the dictionary
+ * so the work can be spread across threads before the batch is inserted
+ */
+public class SignedWords {
+
+    private final String[] words;
+    private final long[] highs;
+    private final long[] lows;
+    private int size;
+    private int rejected;
+
+    /**
+     * @param capacity maximum number of words in the batch
+     */
+    public SignedWords(int capacity) {
+        words = new String[capacity];
+        highs = new long[capacity];
+        lows = new long[capacity];
+    }
+
+    /**
+     * Validates and signs a word and adds it to the batch, blank lines are ignored
+     * @param word the word to add
+     * @return false if the word was rejected as invalid
+     */
+    public boolean add(String word) {
+        if (word == null || (word = word.trim()).isEmpty())
+            return true;
+        word = word.toLowerCase();
+        long high = Signature.high(word);
+        long low = Signature.low(word);
+        if (!Signature.isValid(high, low)) { //characters outside the alphabet or too many repeats
+            rejected++;
+            return false;
+        }
+        words[size] = word;
+        highs[size] = high;
+        lows[size] = low;
+        size++;
+        return true;
+    }
+
+    /**
+     * Count of words in the batch
+     * @return Count of words in the batch
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check whether the batch is at capacity
+     * @return true if no more words fit
+     */
+    public boolean isFull() {
+        return size == words.length;
+    }
+
+    /**
+     * Count of words that failed validation
+     * @return Count of words that failed validation
+     */
+    public int getRejected() {
+        return rejected;
+    }
+
+    public String word(int i) {
+        return words[i];
+    }
+
+    public long high(int i) {
+        return highs[i];
+    }
+
+    public long low(int i) {
+        return lows[i];
+    }
+}
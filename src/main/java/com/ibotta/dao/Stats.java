@@ -1,24 +1,26 @@
 package com.ibotta.dao;
 
 import com.fasterxml.jackson.annotation.JsonGetter;
+import com.ibotta.metrics.Metrics;
 
-import java.util.*;
+import javax.validation.constraints.NotNull;
+import java.util.List;
+import java.util.stream.Collectors;
 
 /**
- * Container for dictionary stats and performs calculations,
- * implements Observer interface so that dictionary object can notify Stats of changes
+ * Container for dictionary stats, reads the counts the dictionary keeps up to date on every change
+ * so calculating never scans the corpus.  The getters of stats made from a dictionary recalculate on every call,
+ * responses serialize a {@link #snapshot()} so every field comes from one calculation
  */
-public class Stats implements Observer {
+public class Stats {
 
     final Dictionary dictionary;
-
-    boolean calculated = false;
+    private List<List<String>> largestGroups;
 
     int anagramCnt = 0;
     int wordCnt = 0;
 
     Integer largestGroupsSize = 0;
-    List<List<String>> largestGroups = new Vector<>();
 
     int min = 0;
     int max = 0;
@@ -31,69 +33,103 @@ public class Stats implements Observer {
      */
     public Stats(Dictionary dictionary) {
         this.dictionary = dictionary;
-        this.dictionary.addObserver(this);
     }
 
     /**
-     * calculates a count of words in the dictionary and min/max/median/average word length
+     * Stats of counts gathered elsewhere, e.g. the parts of a corpus spread over several nodes added up
+     * @param lengths count of words of each length, indexed by length
+     * @param groups count of anagram groups
+     * @param largestGroups the largest groups
      */
-    public void calculate() {
-        if (calculated)
-            return;
+    public Stats(@NotNull long[] lengths, int groups, @NotNull List<List<String>> largestGroups) {
+        this.dictionary = null;
+        this.largestGroups = largestGroups;
+        summarize(lengths.clone());
+        anagramCnt = groups;
+        largestGroupsSize = largestGroups.isEmpty() ? 0 : largestGroups.get(0).size();
+    }
 
-        wordCnt = 0;
-        anagramCnt = 0;
+    /**
+     * Calculates the stats once into stats that no longer follow the dictionary.  The largest groups size is taken from
+     * the groups read, so the two always agree
+     * @return the fixed stats, this if they are fixed already
+     */
+    public Stats snapshot() {
+        if (dictionary == null)
+            return this;
+        long start = Metrics.STATS_CALCULATE.start();
+        try {
+            CorpusStats counts = dictionary.getStatistics();
+            return new Stats(counts.lengthHistogram(), counts.groupCount(), largestGroups());
+        } finally {
+            Metrics.STATS_CALCULATE.stop(start);
+        }
+    }
 
-        largestGroupsSize = 0;
-        largestGroups.clear();
+    /**
+     * calculates a count of words in the dictionary and min/max/median/average word length
+     * from the word length histogram, the cost depends on the longest possible word not the size of the dictionary
+     */
+    public synchronized void calculate() {
+        if (dictionary == null)
+            return; //fixed counts
+        long start = Metrics.STATS_CALCULATE.start();
+        try {
+            tally();
+        } finally {
+            Metrics.STATS_CALCULATE.stop(start);
+        }
+    }
+
+    private void tally() {
+        CorpusStats counts = dictionary.getStatistics();
+        summarize(counts.lengthHistogram());
+        anagramCnt = counts.groupCount();
+        largestGroupsSize = counts.largestGroupSize();
+    }
 
-        List<Double> lengths = new Vector<Double>();
+    private void summarize(long[] lengths) {
+        long words = 0;
+        long totWordLength = 0;
         min = -1;
         max = -1;
+        for (int length = 0; length < lengths.length; length++) {
+            long count = lengths[length];
+            if (count <= 0) {
+                lengths[length] = 0;
+                continue;
+            }
+            words += count;
+            totWordLength += count * length;
+            min = (min == -1) ? length : min;
+            max = length;
+        }
+
+        wordCnt = (int) words;
         median = 0;
         average = 0;
-
-        if (dictionary.isEmpty())
+        if (words == 0)
             return;
 
-        int totWordLength = 0;
-        for (Iterator<Anagrams> it = dictionary.iterator(); it.hasNext(); ) {
-            Anagrams anagrams = it.next();
-            anagramCnt++;
-            List<String> words = anagrams.getWords();
-            if (words == null || words.size() == 0)
-                throw new IllegalStateException("Empty word list found");
-            wordCnt = wordCnt + words.size();
-            if (words.size() > largestGroupsSize) {
-                largestGroups.clear();
-                largestGroups.add(words);
-                largestGroupsSize = words.size();
-            } else if (words.size() == largestGroupsSize) {
-                largestGroups.add(words);
-            }
+        long mIdx = words / 2;
+        if (words % 2 == 0)
+            median = (lengthAt(lengths, mIdx) + lengthAt(lengths, mIdx - 1)) / 2.0;
+        else
+            median = lengthAt(lengths, mIdx);
+        average = (double) totWordLength / words;
+    }
 
-            for (int i = 0; i < words.size(); i++) {
-                String w = words.get(i);
-                int length = w.length();
-                lengths.add((double) length);
-                min = (min == -1) ? length : Math.min(length, min);
-                max = (max == -1) ? length : Math.max(length, max);
-                totWordLength = totWordLength + length;
-            }
+    /**
+     * Word length at a position in the sorted list of all word lengths
+     */
+    private static int lengthAt(long[] lengths, long position) {
+        long seen = 0;
+        for (int length = 0; length < lengths.length; length++) {
+            seen += lengths[length];
+            if (seen > position)
+                return length;
         }
-
-        Collections.sort(lengths);
-        int mIdx = lengths.size()/2;
-        if (lengths.size() % 2 == 0)
-            median = (lengths.get(mIdx) + lengths.get(mIdx - 1))/2;
-        else
-            median = lengths.get(mIdx);
-        average = totWordLength / wordCnt;
-//        average = lengths.parallelStream()
-//                        .mapToDouble(l -> l)
-//                        .average()
-//                        .getAsDouble();
-        calculated = true;
+        return lengths.length - 1;
     }
 
     /**
@@ -112,8 +148,16 @@ public class Stats implements Observer {
      */
     @JsonGetter
     public List<List<String>> getLargestGroups() {
-        calculate();
-        return largestGroups;
+        if (dictionary == null)
+            return largestGroups;
+        return largestGroups();
+    }
+
+    private List<List<String>> largestGroups() {
+        return dictionary.getLargestGroups()
+                .stream()
+                .map(Anagrams::getWords)
+                .collect(Collectors.toList());
     }
 
     /**
@@ -175,22 +219,4 @@ public class Stats implements Observer {
         calculate();
         return average;
     }
-
-    /**
-     * Called by the subject (the dictionary) to notify of an update, sets the calculated flag to false so stats are recalculated on next access
-     */
-    @Override
-    public void update(Observable o, Object arg) {
-        calculated = false;
-    }
-
-    /**
-     * Manual garbage collection, remove this object as an observer if it is deleted
-     * @throws Throwable
-     */
-    @Override
-    public void finalize() throws Throwable {
-        this.dictionary.deleteObserver(this);
-        super.finalize();
-    }
 }
@@ -0,0 +1,63 @@
+package com.ibotta.dao;
+
+/**
+ * Storage engines a Dictionary can be configured with (storageEngine in application.yml)
+ */
+public enum StorageEngine {
+
+    /** Groups held as java objects in a {@link SignatureMap}, the default */
+    HEAP {
+        @Override
+        public CorpusStore newStore() {
+            return new HeapCorpusStore();
+        }
+
+        @Override
+        public CorpusStore open(DictionarySnapshot snapshot) {
+            CorpusStore store = newStore();
+            snapshot.forEachGroup((high, low, words) -> words.forEach(w -> store.add(high, low, w)));
+            return store;
+        }
+    },
+
+    /** Words packed as bytes in direct memory, for corpora too large to keep as objects */
+    OFFHEAP {
+        @Override
+        public CorpusStore newStore() {
+            return new OffHeapCorpusStore();
+        }
+
+        @Override
+        public CorpusStore open(DictionarySnapshot snapshot) {
+            return new OffHeapCorpusStore(snapshot);
+        }
+    };
+
+    /**
+     * Creates an empty store for this engine
+     * @return the new store
+     */
+    public abstract CorpusStore newStore();
+
+    /**
+     * Creates a store holding the contents of a mapped snapshot
+     * @param snapshot the snapshot to serve
+     * @return the new store
+     */
+    public abstract CorpusStore open(DictionarySnapshot snapshot);
+
+    /**
+     * Looks up an engine by its configured name
+     * @param name engine name from the config, case insensitive, null for the default
+     * @return the engine
+     */
+    public static StorageEngine fromConfig(String name) {
+        if (name == null || name.trim().isEmpty())
+            return HEAP;
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Unknown storageEngine " + name);
+        }
+    }
+}
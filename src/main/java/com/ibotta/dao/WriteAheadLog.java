@@ -0,0 +1,520 @@
+package com.ibotta.dao;
+
+import org.apache.log4j.Logger;
+
+import javax.validation.constraints.NotNull;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the changes made to a Dictionary, replayed on startup so changes survive a restart.
+ *
+ * Writers append a record to an in-memory buffer while the changed group is still locked, so the log has the same
+ * order as the changes to each group, then wait in {@link #sync()} until the record is on disk.  The buffer is split
+ * into stripes by signature hash, the top bits like the store's segments, so writers to different groups append
+ * under different locks.  All the records of a group go to the same stripe and records of different groups don't
+ * depend on each other, so the order that matters survives.  A single flusher thread takes every stripe's records
+ * since its last write and writes them as one checksummed frame, then forces it to disk, so all the writers that
+ * arrived during one fsync share the next one (group commit).  A frame that was only partly written when the process
+ * died fails its checksum and ends the replay of its segment.
+ *
+ * The log is a directory of numbered segments.  Once the current segment passes compactBytes the flusher starts a new
+ * one and a background thread writes a snapshot of the whole dictionary, after which the older segments are deleted.
+ * snapshot-N holds every change logged in segments before N and possibly some from N onwards, which is safe because
+ * replaying a record is idempotent: adding a word that is there or removing one that isn't changes nothing.
+ */
+public class WriteAheadLog implements Closeable {
+
+    private final static Logger LOG = Logger.getLogger(WriteAheadLog.class);
+
+    static final byte ADD = 1;
+    static final byte REMOVE = 2;
+    static final byte REMOVE_GROUP = 3;
+
+    /** segment size that triggers a compaction when walCompactBytes isn't configured */
+    public static final long DEFAULT_COMPACT_BYTES = 64L << 20;
+
+    private static final int FRAME_HEADER_BYTES = 8;
+    private static final int STRIPE_BITS = stripeBits(Runtime.getRuntime().availableProcessors());
+    private static final int INITIAL_STRIPE_BYTES = Math.max(1 << 12, (1 << 16) >> STRIPE_BITS);
+    private static final Pattern SEGMENT = Pattern.compile("wal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT = Pattern.compile("snapshot-(\\d+)\\.snapshot");
+
+    private final File dir;
+    private final long compactBytes;
+    private final Iterable<Anagrams> source;
+
+    private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+
+    //flush requests and progress, guarded by lock
+    private final Object lock = new Object();
+    private boolean requested;
+    private long started;
+    private long completed;
+    private boolean stopped;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    //only touched by the flusher thread
+    private FileChannel channel;
+    private int segment;
+    private long segmentBytes;
+    private Thread compactor;
+
+    private volatile boolean compacting;
+    private final Thread flusher;
+
+    /**
+     * Receives the changes read back from a segment
+     */
+    interface Target {
+        void add(String word);
+        void remove(String word);
+        void removeGroup(long high, long low);
+    }
+
+    /**
+     * Records appended to the groups whose signature hash starts with one stripe's bits, since the flusher last took
+     * them.  Guarded by the stripe itself
+     */
+    private static final class Stripe {
+        private ByteBuffer pending = ByteBuffer.allocate(INITIAL_STRIPE_BYTES);
+        private ByteBuffer writing = ByteBuffer.allocate(INITIAL_STRIPE_BYTES);
+
+        ByteBuffer reserve(int bytes) {
+            if (pending.remaining() < bytes) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+                pending.flip();
+                grown.put(pending);
+                pending = grown;
+            }
+            return pending;
+        }
+
+        /**
+         * Hands the records appended so far to the flusher, ready to read.  The buffer stays the flusher's until its
+         * next call
+         */
+        synchronized ByteBuffer take() {
+            ByteBuffer full = pending;
+            pending = writing;
+            pending.clear();
+            writing = full;
+            full.flip();
+            return full;
+        }
+    }
+
+    /**
+     * What was found in a log directory at startup
+     */
+    static final class Recovery {
+        final File dir;
+        /** newest complete snapshot, null if the log was never compacted */
+        final File snapshot;
+        /** segments to replay on top of the snapshot (or the dictionary file), oldest first */
+        final List<File> segments;
+        /** number of the segment new changes go to */
+        final int next;
+
+        private Recovery(File dir, File snapshot, List<File> segments, int next) {
+            this.dir = dir;
+            this.snapshot = snapshot;
+            this.segments = segments;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Starts logging to a new segment after a recovery
+     * @param recovery the state of the log directory, see {@link #recover(File)}
+     * @param compactBytes segment size that triggers a compaction
+     * @param source what to write to the snapshot on compaction, normally the dictionary being logged
+     * @throws IOException if the new segment can't be created
+     */
+    WriteAheadLog(@NotNull Recovery recovery, long compactBytes, @NotNull Iterable<Anagrams> source) throws IOException {
+        if (compactBytes < 1)
+            throw new IllegalArgumentException("compactBytes must be positive");
+        this.dir = recovery.dir;
+        this.compactBytes = compactBytes;
+        this.source = source;
+        this.segment = recovery.next;
+        this.channel = openSegment(segment);
+        for (int i = 0; i < stripes.length; i++)
+            stripes[i] = new Stripe();
+        flusher = new Thread(this::flushLoop, "dictionary-wal");
+        flusher.setDaemon(true);
+        flusher.start();
+        LOG.info("Logging dictionary changes to " + segmentFile(segment).getAbsolutePath());
+    }
+
+    /**
+     * Enough stripes for two writers per core, at most one per store segment
+     */
+    static int stripeBits(int cores) {
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(1, cores * 2 - 1));
+        return Math.min(bits, OffHeapCorpusStore.SEGMENT_BITS);
+    }
+
+    private Stripe stripeFor(long high, long low) {
+        return (STRIPE_BITS == 0) ? stripes[0] : stripes[(int) (Signature.hash(high, low) >>> (64 - STRIPE_BITS))];
+    }
+
+    /**
+     * Lists the snapshot and segments to load from a log directory, creating the directory if needed
+     * @param dir the log directory
+     * @return what to replay
+     * @throws IOException if the directory can't be created
+     */
+    static Recovery recover(@NotNull File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Can't create write-ahead log directory " + dir.getAbsolutePath());
+        TreeMap<Integer, File> segments = numbered(dir, SEGMENT);
+        TreeMap<Integer, File> snapshots = numbered(dir, SNAPSHOT);
+        int from = snapshots.isEmpty() ? 0 : snapshots.lastKey();
+        int next = Math.max(from, segments.isEmpty() ? 0 : segments.lastKey() + 1);
+        File snapshot = snapshots.isEmpty() ? null : snapshots.lastEntry().getValue();
+        return new Recovery(dir, snapshot, new ArrayList<>(segments.tailMap(from).values()), next);
+    }
+
+    private static TreeMap<Integer, File> numbered(File dir, Pattern pattern) {
+        TreeMap<Integer, File> found = new TreeMap<>();
+        File[] files = dir.listFiles();
+        if (files == null)
+            return found;
+        for (File f : files) {
+            Matcher m = pattern.matcher(f.getName());
+            if (m.matches())
+                found.put(Integer.parseInt(m.group(1)), f);
+        }
+        return found;
+    }
+
+    /**
+     * Reads the records of a segment back in order, stopping at the first frame that is incomplete or corrupt
+     * @param segment the segment file
+     * @param target receives each record
+     * @return number of records replayed
+     * @throws IOException if the segment can't be read
+     */
+    static long replay(@NotNull File segment, @NotNull Target target) throws IOException {
+        long records = 0;
+        try (FileChannel in = FileChannel.open(segment.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_BYTES);
+            CRC32 crc = new CRC32();
+            while (true) {
+                header.clear();
+                if (!readFully(in, header))
+                    break;
+                int length = header.getInt(0);
+                long remaining = in.size() - in.position();
+                if (length < 0 || length > remaining) {
+                    LOG.warn("Incomplete frame at " + (in.position() - FRAME_HEADER_BYTES) + " in " + segment + ", ignoring the rest");
+                    break;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                readFully(in, payload);
+                crc.reset();
+                crc.update(payload.array(), 0, length);
+                if ((int) crc.getValue() != header.getInt(4)) {
+                    LOG.warn("Corrupt frame at " + (in.position() - length - FRAME_HEADER_BYTES) + " in " + segment + ", ignoring the rest");
+                    break;
+                }
+                payload.flip();
+                records += decode(payload, target);
+            }
+        }
+        return records;
+    }
+
+    private static boolean readFully(FileChannel in, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            if (in.read(buffer) < 0)
+                return false;
+        return true;
+    }
+
+    private static long decode(ByteBuffer payload, Target target) throws IOException {
+        long records = 0;
+        while (payload.hasRemaining()) {
+            byte type = payload.get();
+            switch (type) {
+                case ADD:
+                case REMOVE:
+                    byte[] bytes = new byte[payload.getShort() & 0xFFFF];
+                    payload.get(bytes);
+                    String word = new String(bytes, StandardCharsets.UTF_8);
+                    if (type == ADD)
+                        target.add(word);
+                    else
+                        target.remove(word);
+                    break;
+                case REMOVE_GROUP:
+                    target.removeGroup(payload.getLong(), payload.getLong());
+                    break;
+                default:
+                    throw new IOException("Unknown write-ahead log record type " + type);
+            }
+            records++;
+        }
+        return records;
+    }
+
+    /**
+     * Appends a word record, called while the word's group is locked.  Never throws, a failed log is reported by
+     * {@link #sync()} so the store is never left half way through a change
+     * @param type ADD or REMOVE
+     * @param high high half of the word's signature
+     * @param low low half of the word's signature
+     * @param word the word as stored
+     */
+    void append(byte type, long high, long low, String word) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        Stripe stripe = stripeFor(high, low);
+        boolean first;
+        synchronized (stripe) {
+            if (closed || failure != null)
+                return;
+            first = stripe.pending.position() == 0;
+            stripe.reserve(3 + bytes.length).put(type).putShort((short) bytes.length).put(bytes);
+        }
+        if (first)
+            request();
+    }
+
+    /**
+     * Appends a group removal record, called while the group is locked
+     */
+    void appendRemoveGroup(long high, long low) {
+        Stripe stripe = stripeFor(high, low);
+        boolean first;
+        synchronized (stripe) {
+            if (closed || failure != null)
+                return;
+            first = stripe.pending.position() == 0;
+            stripe.reserve(17).put(REMOVE_GROUP).putLong(high).putLong(low);
+        }
+        if (first)
+            request();
+    }
+
+    /**
+     * Wakes the flusher, a stripe has records it hasn't taken yet
+     */
+    private void request() {
+        synchronized (lock) {
+            requested = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Waits until every record appended so far, including the calling thread's, is on disk.  That is once a flush that
+     * started after the call has finished, since a flush takes everything appended before it started
+     * @throws UncheckedIOException if the log can't be written, or wrapping an InterruptedIOException if the thread
+     * was interrupted before the records were on disk, either way the change must not be acknowledged
+     */
+    public void sync() {
+        synchronized (lock) {
+            long target = started + 1;
+            requested = true;
+            lock.notifyAll();
+            try {
+                while (completed < target && failure == null && !stopped)
+                    lock.wait();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                InterruptedIOException interrupted = new InterruptedIOException("Interrupted waiting for the write-ahead log");
+                interrupted.initCause(ex);
+                throw new UncheckedIOException(interrupted);
+            }
+            if (failure != null)
+                throw new UncheckedIOException("Write-ahead log failed", failure);
+        }
+    }
+
+    /**
+     * Checks that records are still being written, appends are dropped once the log has failed
+     * @throws UncheckedIOException if the log has failed
+     */
+    public void checkHealthy() {
+        IOException failed = failure;
+        if (failed != null)
+            throw new UncheckedIOException("Write-ahead log failed", failed);
+    }
+
+    private void flushLoop() {
+        while (true) {
+            long flush;
+            boolean last;
+            synchronized (lock) {
+                try {
+                    while (!requested && !closed)
+                        lock.wait();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                requested = false;
+                last = closed;
+                flush = ++started;
+            }
+            try {
+                write();
+            } catch (IOException ex) {
+                LOG.error("Could not write to the write-ahead log, dictionary changes are no longer durable", ex);
+                synchronized (lock) {
+                    failure = ex;
+                    stopped = true;
+                    lock.notifyAll();
+                }
+                return;
+            }
+            synchronized (lock) {
+                completed = flush;
+                stopped = last;
+                lock.notifyAll();
+            }
+            if (last)
+                return; //closed, anything appended later is not logged
+            if (segmentBytes >= compactBytes && !compacting)
+                compact();
+        }
+    }
+
+    /**
+     * Writes the records of every stripe as one frame, nothing if no stripe has any
+     */
+    private void write() throws IOException {
+        ByteBuffer[] frame = new ByteBuffer[stripes.length + 1];
+        CRC32 crc = new CRC32();
+        int length = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            ByteBuffer payload = stripes[i].take();
+            crc.update(payload.array(), 0, payload.limit());
+            length += payload.limit();
+            frame[i + 1] = payload;
+        }
+        if (length == 0)
+            return;
+        frame[0] = ByteBuffer.allocate(FRAME_HEADER_BYTES);
+        frame[0].putInt(length).putInt((int) crc.getValue()).flip();
+        long bytes = FRAME_HEADER_BYTES + length;
+        long written = 0;
+        while (written < bytes)
+            written += channel.write(frame);
+        channel.force(false);
+        segmentBytes += bytes;
+    }
+
+    /**
+     * Moves on to a new segment and snapshots the dictionary in the background, the segments before the new one are
+     * deleted once the snapshot is complete
+     */
+    private void compact() {
+        int upTo = segment + 1;
+        try {
+            FileChannel next = openSegment(upTo);
+            channel.close();
+            channel = next;
+            segment = upTo;
+            segmentBytes = 0;
+        } catch (IOException ex) {
+            LOG.warn("Could not start write-ahead log segment " + upTo + ", compaction postponed", ex);
+            return;
+        }
+        compacting = true;
+        compactor = new Thread(() -> {
+            try {
+                File snapshot = new File(dir, String.format("snapshot-%08d.snapshot", upTo));
+                DictionarySnapshot.write(source, snapshot);
+                deleteBefore(SEGMENT, upTo);
+                deleteBefore(SNAPSHOT, upTo);
+            } catch (IOException ex) {
+                LOG.warn("Write-ahead log compaction failed, keeping the old segments", ex);
+            } finally {
+                compacting = false;
+            }
+        }, "dictionary-wal-compaction");
+        compactor.setDaemon(true);
+        compactor.start();
+    }
+
+    /**
+     * Deletes the segments and snapshots a newer snapshot has made obsolete
+     * @param recovery the recovery the log was started from
+     */
+    static void deleteObsolete(Recovery recovery) {
+        if (recovery.snapshot == null)
+            return;
+        Matcher m = SNAPSHOT.matcher(recovery.snapshot.getName());
+        if (m.matches()) {
+            int from = Integer.parseInt(m.group(1));
+            deleteBefore(recovery.dir, SEGMENT, from);
+            deleteBefore(recovery.dir, SNAPSHOT, from);
+        }
+    }
+
+    private void deleteBefore(Pattern pattern, int number) {
+        deleteBefore(dir, pattern, number);
+    }
+
+    private static void deleteBefore(File dir, Pattern pattern, int number) {
+        for (File f : numbered(dir, pattern).headMap(number).values())
+            if (!f.delete())
+                LOG.warn("Could not delete obsolete " + f.getAbsolutePath());
+    }
+
+    private FileChannel openSegment(int number) throws IOException {
+        return FileChannel.open(segmentFile(number).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private File segmentFile(int number) {
+        return new File(dir, String.format("wal-%08d.log", number));
+    }
+
+    /**
+     * Whether a compaction is running in the background
+     * @return true while a snapshot is being written
+     */
+    public boolean isCompacting() {
+        return compacting;
+    }
+
+    /**
+     * Writes whatever is still buffered, stops the flusher and waits for a running compaction, later changes are not
+     * logged
+     * @throws IOException if the last frame can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed)
+                return;
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+            if (compactor != null)
+                compactor.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null)
+            throw failure;
+    }
+}
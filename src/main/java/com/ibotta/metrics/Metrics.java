@@ -0,0 +1,44 @@
+package com.ibotta.metrics;
+
+import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Process wide timer registry.  Static so classes that aren't Spring beans (the dao package) can time themselves,
+ * the timers are published through the actuator by {@link TimerMetrics}
+ */
+public final class Metrics {
+
+    private static final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>(); //before the timers below
+
+    /** Signing a word for a single word lookup or add */
+    public static final Timer SIGNATURE = timer("signature");
+    /** Looking up one group in the corpus store */
+    public static final Timer CORPUS_LOOKUP = timer("corpus.lookup");
+    /** Loading a word list into a dictionary */
+    public static final Timer DICTIONARY_LOAD = timer("dictionary.load");
+    /** Stats.calculate() */
+    public static final Timer STATS_CALCULATE = timer("stats.calculate");
+
+    private Metrics() { }
+
+    /**
+     * Gets a timer, creating it on first use
+     * @param name dot separated name
+     * @return the timer
+     */
+    public static Timer timer(@NotNull String name) {
+        return timers.computeIfAbsent(name, Timer::new);
+    }
+
+    /**
+     * Every timer created so far
+     * @return the timers
+     */
+    public static Collection<Timer> timers() {
+        return new ArrayList<>(timers.values());
+    }
+}
@@ -0,0 +1,46 @@
+package com.ibotta.metrics;
+
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Locale;
+
+/**
+ * Times every request by endpoint, e.g. GET /anagrams/{word}.json is recorded in the timer http.get.anagrams.{word}.json.
+ * Streamed responses are timed until the last byte is written, the clock starts on the first dispatch only
+ */
+public class RequestTimer extends HandlerInterceptorAdapter {
+
+    private static final String START = RequestTimer.class.getName() + ".start";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(START) == null)
+            request.setAttribute(START, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object start = request.getAttribute(START);
+        if (start == null)
+            return;
+        Metrics.timer(timerName(request)).stop((Long) start);
+    }
+
+    /**
+     * Names the timer of a request after its method and the pattern of the handler it was mapped to, so requests for
+     * different words share one timer
+     * @param request the request
+     * @return the timer name
+     */
+    public static String timerName(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String path = (pattern != null) ? pattern.toString() : "unmapped";
+        while (path.startsWith("/"))
+            path = path.substring(1);
+        return "http." + request.getMethod().toLowerCase(Locale.ROOT) + "." + (path.isEmpty() ? "root" : path.replace('/', '.'));
+    }
+}
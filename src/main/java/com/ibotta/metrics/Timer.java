@@ -0,0 +1,128 @@
+package com.ibotta.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histogram of one operation.
+ *
+ * Recording goes to an HdrHistogram Recorder, which is wait-free and doesn't allocate, so timing a hot path costs two
+ * System.nanoTime() calls and a few array writes.  Readers swap the recorder's interval histogram out and merge it
+ * into the current window; percentiles and rate cover the current window and the one before it, roughly the last one
+ * to two minutes.  Values are counted in the window they are read in, so with no reader a window just gets longer.
+ */
+public final class Timer {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final String name;
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+
+    //guarded by this, only touched by readers
+    private Histogram interval;
+    private Histogram current = new Histogram(SIGNIFICANT_DIGITS);
+    private Histogram previous = new Histogram(SIGNIFICANT_DIGITS);
+    private long currentStart = System.nanoTime();
+    private long previousStart = currentStart;
+    private long count;
+
+    Timer(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Start of a timed section, pass the result to {@link #stop(long)}
+     * @return the current time in nanoseconds
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the time since a {@link #start()}
+     * @param start what start() returned
+     */
+    public void stop(long start) {
+        record(System.nanoTime() - start);
+    }
+
+    /**
+     * Records one measurement
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        recorder.recordValue(Math.max(0, nanos));
+    }
+
+    /**
+     * Reads what was recorded since the last read
+     * @return latencies of the last one to two windows and the count since startup
+     */
+    public synchronized Snapshot snapshot() {
+        long now = System.nanoTime();
+        interval = recorder.getIntervalHistogram(interval);
+        count += interval.getTotalCount();
+        if (now - currentStart >= WINDOW_NANOS) {
+            Histogram t = previous;
+            previous = current;
+            current = t;
+            current.reset();
+            previousStart = currentStart;
+            currentStart = now;
+        }
+        current.add(interval);
+        Histogram window = previous.copy();
+        window.add(current);
+        return new Snapshot(count, window, now - previousStart);
+    }
+
+    /**
+     * Latencies read from a timer
+     */
+    public static final class Snapshot {
+        private final long count;
+        private final Histogram window;
+        private final long windowNanos;
+
+        Snapshot(long count, Histogram window, long windowNanos) {
+            this.count = count;
+            this.window = window;
+            this.windowNanos = windowNanos;
+        }
+
+        /** @return measurements since startup */
+        public long getCount() {
+            return count;
+        }
+
+        /** @return measurements per second over the window */
+        public double getRate() {
+            return (windowNanos > 0) ? window.getTotalCount() * 1e9 / windowNanos : 0;
+        }
+
+        /** @return mean over the window in milliseconds */
+        public double getMean() {
+            return window.getMean() / 1e6;
+        }
+
+        /**
+         * @param percentile 0 to 100
+         * @return the latency at a percentile of the window in milliseconds
+         */
+        public double getPercentile(double percentile) {
+            return window.getValueAtPercentile(percentile) / 1e6;
+        }
+
+        /** @return longest measurement in the window in milliseconds */
+        public double getMax() {
+            return window.getMaxValue() / 1e6;
+        }
+    }
+}
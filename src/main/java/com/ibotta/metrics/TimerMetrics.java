@@ -0,0 +1,34 @@
+package com.ibotta.metrics;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Publishes every {@link Timer} on the actuator metrics endpoint as timer.&lt;name&gt;.count (since startup) and
+ * .rate (per second), .mean, .p50, .p95, .p99, .p999 and .max (milliseconds) over the timer's window
+ */
+public class TimerMetrics implements PublicMetrics {
+
+    private static final double[] PERCENTILES = { 50, 95, 99, 99.9 };
+    private static final String[] PERCENTILE_NAMES = { "p50", "p95", "p99", "p999" };
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        for (Timer timer : Metrics.timers()) {
+            Timer.Snapshot s = timer.snapshot();
+            String prefix = "timer." + timer.getName() + ".";
+            metrics.add(new Metric<>(prefix + "count", s.getCount()));
+            metrics.add(new Metric<>(prefix + "rate", s.getRate()));
+            metrics.add(new Metric<>(prefix + "mean", s.getMean()));
+            for (int i = 0; i < PERCENTILES.length; i++)
+                metrics.add(new Metric<>(prefix + PERCENTILE_NAMES[i], s.getPercentile(PERCENTILES[i])));
+            metrics.add(new Metric<>(prefix + "max", s.getMax()));
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,226 @@
+package com.ibotta.netty;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.ibotta.dao.Anagrams;
+import com.ibotta.dao.Dictionary;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.stream.ChunkedInput;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The groups of a size query as chunks of up to a thousand groups.  The groups are read in one pass over the
+ * dictionary by {@link #produce()}, run on the blocking pool, which hands finished chunks to the event loop through a
+ * small queue.  The pass waits while the queue is full, so a slow client never makes the server buffer the whole
+ * response and the event loop never scans the corpus.  Like the servlet stream it is weakly consistent, a group
+ * changed while the stream is being read may appear as it was either before or after the change.
+ */
+class GroupStream implements ChunkedInput<ByteBuf> {
+
+    private static final int CHUNK_GROUPS = 1000;
+    private static final int QUEUED_CHUNKS = 4;
+    private static final long OFFER_WAIT_MILLIS = 100;
+    private static final JsonFactory JSON = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private final Dictionary dictionary;
+    private final int size;
+    private final boolean ndjson;
+    private final ByteBufAllocator allocator;
+    private final Runnable resume;
+    private final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(QUEUED_CHUNKS);
+    private volatile boolean closed;
+    private boolean ended;
+    private long progress;
+
+    /**
+     * @param dictionary the dictionary to read
+     * @param size smallest group size to include
+     * @param ndjson one {"anagrams":[...]} object per line if true, otherwise a JSON array of them
+     * @param allocator allocates the chunks
+     * @param resume called after each chunk is queued, wakes the writer if it ran out of chunks
+     */
+    GroupStream(Dictionary dictionary, int size, boolean ndjson, ByteBufAllocator allocator, Runnable resume) {
+        this.dictionary = dictionary;
+        this.size = size;
+        this.ndjson = ndjson;
+        this.allocator = allocator;
+        this.resume = resume;
+    }
+
+    /**
+     * Reads the groups and queues them as chunks, returns once the last is queued or the stream is closed
+     */
+    void produce() {
+        Producer producer = new Producer();
+        try {
+            dictionary.forEachGroupBySize(size, producer::write);
+            producer.finish();
+        } catch (CancellationException ex) {
+            producer.release();
+        } catch (RuntimeException ex) {
+            producer.release();
+            try {
+                put(new Chunk(null, ex));
+            } catch (CancellationException closed) {
+                //nobody is reading any more
+            }
+        }
+    }
+
+    private void put(Chunk chunk) {
+        try {
+            while (!queue.offer(chunk, OFFER_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (closed)
+                    throw new CancellationException();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        } catch (CancellationException ex) {
+            chunk.release();
+            throw ex;
+        }
+        if (closed)
+            drain(); //closed while offering, nothing will read it
+        resume.run();
+    }
+
+    private void drain() {
+        Chunk chunk;
+        while ((chunk = queue.poll()) != null)
+            chunk.release();
+    }
+
+    @Override
+    public boolean isEndOfInput() {
+        return ended;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        ended = true;
+        drain();
+    }
+
+    @Override
+    @Deprecated
+    public ByteBuf readChunk(ChannelHandlerContext ctx) throws Exception {
+        return readChunk(ctx.alloc());
+    }
+
+    /**
+     * Takes the next queued chunk, null if none is ready yet
+     */
+    @Override
+    public ByteBuf readChunk(ByteBufAllocator allocator) throws Exception {
+        if (ended)
+            return null;
+        Chunk chunk = queue.poll();
+        if (chunk == null)
+            return null;
+        if (chunk.failure != null) {
+            ended = true;
+            throw chunk.failure;
+        }
+        ended = chunk.last;
+        progress += chunk.groups;
+        return chunk.buf;
+    }
+
+    @Override
+    public long length() {
+        return -1;
+    }
+
+    @Override
+    public long progress() {
+        return progress;
+    }
+
+    /**
+     * Writes groups into the chunk being filled, the pass's own state
+     */
+    private final class Producer {
+        private ByteBuf chunk = allocator.buffer();
+        private int groups;
+        private boolean started;
+
+        void write(Anagrams group) {
+            if (closed)
+                throw new CancellationException();
+            try (JsonGenerator json = JSON.createGenerator((OutputStream) new ByteBufOutputStream(chunk))) {
+                json.setRootValueSeparator(null);
+                if (!ndjson)
+                    json.writeRaw(started ? ',' : '[');
+                started = true;
+                json.writeStartObject();
+                json.writeArrayFieldStart("anagrams");
+                for (String w : group.getWords())
+                    json.writeString(w);
+                json.writeEndArray();
+                json.writeEndObject();
+                if (ndjson)
+                    json.writeRaw('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            if (++groups == CHUNK_GROUPS) {
+                ByteBuf full = chunk;
+                chunk = allocator.buffer();
+                groups = 0;
+                put(new Chunk(full, CHUNK_GROUPS, false));
+            }
+        }
+
+        void finish() {
+            if (!ndjson)
+                chunk.writeBytes(started ? new byte[] { ']' } : new byte[] { '[', ']' });
+            ByteBuf last = chunk;
+            chunk = null;
+            put(new Chunk(last, groups, true));
+        }
+
+        void release() {
+            if (chunk != null)
+                chunk.release();
+            chunk = null;
+        }
+    }
+
+    private static final class Chunk {
+        final ByteBuf buf;
+        final int groups;
+        final boolean last;
+        final Exception failure;
+
+        Chunk(ByteBuf buf, int groups, boolean last) {
+            this.buf = buf;
+            this.groups = groups;
+            this.last = last;
+            this.failure = null;
+        }
+
+        Chunk(ByteBuf buf, Exception failure) {
+            this.buf = buf;
+            this.groups = 0;
+            this.last = true;
+            this.failure = failure;
+        }
+
+        void release() {
+            if (buf != null)
+                buf.release();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.ibotta.netty;
+
+import com.ibotta.api.AnagramCache;
+import com.ibotta.config.AnagramConfig;
+import com.ibotta.dao.Dictionary;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpServerKeepAliveHandler;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import org.apache.log4j.Logger;
+
+import javax.validation.constraints.NotNull;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking HTTP front end for a Dictionary, an alternative to the servlet stack selected with serverMode: netty.
+ *
+ * A connection costs a channel, not a thread: a few event loop threads parse requests and answer lookups directly,
+ * work that may block or run long (writes waiting for the write-ahead log, uploads, phrase searches) goes to a small
+ * fixed pool.  Large size queries are written a page at a time as the client reads them, so a slow client holds
+ * back only its own response.  The routes and JSON are those of {@link com.ibotta.api.Endpoint}, the actuator is not
+ * available in this mode.
+ */
+public class NettyServer implements Closeable {
+
+    private final static Logger LOG = Logger.getLogger(NettyServer.class);
+
+    /** Largest request body accepted, uploads bigger than this should be split */
+    public static final int MAX_BODY_BYTES = 64 << 20;
+
+    private final EventLoopGroup boss = new NioEventLoopGroup(1, threads("netty-boss"));
+    private final EventLoopGroup workers = new NioEventLoopGroup(0, threads("netty-io"));
+    private final ExecutorService blocking;
+    private final Channel channel;
+
+    /**
+     * Starts listening
+     * @param dictionary the dictionary to serve
+     * @param cache response cache of GET /anagrams/:word.json
+     * @param port port to listen on, 0 for any free port
+     * @throws InterruptedException if interrupted while binding
+     */
+    public NettyServer(@NotNull Dictionary dictionary, @NotNull AnagramCache cache, int port) throws InterruptedException {
+        blocking = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), threads("netty-blocking"));
+        Router router = new Router(dictionary, cache, blocking);
+        channel = new ServerBootstrap()
+                .group(boss, workers)
+                .channel(NioServerSocketChannel.class)
+                .option(ChannelOption.SO_BACKLOG, 1024)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline()
+                                .addLast(new HttpServerCodec())
+                                .addLast(new HttpServerKeepAliveHandler())
+                                .addLast(new HttpObjectAggregator(MAX_BODY_BYTES))
+                                .addLast(new ChunkedWriteHandler())
+                                .addLast(router);
+                    }
+                })
+                .bind(port).sync().channel();
+        LOG.info("Netty server listening on port " + getPort());
+    }
+
+    private static ThreadFactory threads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * The port the server listens on
+     * @return the bound port
+     */
+    public int getPort() {
+        return ((InetSocketAddress) channel.localAddress()).getPort();
+    }
+
+    /**
+     * Blocks until the server is closed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitClose() throws InterruptedException {
+        channel.closeFuture().sync();
+    }
+
+    @Override
+    public void close() {
+        channel.close().syncUninterruptibly();
+        boss.shutdownGracefully(0, 5, TimeUnit.SECONDS);
+        workers.shutdownGracefully(0, 5, TimeUnit.SECONDS);
+        blocking.shutdown();
+    }
+
+    /**
+     * Loads the dictionary from the config and serves it on server.port until the process is stopped
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        AnagramConfig config = AnagramConfig.instance();
+        if (config.clusterNodes != null)
+            LOG.warn("clusterNodes is ignored in netty mode, this node serves only its own dictionary");
+        if (!config.dictionaries.isEmpty())
+            LOG.warn("dictionaries is ignored in netty mode, /dictionaries/{name} is only served in servlet mode");
+        Dictionary dictionary = new Dictionary(config);
+        AnagramCache cache = new AnagramCache(dictionary, (config.responseCacheSize != null) ? Long.parseLong(config.responseCacheSize) : 100000);
+        NettyServer server = new NettyServer(dictionary, cache, (config.serverPort != null) ? Integer.parseInt(config.serverPort) : 9000);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            try {
+                dictionary.close();
+            } catch (IOException ex) {
+                LOG.error("Could not close the dictionary", ex);
+            }
+        }, "netty-shutdown"));
+        server.awaitClose();
+    }
+}
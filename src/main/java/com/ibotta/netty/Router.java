@@ -0,0 +1,344 @@
+package com.ibotta.netty;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibotta.api.AnagramCache;
+import com.ibotta.dao.*;
+import com.ibotta.search.PhraseSearch;
+import com.ibotta.search.SubAnagramSearch;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.*;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import org.apache.log4j.Logger;
+
+import javax.validation.ValidationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Maps requests onto the dictionary the way {@link com.ibotta.api.Endpoint} does.  Lookups are answered on the event
+ * loop, anything that can block or run long, request bodies included, is handed to the blocking pool and answered
+ * from there.
+ */
+@ChannelHandler.Sharable
+class Router extends SimpleChannelInboundHandler<FullHttpRequest> {
+
+    private final static Logger LOG = Logger.getLogger(Router.class);
+
+    private static final int DEFAULT_PHRASE_WORDS = 3;
+    private static final int DEFAULT_PHRASE_LIMIT = 100;
+    static final String NDJSON = "application/x-ndjson";
+
+    private final ObjectMapper mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final Dictionary dictionary;
+    private final AnagramCache cache;
+    private final ExecutorService blocking;
+    private final Stats stats;
+    private final PhraseSearch phraseSearch;
+    private final SubAnagramSearch subAnagramSearch;
+    private final DictionaryLoader loader = new DictionaryLoader();
+
+    Router(Dictionary dictionary, AnagramCache cache, ExecutorService blocking) {
+        this.dictionary = dictionary;
+        this.cache = cache;
+        this.blocking = blocking;
+        this.stats = new Stats(dictionary);
+        this.phraseSearch = new PhraseSearch(dictionary);
+        this.subAnagramSearch = new SubAnagramSearch(dictionary);
+    }
+
+    /**
+     * A response that is ready to write
+     */
+    private interface Handler {
+        HttpResponse handle() throws Exception;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+        QueryStringDecoder uri = new QueryStringDecoder(request.uri());
+        String path = uri.path();
+        HttpMethod method = request.method();
+        String var;
+
+        if (HttpMethod.GET.equals(method)) {
+            if ((var = variable(path, "/anagrams/size/", "")) != null) {
+                int size;
+                try {
+                    size = Integer.parseInt(var);
+                } catch (NumberFormatException ex) {
+                    error(ctx, path, HttpResponseStatus.BAD_REQUEST, ex);
+                    return;
+                }
+                if (uri.parameters().containsKey("limit")) {
+                    String cursor = param(uri, "cursor");
+                    int limit;
+                    try {
+                        limit = intParam(uri, "limit", 0);
+                        Dictionary.checkPageLimit(limit);
+                        AnagramPage.parseCursor(cursor);
+                    } catch (IllegalArgumentException ex) {
+                        error(ctx, path, HttpResponseStatus.BAD_REQUEST, ex);
+                        return;
+                    }
+                    offload(ctx, path, () -> json(HttpResponseStatus.OK, dictionary.getAnagramGroupsBySize(size, cursor, limit)));
+                } else
+                    stream(ctx, path, size, accepts(request, NDJSON));
+            } else if ((var = variable(path, "/anagrams/", ".json")) != null) {
+                String word = var;
+                run(ctx, path, () -> json(HttpResponseStatus.OK, cache.getAnagrams(word, intParam(uri, "limit", null))));
+            } else if ((var = variable(path, "/subanagrams/", ".json")) != null) {
+                String letters = var;
+                offload(ctx, path, () -> json(HttpResponseStatus.OK, subAnagramSearch.search(letters, intParam(uri, "limit", null))));
+            } else if ((var = variable(path, "/phrases/", ".json")) != null) {
+                String text = var;
+                offload(ctx, path, () -> json(HttpResponseStatus.OK, phraseSearch.search(text,
+                        intParam(uri, "maxWords", DEFAULT_PHRASE_WORDS), intParam(uri, "limit", DEFAULT_PHRASE_LIMIT))));
+            } else if ((var = variable(path, "/delete/", ".json")) != null) {
+                String word = var;
+                offload(ctx, path, () -> json(HttpResponseStatus.OK, dictionary.deleteAnagrams(word)));
+            } else if (path.equals("/stats.json")) {
+                run(ctx, path, () -> json(HttpResponseStatus.OK, stats.snapshot()));
+            } else {
+                error(ctx, path, HttpResponseStatus.NOT_FOUND, null);
+            }
+        } else if (HttpMethod.POST.equals(method)) {
+            if (path.equals("/words.json")) {
+                offload(ctx, path, request, () -> {
+                    Words words = read(request, Words.class);
+                    if (words.words == null)
+                        throw new ValidationException("Null word list posted in JSON body");
+                    dictionary.addWords(words);
+                    return empty(HttpResponseStatus.CREATED);
+                });
+            } else if (path.equals("/words/stream.json")) {
+                String contentType = request.headers().get(HttpHeaderNames.CONTENT_TYPE);
+                Charset charset = HttpUtil.getCharset(request, StandardCharsets.UTF_8);
+                offload(ctx, path, request, () -> {
+                    try (InputStream in = new ByteBufInputStream(request.content())) {
+                        return json(HttpResponseStatus.CREATED, isJson(contentType) ? loader.loadJson(dictionary, in) : loader.load(dictionary, in, charset));
+                    } catch (JsonProcessingException ex) {
+                        throw new ValidationException("Could not read the posted words: " + ex.getOriginalMessage(), ex);
+                    }
+                });
+            } else if (path.equals("/anagrams.json")) {
+                offload(ctx, path, request, () -> {
+                    Words words = read(request, Words.class);
+                    if (words.words == null)
+                        throw new ValidationException("Null word list posted in JSON body");
+                    Map<String, List<String>> result = new LinkedHashMap<>();
+                    dictionary.getAnagrams(Arrays.asList(words.words), intParam(uri, "limit", null))
+                            .forEach((word, anagrams) -> result.put(word, anagrams.getWords()));
+                    return json(HttpResponseStatus.OK, result);
+                });
+            } else if (path.equals("/validate.json")) {
+                offload(ctx, path, request, () -> json(HttpResponseStatus.OK, DataUtils.validateAnagrams(read(request, String[].class))));
+            } else {
+                error(ctx, path, HttpResponseStatus.NOT_FOUND, null);
+            }
+        } else if (HttpMethod.DELETE.equals(method)) {
+            if (path.equals("/words.json")) {
+                offload(ctx, path, () -> {
+                    dictionary.deleteAll();
+                    return empty(HttpResponseStatus.NO_CONTENT);
+                });
+            } else if ((var = variable(path, "/words/", ".json")) != null) {
+                String word = var;
+                offload(ctx, path, () -> {
+                    dictionary.deleteWord(word);
+                    return empty(HttpResponseStatus.OK);
+                });
+            } else {
+                error(ctx, path, HttpResponseStatus.NOT_FOUND, null);
+            }
+        } else {
+            error(ctx, path, HttpResponseStatus.METHOD_NOT_ALLOWED, null);
+        }
+    }
+
+    /**
+     * Gets the single path segment between a prefix and a suffix
+     * @return the segment, null if the path doesn't match
+     */
+    private static String variable(String path, String prefix, String suffix) {
+        if (!path.startsWith(prefix) || !path.endsWith(suffix) || path.length() <= prefix.length() + suffix.length())
+            return null;
+        String var = path.substring(prefix.length(), path.length() - suffix.length());
+        return (var.indexOf('/') < 0) ? var : null;
+    }
+
+    private static String param(QueryStringDecoder uri, String name) {
+        List<String> values = uri.parameters().get(name);
+        return (values != null && !values.isEmpty()) ? values.get(0) : null;
+    }
+
+    private static Integer intParam(QueryStringDecoder uri, String name, Integer none) {
+        String value = param(uri, name);
+        return (value != null) ? Integer.valueOf(value.trim()) : none;
+    }
+
+    private static boolean accepts(HttpRequest request, String type) {
+        String accept = request.headers().get(HttpHeaderNames.ACCEPT);
+        return accept != null && accept.contains(type);
+    }
+
+    private static boolean isJson(String contentType) {
+        if (contentType == null)
+            return false;
+        String type = contentType.toLowerCase();
+        int semicolon = type.indexOf(';');
+        if (semicolon >= 0)
+            type = type.substring(0, semicolon);
+        type = type.trim();
+        return type.equals("application/json") || type.endsWith("+json");
+    }
+
+    /**
+     * Parses a JSON request body, a body that can't be parsed is a bad request
+     */
+    private <T> T read(FullHttpRequest request, Class<T> type) {
+        try (InputStream in = new ByteBufInputStream(request.content())) {
+            return mapper.readValue(in, type);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Answers on the event loop, for work that is quick and never waits
+     */
+    private void run(ChannelHandlerContext ctx, String path, Handler handler) {
+        try {
+            ctx.writeAndFlush(handler.handle());
+        } catch (Exception ex) {
+            failed(ctx, path, ex);
+        }
+    }
+
+    /**
+     * Answers from the blocking pool, the event loop moves on to other connections meanwhile
+     */
+    private void offload(ChannelHandlerContext ctx, String path, Handler handler) {
+        Callable<Void> task = () -> {
+            run(ctx, path, handler);
+            return null;
+        };
+        try {
+            blocking.submit(task);
+        } catch (RejectedExecutionException ex) {
+            error(ctx, path, HttpResponseStatus.SERVICE_UNAVAILABLE, ex);
+        }
+    }
+
+    /**
+     * Answers from the blocking pool with the request kept until the handler is done, so bodies are parsed and
+     * checked there rather than on the event loop
+     */
+    private void offload(ChannelHandlerContext ctx, String path, FullHttpRequest request, Handler handler) {
+        request.retain();
+        Callable<Void> task = () -> {
+            try {
+                run(ctx, path, handler);
+            } finally {
+                request.release();
+            }
+            return null;
+        };
+        try {
+            blocking.submit(task);
+        } catch (RejectedExecutionException ex) {
+            request.release();
+            error(ctx, path, HttpResponseStatus.SERVICE_UNAVAILABLE, ex);
+        }
+    }
+
+    /**
+     * Writes the groups of a size query as the client reads them, a JSON array or newline delimited JSON.  The groups
+     * are read on the blocking pool, the event loop only writes the chunks it is handed
+     */
+    private void stream(ChannelHandlerContext ctx, String path, int size, boolean ndjson) {
+        ChunkedWriteHandler writer = ctx.pipeline().get(ChunkedWriteHandler.class);
+        GroupStream groups = new GroupStream(dictionary, size, ndjson, ctx.alloc(), writer::resumeTransfer);
+        try {
+            blocking.submit(groups::produce);
+        } catch (RejectedExecutionException ex) {
+            error(ctx, path, HttpResponseStatus.SERVICE_UNAVAILABLE, ex);
+            return;
+        }
+        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, ndjson ? NDJSON : "application/json;charset=UTF-8");
+        HttpUtil.setTransferEncodingChunked(response, true);
+        ctx.write(response);
+        ctx.writeAndFlush(new HttpChunkedInput(groups))
+                .addListener((ChannelFutureListener) f -> {
+                    if (!f.isSuccess()) {
+                        LOG.debug("Size " + size + " stream to " + path + " ended early", f.cause());
+                        groups.close();
+                        f.channel().close();
+                    }
+                });
+    }
+
+    private FullHttpResponse json(HttpResponseStatus status, Object body) throws JsonProcessingException {
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, Unpooled.wrappedBuffer(mapper.writeValueAsBytes(body)));
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json;charset=UTF-8");
+        HttpUtil.setContentLength(response, response.content().readableBytes());
+        return response;
+    }
+
+    private static FullHttpResponse empty(HttpResponseStatus status) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status);
+        HttpUtil.setContentLength(response, 0);
+        return response;
+    }
+
+    private void failed(ChannelHandlerContext ctx, String path, Exception ex) {
+        if (ex instanceof IllegalArgumentException) {
+            error(ctx, path, HttpResponseStatus.BAD_REQUEST, ex);
+        } else {
+            LOG.error("Request for " + path + " failed", ex);
+            error(ctx, path, HttpResponseStatus.INTERNAL_SERVER_ERROR, ex);
+        }
+    }
+
+    /**
+     * Answers with the same error body as Spring Boot
+     */
+    private void error(ChannelHandlerContext ctx, String path, HttpResponseStatus status, Exception ex) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", System.currentTimeMillis());
+        body.put("status", status.code());
+        body.put("error", status.reasonPhrase());
+        if (ex != null) {
+            body.put("exception", ex.getClass().getName());
+            body.put("message", ex.getMessage());
+        }
+        body.put("path", path);
+        try {
+            ctx.writeAndFlush(json(status, body));
+        } catch (JsonProcessingException e) {
+            ctx.writeAndFlush(empty(status));
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        LOG.debug("Closing connection after error", cause);
+        ctx.close();
+    }
+}
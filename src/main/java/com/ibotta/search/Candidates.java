@@ -0,0 +1,89 @@
+package com.ibotta.search;
+
+import com.ibotta.dao.LetterIndex;
+import com.ibotta.dao.Signature;
+
+import java.util.Arrays;
+
+/**
+ * Signatures from a {@link LetterIndex} that fit in a set of letters, longest first, with a hash lookup
+ * from signature back to position
+ */
+final class Candidates {
+
+    final long[] highs;
+    final long[] lows;
+    final int[] lengths;
+    final int size;
+    private final int[] table; //position + 1 of each signature, 0 for an empty slot
+
+    private Candidates(long[] highs, long[] lows, int[] lengths, int size) {
+        this.highs = highs;
+        this.lows = lows;
+        this.lengths = lengths;
+        this.size = size;
+        int capacity = Integer.highestOneBit(Math.max(4, size * 2 - 1)) << 1;
+        table = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            int slot = slot(highs[i], lows[i]);
+            while (table[slot] != 0)
+                slot = (slot + 1) & (table.length - 1);
+            table[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Collects the signatures that can be spelled from some letters, allowing for blank tiles
+     * @param index the index to search
+     * @param high high half of the letters
+     * @param low low half of the letters
+     * @param blanks letters that can stand for any symbol
+     * @param maxLength longest signature to collect
+     * @return the candidates, longest first
+     */
+    static Candidates within(LetterIndex index, long high, long low, int blanks, int maxLength) {
+        int letterMask = Signature.mask(high, low);
+        long[] highs = new long[64];
+        long[] lows = new long[64];
+        int[] lengths = new int[64];
+        int n = 0;
+        for (int length = Math.min(maxLength, index.maxLength()); length > 0; length--) {
+            LetterIndex.Bucket bucket = index.bucket(length);
+            for (int i = 0; i < bucket.size(); i++) {
+                if (Integer.bitCount(bucket.mask(i) & ~letterMask) > blanks)
+                    continue; //uses more missing symbols than there are blanks
+                if (Signature.missing(bucket.high(i), bucket.low(i), high, low) > blanks)
+                    continue;
+                if (n == highs.length) {
+                    highs = Arrays.copyOf(highs, n * 2);
+                    lows = Arrays.copyOf(lows, n * 2);
+                    lengths = Arrays.copyOf(lengths, n * 2);
+                }
+                highs[n] = bucket.high(i);
+                lows[n] = bucket.low(i);
+                lengths[n] = length;
+                n++;
+            }
+        }
+        return new Candidates(highs, lows, lengths, n);
+    }
+
+    /**
+     * Position of a signature
+     * @return the position, -1 if it isn't a candidate
+     */
+    int indexOf(long high, long low) {
+        int slot = slot(high, low);
+        while (table[slot] != 0) {
+            int i = table[slot] - 1;
+            if (highs[i] == high && lows[i] == low)
+                return i;
+            slot = (slot + 1) & (table.length - 1);
+        }
+        return -1;
+    }
+
+    private int slot(long high, long low) {
+        return (int) Signature.hash(high, low) & (table.length - 1);
+    }
+}
@@ -0,0 +1,248 @@
+package com.ibotta.search;
+
+import com.ibotta.dao.Anagrams;
+import com.ibotta.dao.Dictionary;
+import com.ibotta.dao.Signature;
+import org.apache.log4j.Logger;
+
+import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+/**
+ * Finds combinations of dictionary words whose letters together are exactly the letters of a phrase.
+ *
+ * The search runs over group signatures, not words.  The candidates are the signatures that fit in the phrase,
+ * longest first, and a combination is built by subtracting their letter counts until nothing is left.
+ * Combinations are built in non-decreasing candidate order so each one is found once, the last word is looked up
+ * directly from the letters that remain instead of searched for, and a branch stops as soon as the words still
+ * allowed can't be long enough to use up the remaining letters.
+ *
+ * Phrases are searched one word count at a time, fewest first, and each word count is searched to the end before
+ * the results are cut at the limit, so a limited result is always the first phrases of the unlimited one.  Within a
+ * word count each first word is a separate task on a fork-join pool of the searches' own, so phrase searches never
+ * hold up the common pool the loader and batch lookups run on.  The search stops at the time limit.
+ */
+public class PhraseSearch {
+
+    private final static Logger LOG = Logger.getLogger(PhraseSearch.class);
+
+    /** Most words allowed in a phrase */
+    public static final int MAX_WORDS = 5;
+
+    /** Most phrases one search may return */
+    public static final int MAX_LIMIT = 10000;
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+        ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        t.setName("phrase-search-" + t.getPoolIndex());
+        return t;
+    }, null, false);
+
+    private static final long DEFAULT_TIMEOUT_MILLIS = 2000;
+
+    private final Dictionary dictionary;
+    private final ForkJoinPool pool;
+    private final long timeoutMillis;
+
+    /**
+     * Search on the shared phrase search pool with the default time limit
+     * @param dictionary the dictionary to search
+     */
+    public PhraseSearch(@NotNull Dictionary dictionary) {
+        this(dictionary, POOL, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param dictionary the dictionary to search
+     * @param pool pool that runs the search tasks
+     * @param timeoutMillis time limit of a single search
+     */
+    public PhraseSearch(@NotNull Dictionary dictionary, @NotNull ForkJoinPool pool, long timeoutMillis) {
+        this.dictionary = dictionary;
+        this.pool = pool;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Finds the phrases that use exactly the letters of some text, spaces are ignored
+     * @param text the letters to use
+     * @param maxWords most words in a phrase, 1 to {@link #MAX_WORDS}
+     * @param limit most phrases to return, 1 to {@link #MAX_LIMIT}
+     * @return the phrases, fewest words first then alphabetical, the words of each phrase in alphabetical order
+     */
+    public Phrases search(@NotNull String text, int maxWords, int limit) {
+        if (maxWords < 1 || maxWords > MAX_WORDS)
+            throw new IllegalArgumentException("maxWords must be between 1 and " + MAX_WORDS);
+        if (limit < 1 || limit > MAX_LIMIT)
+            throw new IllegalArgumentException("limit must be 1 to " + MAX_LIMIT);
+        String letters = text.replaceAll("\\s", "").toLowerCase();
+        long high = Signature.high(letters);
+        long low = Signature.low(letters);
+        if (!Signature.isValid(high, low))
+            throw new IllegalArgumentException(text + " is not a valid phrase");
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        Candidates candidates = Candidates.within(dictionary.getLetterIndex(), high, low, 0, letters.length());
+        List<List<String>> phrases = new ArrayList<>();
+        boolean truncated = false;
+        for (int words = 1; words <= maxWords && !truncated; words++) {
+            if (phrases.size() == limit) {
+                truncated = true; //phrases of more words were never looked at
+                break;
+            }
+            Search search = new Search(candidates, words, limit - phrases.size(), deadline);
+            pool.submit(() -> IntStream.range(0, candidates.size).parallel().forEach(i -> search.first(i, high, low, letters.length()))).join();
+            phrases.addAll(search.sorted());
+            truncated = search.truncated.get();
+        }
+        if (LOG.isDebugEnabled())
+            LOG.debug(phrases.size() + " phrases for " + letters + " from " + candidates.size + " candidates in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms" + (truncated ? ", truncated" : ""));
+        return new Phrases(phrases, truncated);
+    }
+
+    /**
+     * State of the search for the phrases of one word count, shared by its tasks.  Keeps the phrases that sort first,
+     * each as its words joined by spaces
+     */
+    private final class Search {
+        final Candidates c;
+        final int maxWords;
+        final int limit;
+        final long deadline;
+        final PriorityQueue<String> kept = new PriorityQueue<>(Comparator.reverseOrder());
+        final AtomicBoolean truncated = new AtomicBoolean();
+        private volatile boolean timedOut;
+
+        /**
+         * @param maxWords the word count of every phrase found
+         * @param limit most phrases to keep
+         */
+        Search(Candidates candidates, int maxWords, int limit, long deadline) {
+            this.c = candidates;
+            this.maxWords = maxWords;
+            this.limit = limit;
+            this.deadline = deadline;
+        }
+
+        /**
+         * @return the kept phrases in order
+         */
+        List<List<String>> sorted() {
+            List<String> keys = new ArrayList<>(kept);
+            Collections.sort(keys);
+            List<List<String>> phrases = new ArrayList<>(keys.size());
+            for (String key : keys)
+                phrases.add(Arrays.asList(key.split(" ")));
+            return phrases;
+        }
+
+        void first(int i, long high, long low, int length) {
+            if (timedOut)
+                return;
+            int[] path = new int[maxWords];
+            path[0] = i;
+            extend(1, i, high - c.highs[i], low - c.lows[i], length - c.lengths[i], path, new int[1]);
+        }
+
+        /**
+         * Adds words at or after candidate start until the remaining letters are used up
+         */
+        private void extend(int depth, int start, long high, long low, int remaining, int[] path, int[] ticks) {
+            if (remaining == 0) {
+                if (depth == maxWords)
+                    emit(path, depth);
+                return;
+            }
+            if (depth == maxWords)
+                return;
+            if (depth == maxWords - 1) {
+                int last = c.indexOf(high, low);
+                if (last >= start) {
+                    path[depth] = last;
+                    emit(path, depth + 1);
+                }
+                return;
+            }
+            for (int j = start; j < c.size; j++) {
+                if ((++ticks[0] & 1023) == 0 && stop())
+                    return;
+                int length = c.lengths[j];
+                if (length > remaining)
+                    continue;
+                if (length * (maxWords - depth) < remaining)
+                    break; //every later candidate is shorter still
+                if (!Signature.fits(c.highs[j], c.lows[j], high, low))
+                    continue;
+                path[depth] = j;
+                extend(depth + 1, j, high - c.highs[j], low - c.lows[j], remaining - length, path, ticks);
+                if (timedOut)
+                    return;
+            }
+        }
+
+        private boolean stop() {
+            if (!timedOut && System.nanoTime() - deadline > 0) {
+                timedOut = true;
+                truncated.set(true);
+            }
+            return timedOut;
+        }
+
+        /**
+         * Turns a combination of signatures into phrases, a signature used more than once picks its words
+         * in non-decreasing order so the same phrase isn't produced twice
+         */
+        private void emit(int[] path, int words) {
+            List<List<String>> groups = new ArrayList<>(words);
+            for (int k = 0; k < words; k++) {
+                Anagrams group = dictionary.getGroup(c.highs[path[k]], c.lows[path[k]]);
+                if (group == null || group.getWords().isEmpty())
+                    return; //removed since the index was updated
+                groups.add(group.getWords());
+            }
+            expand(path, groups, 0, 0, new String[words]);
+        }
+
+        private void expand(int[] path, List<List<String>> groups, int k, int from, String[] phrase) {
+            if (k == phrase.length) {
+                keep(phrase);
+                return;
+            }
+            List<String> group = groups.get(k);
+            for (int w = from; w < group.size() && !timedOut; w++) {
+                phrase[k] = group.get(w);
+                boolean repeat = k + 1 < phrase.length && path[k + 1] == path[k];
+                expand(path, groups, k + 1, repeat ? w : 0, phrase);
+            }
+        }
+
+        private void keep(String[] phrase) {
+            String[] words = phrase.clone();
+            Arrays.sort(words);
+            String key = String.join(" ", words);
+            synchronized (kept) {
+                if (kept.size() < limit) {
+                    kept.add(key);
+                    return;
+                }
+                truncated.set(true);
+                if (key.compareTo(kept.peek()) < 0) {
+                    kept.poll();
+                    kept.add(key);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.ibotta.search;
+
+import com.fasterxml.jackson.annotation.JsonGetter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wrapper for the phrases returned in JSON response
+ */
+public class Phrases {
+    private List<List<String>> phrases = new ArrayList<>();
+    private boolean truncated;
+
+    public Phrases() { }
+
+    public Phrases(List<List<String>> phrases, boolean truncated) {
+        this.phrases = phrases;
+        this.truncated = truncated;
+    }
+
+    @JsonGetter(value = "phrases")
+    public List<List<String>> getPhrases() {
+        return phrases;
+    }
+
+    public void setPhrases(List<List<String>> phrases) {
+        this.phrases = phrases;
+    }
+
+    /**
+     * True when the search stopped at the result limit or ran out of time, so there may be more phrases
+     */
+    @JsonGetter(value = "truncated")
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+}
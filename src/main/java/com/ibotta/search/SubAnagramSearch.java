@@ -0,0 +1,74 @@
+package com.ibotta.search;
+
+import com.ibotta.dao.Anagrams;
+import com.ibotta.dao.Dictionary;
+import com.ibotta.dao.Signature;
+
+import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Finds the dictionary words that can be spelled from some or all of a rack of letters, Scrabble style.
+ *
+ * Blank tiles ({@link #BLANKS}) stand for any letter.  Only the lengths that fit in the rack are visited in the
+ * {@link com.ibotta.dao.LetterIndex}, and within them a group is rejected by its symbol mask before its letter counts
+ * are compared, so most of the dictionary is never looked at.
+ */
+public class SubAnagramSearch {
+
+    /** Characters accepted as blank tiles */
+    public static final String BLANKS = "_*";
+
+    private final Dictionary dictionary;
+
+    public SubAnagramSearch(@NotNull Dictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Finds the words that can be spelled from a rack
+     * @param rack the letters available, blanks count as any letter
+     * @param limit most words to return, null for no limit
+     * @return the words, longest first then alphabetical
+     */
+    public Anagrams search(@NotNull String rack, Integer limit) {
+        if (limit != null && limit < 0)
+            throw new IllegalArgumentException("limit must not be negative");
+        StringBuilder letters = new StringBuilder(rack.length());
+        int blanks = 0;
+        for (int i = 0; i < rack.length(); i++) {
+            char c = rack.charAt(i);
+            if (BLANKS.indexOf(c) >= 0)
+                blanks++;
+            else
+                letters.append(Character.toLowerCase(c));
+        }
+        long high = Signature.high(letters);
+        long low = Signature.low(letters);
+        if ((high | low) < 0 || rack.isEmpty())
+            throw new IllegalArgumentException(rack + " is not a valid rack of letters");
+
+        Candidates candidates = Candidates.within(dictionary.getLetterIndex(), high, low, blanks, rack.length());
+        int max = (limit != null) ? limit : Integer.MAX_VALUE;
+        List<String> words = new ArrayList<>();
+        //candidates come longest first, once the limit is reached the rest of that length is still collected so the
+        //cut is made in sorted order rather than index order
+        int cutLength = -1;
+        for (int i = 0; i < candidates.size && max > 0; i++) {
+            if (cutLength >= 0 && candidates.lengths[i] != cutLength)
+                break;
+            Anagrams group = dictionary.getGroup(candidates.highs[i], candidates.lows[i]);
+            if (group == null)
+                continue; //removed since the index was updated
+            words.addAll(group.getWords());
+            if (cutLength < 0 && words.size() >= max)
+                cutLength = candidates.lengths[i];
+        }
+        words.sort(Comparator.comparingInt(String::length).reversed().thenComparing(Comparator.naturalOrder()));
+        if (words.size() > max)
+            words = new ArrayList<>(words.subList(0, max));
+        return new Anagrams(words);
+    }
+}
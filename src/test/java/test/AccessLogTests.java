@@ -0,0 +1,66 @@
+package test;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.ibotta.api.AccessLog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the sampled access log
+ */
+public class AccessLogTests {
+
+    private Logger logger;
+    private ListAppender<ILoggingEvent> appender;
+
+    @Before
+    public void before() {
+        logger = (Logger) LoggerFactory.getLogger("access");
+        appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @After
+    public void after() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    public void logsSampledRequests() {
+        request(new AccessLog(1), "/anagrams/read.json");
+        assertEquals(1, appender.list.size());
+        String line = appender.list.get(0).getFormattedMessage();
+        assertTrue(line, line.matches("GET /anagrams/read\\.json 200 \\d+us"));
+    }
+
+    @Test
+    public void samplingOff() {
+        for (int i = 0; i < 100; i++)
+            request(new AccessLog(0), "/anagrams/read.json");
+        assertTrue(appender.list.isEmpty());
+    }
+
+    @Test
+    public void samplesAFraction() {
+        AccessLog log = new AccessLog(10);
+        for (int i = 0; i < 10000; i++)
+            request(log, "/stats.json");
+        assertTrue(appender.list.size() > 500 && appender.list.size() < 1500);
+    }
+
+    private static void request(AccessLog log, String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        log.preHandle(request, response, null);
+        log.afterCompletion(request, response, null, null);
+    }
+}
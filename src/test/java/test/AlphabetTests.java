@@ -0,0 +1,110 @@
+package test;
+
+import com.ibotta.config.AnagramConfig;
+import com.ibotta.dao.Alphabet;
+import com.ibotta.dao.DataUtils;
+import com.ibotta.dao.Dictionary;
+import com.ibotta.dao.DictionarySnapshot;
+import com.ibotta.dao.Signature;
+import com.ibotta.dao.StorageEngine;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks character validation and folding for the built in and custom alphabets
+ */
+public class AlphabetTests {
+
+    @After
+    public void after() {
+        Alphabet.use(Alphabet.ENGLISH);
+    }
+
+    @Test
+    public void english() {
+        Alphabet english = Alphabet.ENGLISH;
+        assertTrue(english.isValid("Jean-Pierre"));
+        assertFalse(english.isValid("café"));
+        assertFalse(english.isValid("bird's"));
+        assertFalse(english.isValid(""));
+        assertFalse(english.isValid(null));
+        assertEquals(26, english.symbol('-'));
+        assertEquals(-1, english.symbol('Ā'));
+        assertEquals(-1, english.symbol('￿'));
+    }
+
+    @Test
+    public void latin1FoldsAccents() {
+        assertTrue(Alphabet.LATIN1.isValid("Crème-Brûlée"));
+        assertFalse(Alphabet.LATIN1.isValid("naïve1"));
+        assertEquals(Alphabet.LATIN1.symbol('e'), Alphabet.LATIN1.symbol('É'));
+        assertSame(Alphabet.LATIN1, Alphabet.fromConfig(" Latin1 "));
+        assertSame(Alphabet.ENGLISH, Alphabet.fromConfig(null));
+
+        assertFalse(DataUtils.validCharacters("café"));
+        Alphabet.use(Alphabet.LATIN1);
+        assertTrue(DataUtils.validCharacters("café"));
+        assertTrue(DataUtils.validateAnagrams(new String[] { "café", "face" }));
+        assertEquals(Signature.high("face"), Signature.high("CAFÉ"));
+
+        Dictionary dictionary = new Dictionary(StorageEngine.HEAP);
+        dictionary.addWords(new String[] { "café", "face" });
+        assertEquals(Arrays.asList("face"), dictionary.getAnagrams("café").getWords());
+    }
+
+    @Test
+    public void snapshotsKeepTheirAlphabet() throws IOException {
+        File snapshot = File.createTempFile("anagrams", ".snapshot");
+        File words = File.createTempFile("anagrams", ".txt");
+        try {
+            Dictionary english = new Dictionary(StorageEngine.HEAP);
+            english.addWords(new String[] { "cat", "act" });
+            english.writeSnapshot(snapshot);
+            assertEquals("english", DictionarySnapshot.alphabetOf(snapshot));
+
+            Alphabet.use(Alphabet.LATIN1);
+            try {
+                DictionarySnapshot.map(snapshot);
+                fail("mapped under another alphabet");
+            } catch (IOException expected) {
+            }
+            Files.write(words.toPath(), Arrays.asList("face", "cafe"));
+            AnagramConfig config = new AnagramConfig();
+            config.alphabet = "latin1";
+            config.dictionaryFile = words.getPath();
+            config.snapshotFile = snapshot.getPath();
+            Dictionary dictionary = new Dictionary(config); //falls back to the word list
+            assertTrue(dictionary.containsWord("face"));
+            assertFalse(dictionary.containsWord("cat"));
+        } finally {
+            snapshot.delete();
+            words.delete();
+        }
+    }
+
+    @Test
+    public void customAlphabet() {
+        Alphabet turkish = Alphabet.ENGLISH.extend("turkish", "ıİçşğöü'", "iicsgou-");
+        assertTrue(turkish.isValid("kıyı"));
+        assertEquals(turkish.symbol('i'), turkish.symbol('ı'));
+        assertEquals(26, turkish.symbol('\''));
+        assertEquals(-1, Alphabet.ENGLISH.symbol('\'')); //the base alphabet is unchanged
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void customMustCountAsKnownCharacter() {
+        Alphabet.ENGLISH.extend("broken", "ß", "1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownAlphabet() {
+        Alphabet.fromConfig("klingon");
+    }
+}
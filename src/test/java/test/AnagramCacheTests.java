@@ -0,0 +1,79 @@
+package test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibotta.api.AnagramCache;
+import com.ibotta.dao.Anagrams;
+import com.ibotta.dao.Dictionary;
+import com.ibotta.dao.StorageEngine;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the pre-serialized response cache of GET /anagrams/:word.json
+ */
+public class AnagramCacheTests {
+
+    private Dictionary dictionary;
+    private AnagramCache cache;
+
+    @Before
+    public void before() {
+        dictionary = new Dictionary(StorageEngine.HEAP);
+        dictionary.addWords(new String[] { "read", "dear", "dare", "cat", "act" });
+        cache = new AnagramCache(dictionary, 1000);
+    }
+
+    @Test
+    public void hitsUntilTheGroupChanges() {
+        Anagrams first = cache.getAnagrams("Read", null);
+        assertEquals(Arrays.asList("dear", "dare"), first.getWords());
+        assertSame(first, cache.getAnagrams("read", null));
+        assertNotSame(first, cache.getAnagrams("read", 1));
+
+        dictionary.addWord("tac"); //another group
+        assertSame(first, cache.getAnagrams("read", null));
+
+        dictionary.addWord("ared");
+        assertEquals(Arrays.asList("dear", "dare", "ared"), cache.getAnagrams("read", null).getWords());
+        dictionary.deleteAnagrams("dear");
+        assertTrue(cache.getAnagrams("read", null).getWords().isEmpty());
+        dictionary.addWord("read");
+        assertTrue(cache.getAnagrams("read", null).getWords().isEmpty());
+        dictionary.addWord("dear");
+        assertEquals(Arrays.asList("dear"), cache.getAnagrams("read", null).getWords());
+        dictionary.deleteAll();
+        assertTrue(cache.getAnagrams("read", null).getWords().isEmpty());
+    }
+
+    @Test
+    public void writesTheSameJson() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        for (Integer limit : new Integer[] { null, 0, 1, 5 })
+            assertEquals(mapper.writeValueAsString(dictionary.getAnagrams("read", limit)),
+                    mapper.writeValueAsString(cache.getAnagrams("read", limit)));
+        assertEquals("{\"anagrams\":[]}", mapper.writeValueAsString(cache.getAnagrams("nothing", null)));
+    }
+
+    @Test
+    public void publishesHitRate() {
+        cache.getAnagrams("cat", null);
+        cache.getAnagrams("cat", null);
+        cache.getAnagrams("cat", null);
+        dictionary.deleteWord("act");
+        cache.getAnagrams("cat", null);
+
+        Map<String, Number> metrics = cache.metrics().stream().collect(Collectors.toMap(Metric::getName, Metric::getValue));
+        assertEquals(2L, metrics.get("cache.anagrams.hits"));
+        assertEquals(2L, metrics.get("cache.anagrams.misses"));
+        assertEquals(0.5, metrics.get("cache.anagrams.hitRate").doubleValue(), 0.001);
+        assertNotNull(metrics.get("cache.anagrams.evictions"));
+    }
+}
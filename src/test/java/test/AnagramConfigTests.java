@@ -30,4 +30,9 @@ public class AnagramConfigTests {
     public void dictionary() {
         assertEquals("dictionary.txt", config.dictionaryFile);
     }
+
+    @Test
+    public void storageEngine() {
+        assertEquals("heap", config.storageEngine);
+    }
 }
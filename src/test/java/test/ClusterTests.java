@@ -0,0 +1,241 @@
+package test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibotta.Application;
+import com.ibotta.cluster.HashRing;
+import com.ibotta.dao.Dictionary;
+import com.ibotta.dao.Signature;
+import com.ibotta.dao.Stats;
+import org.apache.commons.io.IOUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs three nodes in this process, each group is kept on two of them
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class ClusterTests {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int NODES = 3;
+
+    private static final List<String> urls = new ArrayList<>();
+    private static final ConfigurableApplicationContext[] nodes = new ConfigurableApplicationContext[NODES];
+
+    @BeforeClass
+    public static void start() throws IOException {
+        int[] ports = new int[NODES];
+        for (int i = 0; i < NODES; i++) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                ports[i] = socket.getLocalPort();
+            }
+            urls.add("http://localhost:" + ports[i]);
+        }
+        for (int i = 0; i < NODES; i++)
+            nodes[i] = new SpringApplicationBuilder(Application.class).run(
+                    "--server.port=" + ports[i],
+                    "--management.port=0",
+                    "--spring.jmx.enabled=false",
+                    "--clusterNodes=" + String.join(",", urls),
+                    "--clusterSelf=" + urls.get(i),
+                    "--clusterReplicas=2");
+    }
+
+    @AfterClass
+    public static void stop() {
+        for (ConfigurableApplicationContext node : nodes)
+            if (node != null && node.isActive())
+                node.close();
+    }
+
+    @Test
+    public void a_ringSpreadsAndMovesLittle() {
+        HashRing three = new HashRing(urls, HashRing.DEFAULT_POINTS);
+        List<String> reversed = new ArrayList<>(urls);
+        Collections.reverse(reversed);
+        HashRing same = new HashRing(reversed, HashRing.DEFAULT_POINTS);
+        List<String> grown = new ArrayList<>(urls);
+        grown.add("http://localhost:1");
+        HashRing four = new HashRing(grown, HashRing.DEFAULT_POINTS);
+
+        int[] counts = new int[NODES];
+        int moved = 0;
+        int keys = 30000;
+        for (int i = 0; i < keys; i++) {
+            long hash = Signature.hash(i, i * 31L);
+            int primary = three.primary(hash);
+            counts[primary]++;
+            assertEquals(urls.get(primary), reversed.get(same.primary(hash)));
+            if (!grown.get(four.primary(hash)).equals(urls.get(primary))) {
+                assertEquals(3, four.primary(hash)); //keys only move to the new node
+                moved++;
+            }
+            int[] owners = three.owners(hash, 2);
+            assertEquals(primary, owners[0]);
+            assertNotEquals(owners[0], owners[1]);
+        }
+        for (int count : counts)
+            assertEquals(keys / NODES, count, keys / 10);
+        assertEquals(keys / 4, moved, keys / 10);
+    }
+
+    @Test
+    public void b_statsAddUpTheSeed() throws IOException {
+        Dictionary seed = dictionary(0); //every node starts with the whole dictionary file
+        Stats local = new Stats(seed);
+        for (int i = 0; i < NODES; i++) {
+            JsonNode stats = MAPPER.readTree(request(i, "GET", "/stats.json", null, null).body);
+            assertEquals(local.getWordCount(), stats.get("wordCount").asInt());
+            assertEquals(local.getAnagramCount(), stats.get("anagramCount").asInt());
+            assertEquals(local.getMedian(), stats.get("median").asDouble(), 0);
+            assertEquals((int) local.getLargestGroupsSize(), stats.get("largestGroupsSize").asInt());
+            assertEquals(groups(local.getLargestGroups()), groups(stats.get("largestGroups")));
+        }
+    }
+
+    @Test
+    public void c_writesReachEveryOwner() throws IOException {
+        int words = new Stats(dictionary(0)).getWordCount();
+        assertEquals(201, request(0, "POST", "/words.json", "application/json", "{\"words\":[\"qzxv\",\"vxzq\",\"zqvx\"]}").status);
+        for (int i = 0; i < NODES; i++) {
+            JsonNode anagrams = MAPPER.readTree(request(i, "GET", "/anagrams/qzxv.json", null, null).body).get("anagrams");
+            assertEquals(new HashSet<>(Arrays.asList("vxzq", "zqvx")), words(anagrams));
+        }
+        assertEquals(2, Arrays.stream(nodes).filter(n -> n.getBean(Dictionary.class).containsWord("qzxv")).count());
+        assertEquals(words + 3, MAPPER.readTree(request(2, "GET", "/stats.json", null, null).body).get("wordCount").asInt());
+
+        JsonNode batch = MAPPER.readTree(request(1, "POST", "/anagrams.json", "application/json", "{\"words\":[\"zqvx\",\"act\",\"xxxxq\"]}").body);
+        assertEquals(new HashSet<>(Arrays.asList("qzxv", "vxzq")), words(batch.get("zqvx")));
+        assertEquals(new HashSet<>(dictionary(0).getAnagrams("act").getWords()), words(batch.get("act")));
+        assertEquals(0, batch.get("xxxxq").size());
+
+        Response stream = request(1, "POST", "/words/stream.json", "text/plain", "wxyq\nqywx\nwxyq\n");
+        assertEquals(2, MAPPER.readTree(stream.body).get("added").asInt());
+        assertEquals("[\"qywx\"]", MAPPER.readTree(request(2, "GET", "/anagrams/wxyq.json", null, null).body).get("anagrams").toString());
+    }
+
+    @Test
+    public void d_sizeQueriesFanOut() throws IOException {
+        Set<Set<String>> expected = dictionary(0).getAnagramGroupsBySize(5).stream()
+                .map(a -> new HashSet<>(a.getWords())).collect(Collectors.toSet());
+        assertFalse(expected.isEmpty());
+        JsonNode all = MAPPER.readTree(request(2, "GET", "/anagrams/size/5", null, null).body);
+        assertEquals(expected.size(), all.size());
+        assertEquals(expected, groups(all));
+
+        Set<Set<String>> paged = new HashSet<>();
+        String cursor = null;
+        do {
+            String query = "/anagrams/size/5?limit=7" + ((cursor != null) ? "&cursor=" + cursor : "");
+            JsonNode page = MAPPER.readTree(request(1, "GET", query, null, null).body);
+            for (JsonNode group : page.get("groups"))
+                assertTrue(paged.add(words(group.get("anagrams"))));
+            cursor = page.get("next").isNull() ? null : page.get("next").asText();
+        } while (cursor != null);
+        assertEquals(expected, paged);
+
+        HttpURLConnection c = open(0, "GET", "/anagrams/size/5");
+        c.setRequestProperty("Accept", "application/x-ndjson");
+        Set<Set<String>> streamed = new HashSet<>();
+        for (String line : IOUtils.toString(c.getInputStream(), StandardCharsets.UTF_8).trim().split("\n")) {
+            assertTrue(line, line.startsWith("{\"anagrams\":["));
+            assertTrue(streamed.add(words(MAPPER.readTree(line).get("anagrams"))));
+        }
+        assertEquals(expected, streamed);
+    }
+
+    @Test
+    public void e_deletesReachEveryOwner() throws IOException {
+        assertEquals(200, request(2, "DELETE", "/words/qzxv.json", null, null).status);
+        assertEquals("[\"zqvx\"]", MAPPER.readTree(request(0, "GET", "/anagrams/vxzq.json", null, null).body).get("anagrams").toString());
+        JsonNode removed = MAPPER.readTree(request(1, "GET", "/delete/zqvx.json", null, null).body).get("anagrams");
+        assertEquals(new HashSet<>(Arrays.asList("vxzq", "zqvx")), words(removed));
+        for (ConfigurableApplicationContext node : nodes)
+            assertFalse(node.getBean(Dictionary.class).containsWord("vxzq"));
+    }
+
+    @Test
+    public void f_readsFailOverWritesFail() throws IOException {
+        HashRing ring = new HashRing(urls, HashRing.DEFAULT_POINTS);
+        int[] owners = ring.owners(Signature.hash(Signature.high("wxyq"), Signature.low("wxyq")), 2);
+        int other = 3 - owners[0] - owners[1];
+        nodes[owners[0]].close();
+
+        Response read = request(other, "GET", "/anagrams/wxyq.json", null, null);
+        assertEquals(200, read.status);
+        assertEquals("[\"qywx\"]", MAPPER.readTree(read.body).get("anagrams").toString());
+        assertEquals(503, request(other, "POST", "/words.json", "application/json", "{\"words\":[\"yqxw\"]}").status);
+        assertEquals(503, request(other, "GET", "/stats.json", null, null).status);
+    }
+
+    private static Dictionary dictionary(int node) {
+        return nodes[node].getBean(Dictionary.class);
+    }
+
+    private static Set<String> words(JsonNode array) {
+        Set<String> words = new HashSet<>();
+        array.forEach(w -> words.add(w.asText()));
+        return words;
+    }
+
+    private static Set<Set<String>> groups(JsonNode array) {
+        Set<Set<String>> groups = new HashSet<>();
+        for (JsonNode group : array)
+            groups.add(words(group.isArray() ? group : group.get("anagrams")));
+        return groups;
+    }
+
+    private static Set<Set<String>> groups(List<List<String>> lists) {
+        return lists.stream().map(HashSet::new).collect(Collectors.toSet());
+    }
+
+    private HttpURLConnection open(int node, String method, String path) throws IOException {
+        HttpURLConnection c = (HttpURLConnection) new URL(urls.get(node) + path).openConnection();
+        c.setRequestMethod(method);
+        return c;
+    }
+
+    private Response request(int node, String method, String path, String contentType, String body) throws IOException {
+        HttpURLConnection c = open(node, method, path);
+        if (body != null) {
+            c.setDoOutput(true);
+            c.setRequestProperty("Content-Type", contentType);
+            try (OutputStream out = c.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        Response r = new Response();
+        r.status = c.getResponseCode();
+        InputStream in = (r.status < 400) ? c.getInputStream() : c.getErrorStream();
+        r.body = (in != null) ? IOUtils.toString(in, StandardCharsets.UTF_8) : "";
+        return r;
+    }
+
+    private static class Response {
+        int status;
+        String body;
+    }
+}
@@ -0,0 +1,164 @@
+package test;
+
+import com.ibotta.api.Endpoint;
+import com.ibotta.dao.Anagrams;
+import com.ibotta.dao.DataUtils;
+import com.ibotta.dao.Dictionary;
+import com.ibotta.dao.StorageEngine;
+import com.ibotta.dao.Words;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Hammers the endpoint from several threads with mixed reads and writes against a few shared anagram groups,
+ * then checks that no write was lost and no read saw a broken group
+ */
+@RunWith(Parameterized.class)
+public class ConcurrencyTests {
+
+    private static final int THREADS = 4;
+    private static final int ROUNDS = 1000;
+
+    private final StorageEngine engine;
+    private Dictionary dictionary;
+    private Endpoint endpoint;
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> engines() {
+        return Arrays.stream(StorageEngine.values()).map(e -> new Object[] { e }).collect(Collectors.toList());
+    }
+
+    public ConcurrencyTests(StorageEngine engine) {
+        this.engine = engine;
+    }
+
+    @Before
+    public void before() {
+        dictionary = new Dictionary(engine);
+        endpoint = new Endpoint(dictionary);
+    }
+
+    @Test
+    public void mixedReadsAndWrites() throws Exception {
+        //every thread owns its own words but they all land in the same group
+        List<String> words = permutations("abcdef");
+        List<Set<String>> expected = run(thread -> {
+            Random random = new Random(thread);
+            Set<String> owned = new HashSet<>();
+            for (int round = 0; round < ROUNDS; round++) {
+                String word = words.get(random.nextInt(words.size() / THREADS) * THREADS + thread);
+                switch (random.nextInt(4)) {
+                    case 0:
+                        Words body = new Words();
+                        body.words = new String[] { word };
+                        endpoint.addWords(body);
+                        owned.add(word);
+                        break;
+                    case 1:
+                        endpoint.deleteWord(word);
+                        owned.remove(word);
+                        break;
+                    default:
+                        Anagrams anagrams = endpoint.getAnagrams(word, null);
+                        List<String> group = new ArrayList<>(anagrams.getWords());
+                        assertFalse(word, group.contains(word));
+                        assertEquals(group.size(), new HashSet<>(group).size());
+                        for (String w : group)
+                            assertTrue(w, DataUtils.validateAnagrams(new String[] { word, w }));
+                        if (owned.contains(word))
+                            assertTrue(word, dictionary.containsWord(word));
+                }
+            }
+            return owned;
+        });
+
+        Set<String> all = new HashSet<>();
+        expected.forEach(all::addAll);
+        for (String w : words)
+            assertEquals(w, all.contains(w), dictionary.containsWord(w));
+        assertEquals(all.size(), endpoint.getStats().getBody().getWordCount());
+    }
+
+    @Test
+    public void deleteAnagramsLosesNoWords() throws Exception {
+        //writers add words while a reaper deletes the whole group, every word ends up deleted or still stored, never both
+        List<String> words = permutations("abcdefg");
+        List<Set<String>> seen = run(thread -> {
+            Set<String> result = new HashSet<>();
+            if (thread == 0) {
+                for (int round = 0; round < ROUNDS; round++)
+                    for (String w : endpoint.deleteAnagram("abcdefg").getWords())
+                        assertTrue(w, result.add(w));
+            } else {
+                for (int i = thread - 1; i < words.size(); i += THREADS - 1)
+                    assertTrue(dictionary.addWord(words.get(i)));
+            }
+            return result;
+        });
+
+        Set<String> deleted = seen.get(0);
+        for (String w : words)
+            assertTrue(w, deleted.contains(w) ^ dictionary.containsWord(w));
+    }
+
+    private interface Worker {
+        Set<String> work(int thread) throws Exception;
+    }
+
+    private static List<Set<String>> run(Worker worker) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Set<String>>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit((Callable<Set<String>>) () -> {
+                    start.await();
+                    return worker.work(thread);
+                }));
+            }
+            start.countDown();
+            List<Set<String>> results = new ArrayList<>();
+            for (Future<Set<String>> f : futures)
+                results.add(f.get(60, TimeUnit.SECONDS));
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<String> permutations(String letters) {
+        List<String> result = new ArrayList<>();
+        permute("", letters, result);
+        return result;
+    }
+
+    private static void permute(String prefix, String rest, List<String> result) {
+        if (rest.isEmpty()) {
+            result.add(prefix);
+            return;
+        }
+        for (int i = 0; i < rest.length(); i++)
+            permute(prefix + rest.charAt(i), rest.substring(0, i) + rest.substring(i + 1), result);
+    }
+}
@@ -0,0 +1,131 @@
+package test;
+
+import com.ibotta.dao.Anagrams;
+import com.ibotta.dao.CorpusStore;
+import com.ibotta.dao.Signature;
+import com.ibotta.dao.StorageEngine;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the same checks against every storage engine
+ */
+@RunWith(Parameterized.class)
+public class CorpusStoreTests {
+
+    private final StorageEngine engine;
+    private CorpusStore store;
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> engines() {
+        return Arrays.stream(StorageEngine.values()).map(e -> new Object[] { e }).collect(Collectors.toList());
+    }
+
+    public CorpusStoreTests(StorageEngine engine) {
+        this.engine = engine;
+    }
+
+    @Before
+    public void before() {
+        store = engine.newStore();
+        for (String w : TestUtils.getReadAnagramList())
+            add(w);
+    }
+
+    @Test
+    public void addAndGet() {
+        assertFalse(add("dear"));
+        assertTrue(add("cat"));
+        assertEquals(2, store.groupCount());
+
+        Anagrams anagrams = get("read");
+        assertEquals(3, anagrams.getWords().size());
+        assertTrue(anagrams.getWords().containsAll(Arrays.asList(TestUtils.getReadAnagramList())));
+        assertTrue(contains("dare"));
+        assertFalse(contains("ared"));
+        assertNull(get("dog"));
+    }
+
+    @Test
+    public void remove() {
+        assertFalse(remove("ared"));
+        assertTrue(remove("dear"));
+        assertFalse(contains("dear"));
+        assertEquals(2, get("read").getWords().size());
+        assertTrue(remove("read"));
+        assertTrue(remove("dare"));
+        assertNull(get("read"));
+        assertTrue(store.isEmpty());
+    }
+
+    @Test
+    public void removeGroup() {
+        Anagrams removed = store.removeGroup(Signature.high("dear"), Signature.low("dear"));
+        assertEquals(3, removed.getWords().size());
+        assertNull(store.removeGroup(Signature.high("dear"), Signature.low("dear")));
+        assertTrue(store.isEmpty());
+    }
+
+    @Test
+    public void manyGroups() {
+        //enough churn to grow the index and reclaim space in the off heap arena
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 20000; i++)
+                assertTrue(add(word(i)));
+            assertEquals(20001, store.groupCount());
+            assertEquals(20001, store.groups().count());
+            for (int i = 0; i < 20000; i++) {
+                assertTrue(contains(word(i)));
+                assertTrue(remove(word(i)));
+            }
+            assertEquals(1, store.groupCount());
+        }
+        List<String> words = get("dare").getWords();
+        assertEquals(3, words.size());
+    }
+
+    @Test
+    public void clear() {
+        store.clear();
+        assertTrue(store.isEmpty());
+        assertFalse(store.iterator().hasNext());
+        assertTrue(add("read"));
+    }
+
+    /**
+     * Builds a word with a distinct signature for each number
+     */
+    private String word(int i) {
+        StringBuilder sb = new StringBuilder("z");
+        for (int symbol = 0; i > 0; symbol++, i >>= 1)
+            if ((i & 1) == 1)
+                sb.append((char) ('a' + symbol));
+        return sb.toString();
+    }
+
+    private boolean add(String w) {
+        return store.add(Signature.high(w), Signature.low(w), w);
+    }
+
+    private boolean remove(String w) {
+        return store.remove(Signature.high(w), Signature.low(w), w);
+    }
+
+    private boolean contains(String w) {
+        return store.contains(Signature.high(w), Signature.low(w), w);
+    }
+
+    private Anagrams get(String w) {
+        return store.get(Signature.high(w), Signature.low(w));
+    }
+}
@@ -0,0 +1,111 @@
+package test;
+
+import com.ibotta.dao.Dictionary;
+import com.ibotta.dao.DictionaryEvent;
+import com.ibotta.dao.DictionaryEvent.Type;
+import com.ibotta.dao.StorageEngine;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the change events published by the dictionary
+ */
+public class DictionaryEventTests {
+
+    private Dictionary dictionary;
+    private List<List<DictionaryEvent>> deliveries;
+
+    @Before
+    public void before() {
+        dictionary = new Dictionary(StorageEngine.HEAP);
+        deliveries = Collections.synchronizedList(new ArrayList<>());
+        dictionary.getEvents().subscribe(deliveries::add);
+    }
+
+    @Test
+    public void addWordsIsOneBatch() throws InterruptedException {
+        dictionary.addWords(TestUtils.getReadAnagramList());
+        dictionary.addWords(new String[] { "read" }); //already there, nothing to publish
+        flush();
+
+        assertEquals(1, deliveries.size());
+        List<DictionaryEvent> events = deliveries.get(0);
+        assertEquals(3, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(Type.WORD_ADDED, events.get(i).getType());
+            assertEquals(TestUtils.getReadAnagramList()[i], events.get(i).getWord());
+            assertEquals(i + 1, events.get(i).getSize());
+        }
+    }
+
+    @Test
+    public void eventTypes() throws InterruptedException {
+        dictionary.addWords(new String[] { "cat", "act", "dog" });
+        dictionary.deleteWord("cat");
+        dictionary.deleteWord("cat");
+        dictionary.deleteAnagrams("act");
+        dictionary.deleteAll();
+        flush();
+
+        List<Type> types = new ArrayList<>();
+        deliveries.forEach(batch -> batch.forEach(e -> types.add(e.getType())));
+        assertEquals(Type.WORD_ADDED, types.get(0));
+        assertEquals(Type.WORD_REMOVED, types.get(3));
+        assertEquals(Type.GROUP_REMOVED, types.get(4));
+        assertEquals(Type.CLEARED, types.get(5));
+        assertEquals(6, types.size()); //dog is cleared without an event of its own
+    }
+
+    @Test
+    public void writersDoNotWaitForSubscribers() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        Consumer<List<DictionaryEvent>> slow = events -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        dictionary.getEvents().subscribe(slow);
+        for (int i = 0; i < 100; i++)
+            dictionary.addWord("word" + (char) ('a' + i % 26) + (char) ('a' + i / 26));
+        assertFalse(dictionary.getEvents().flush(50, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        flush();
+        int delivered = 0;
+        for (List<DictionaryEvent> batch : deliveries)
+            delivered += batch.size();
+        assertEquals(100, delivered);
+        assertTrue(deliveries.size() < 100); //queued events were coalesced
+    }
+
+    @Test
+    public void closeStopsDispatcher() throws InterruptedException, IOException {
+        List<Thread> dispatchers = Collections.synchronizedList(new ArrayList<>());
+        dictionary.getEvents().subscribe(events -> dispatchers.add(Thread.currentThread()));
+        dictionary.addWord("cat");
+        flush();
+        Thread dispatcher = dispatchers.get(0);
+
+        dictionary.close();
+        dispatcher.join(5000);
+        assertFalse(dispatcher.isAlive());
+        dictionary.addWord("act"); //dropped, not delivered or rejected
+        assertEquals(1, dispatchers.size());
+    }
+
+    private void flush() throws InterruptedException {
+        assertTrue(dictionary.getEvents().flush(5, TimeUnit.SECONDS));
+    }
+}
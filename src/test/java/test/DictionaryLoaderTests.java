@@ -0,0 +1,109 @@
+package test;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.ibotta.dao.Dictionary;
+import com.ibotta.dao.DictionaryLoader;
+import com.ibotta.dao.StorageEngine;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Loads word lists through the streaming loader
+ */
+public class DictionaryLoaderTests {
+
+    @Test
+    public void loadsShippedGzipDictionary() throws IOException {
+        Dictionary dictionary = new Dictionary(StorageEngine.HEAP);
+        DictionaryLoader.Result result = new DictionaryLoader().load(dictionary, "dictionary.txt.gz");
+        assertEquals(235886, result.getRead());
+        assertEquals(0, result.getRejected());
+        assertTrue(result.getAdded() > 0 && result.getAdded() <= result.getRead());
+        assertTrue(dictionary.containsWord("corpus"));
+        assertTrue(dictionary.getAnagrams("read").getWords().contains("dear"));
+    }
+
+    @Test
+    public void smallChunksAcrossPool() throws IOException {
+        String[] words = new String[] { "read", "dear", "dare", "Cat", "act", "dog", "god", "bird", "dear" };
+        Dictionary dictionary = new Dictionary(StorageEngine.OFFHEAP);
+        DictionaryLoader loader = new DictionaryLoader(new ForkJoinPool(3), 2);
+        DictionaryLoader.Result result = loader.load(dictionary, stream(String.join("\n", words)));
+        assertEquals(words.length, result.getRead());
+        assertEquals(words.length - 1, result.getAdded()); //dear is listed twice
+        for (String w : words)
+            assertTrue(w, dictionary.containsWord(w));
+    }
+
+    @Test
+    public void oneBatchPerLoad() throws IOException, InterruptedException {
+        String[] words = new String[] { "read", "dear", "dare", "cat", "act", "dog", "god", "bird" };
+        Dictionary dictionary = new Dictionary(StorageEngine.HEAP);
+        List<Integer> batches = new CopyOnWriteArrayList<>();
+        dictionary.getEvents().subscribe(events -> batches.add(events.size()));
+        new DictionaryLoader(new ForkJoinPool(3), 2).load(dictionary, stream(String.join("\n", words)));
+        assertTrue(dictionary.getEvents().flush(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList(words.length), batches);
+    }
+
+    @Test
+    public void rejectsInvalidLines() throws IOException {
+        Dictionary dictionary = new Dictionary(StorageEngine.HEAP);
+        DictionaryLoader.Result result = new DictionaryLoader().load(dictionary, stream("dog\r\nbird's\n\n  \na1phanum3r1c\ncat\n"));
+        assertEquals(4, result.getRead());
+        assertEquals(2, result.getRejected());
+        assertEquals(2, result.getAdded());
+        assertTrue(dictionary.containsWord("dog"));
+        assertTrue(dictionary.containsWord("cat"));
+    }
+
+    @Test
+    public void detectsGzipFromContent() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gz = new GZIPOutputStream(bytes)) {
+            gz.write(String.join("\n", TestUtils.getReadAnagramList()).getBytes(Charset.defaultCharset()));
+        }
+        Dictionary dictionary = new Dictionary(StorageEngine.HEAP);
+        DictionaryLoader.Result result = new DictionaryLoader().load(dictionary, new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(3, result.getAdded());
+        assertEquals(2, dictionary.getAnagrams("read").getWords().size());
+    }
+
+    @Test
+    public void loadsJsonArrayAndWordsObject() throws IOException {
+        Dictionary dictionary = new Dictionary(StorageEngine.HEAP);
+        DictionaryLoader loader = new DictionaryLoader(new ForkJoinPool(2), 2);
+        DictionaryLoader.Result result = loader.loadJson(dictionary, stream("[\"read\", \"dear\", \"bird's\", \"Read\", \"dare\"]"));
+        assertEquals(5, result.getRead());
+        assertEquals(3, result.getAdded());
+        assertEquals(1, result.getDuplicates());
+        assertEquals(1, result.getRejected());
+
+        result = loader.loadJson(dictionary, stream("{\"other\": {\"words\": [1]}, \"words\": [\"cat\", \"act\", \"dear\"]}"));
+        assertEquals(2, result.getAdded());
+        assertEquals(1, result.getDuplicates());
+        assertTrue(dictionary.containsWord("act"));
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void jsonMustBeWords() throws IOException {
+        new DictionaryLoader().loadJson(new Dictionary(StorageEngine.HEAP), stream("[\"cat\", 7]"));
+    }
+
+    private InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(Charset.defaultCharset()));
+    }
+}
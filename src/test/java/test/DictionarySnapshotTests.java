@@ -0,0 +1,110 @@
+package test;
+
+import com.ibotta.dao.Anagrams;
+import com.ibotta.dao.CorpusStore;
+import com.ibotta.dao.Dictionary;
+import com.ibotta.dao.DictionarySnapshot;
+import com.ibotta.dao.Signature;
+import com.ibotta.dao.StorageEngine;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Writes dictionaries to snapshot files and maps them back into each storage engine
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(FileUtils.class)
+public class DictionarySnapshotTests {
+
+    private File file;
+
+    @Before
+    public void before() throws IOException {
+        file = File.createTempFile("anagrams", ".snapshot");
+    }
+
+    @After
+    public void after() {
+        file.delete();
+    }
+
+    @Test
+    public void writeAndMap() throws IOException {
+        Dictionary dictionary = TestUtils.mockDictionary();
+        dictionary.addWords(TestUtils.getReadAnagramList());
+        dictionary.writeSnapshot(file);
+
+        DictionarySnapshot snapshot = DictionarySnapshot.map(file);
+        assertEquals(4, snapshot.getGroupCount()); //act, dgo, bdir, ader
+        assertEquals(7, snapshot.getWordCount());
+
+        for (StorageEngine engine : StorageEngine.values()) {
+            CorpusStore store = engine.open(DictionarySnapshot.map(file));
+            assertEquals(engine.name(), 4, store.groupCount());
+            for (String w : TestUtils.getReadAnagramList())
+                assertTrue(engine + " " + w, contains(store, w));
+            assertTrue(contains(store, "cat"));
+            Anagrams anagrams = store.get(Signature.high("act"), Signature.low("act"));
+            assertTrue(anagrams.getWords().containsAll(Arrays.asList("cat", "act")));
+        }
+    }
+
+    @Test
+    public void mappedStoreIsWritable() throws IOException {
+        Dictionary dictionary = TestUtils.mockDictionary();
+        dictionary.writeSnapshot(file);
+        long length = file.length();
+
+        CorpusStore store = StorageEngine.OFFHEAP.open(DictionarySnapshot.map(file));
+        assertTrue(add(store, "tac"));
+        assertTrue(store.remove(Signature.high("cat"), Signature.low("cat"), "cat"));
+        assertTrue(store.removeGroup(Signature.high("dog"), Signature.low("dog")) != null);
+        for (int i = 1; i < 2000; i++)
+            assertTrue(add(store, "z" + word(i)));
+        assertTrue(contains(store, "tac"));
+        assertTrue(contains(store, "act"));
+        assertFalse(contains(store, "cat"));
+        assertFalse(contains(store, "dog"));
+
+        //the file itself is never changed by writes to the store
+        assertEquals(length, file.length());
+        CorpusStore reopened = StorageEngine.OFFHEAP.open(DictionarySnapshot.map(file));
+        assertTrue(contains(reopened, "cat"));
+        assertTrue(contains(reopened, "dog"));
+        assertFalse(contains(reopened, "tac"));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        Files.write(file.toPath(), new byte[4096]);
+        DictionarySnapshot.map(file);
+    }
+
+    private String word(int i) {
+        StringBuilder sb = new StringBuilder();
+        for (int symbol = 0; i > 0; symbol++, i >>= 1)
+            if ((i & 1) == 1)
+                sb.append((char) ('a' + symbol));
+        return sb.toString();
+    }
+
+    private boolean add(CorpusStore store, String w) {
+        return store.add(Signature.high(w), Signature.low(w), w);
+    }
+
+    private boolean contains(CorpusStore store, String w) {
+        return store.contains(Signature.high(w), Signature.low(w), w);
+    }
+}
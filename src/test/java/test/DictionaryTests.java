@@ -1,6 +1,7 @@
 package test;
 
 
+import com.ibotta.dao.AnagramPage;
 import com.ibotta.dao.Anagrams;
 import com.ibotta.dao.Dictionary;
 import com.ibotta.dao.Stats;
@@ -13,7 +14,11 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
 
 import static org.junit.Assert.*;
 
@@ -89,6 +94,25 @@ public class DictionaryTests {
         assertTrue("cat", words.contains("cat"));
     }
 
+    @Test
+    public void getAnagramsDoesNotChangeGroup() {
+        dictionary.addWords(TestUtils.getReadAnagramList());
+        List<String> words = dictionary.getAnagrams("read").getWords();
+        assertEquals(2, words.size());
+        assertFalse(words.contains("read"));
+        assertEquals(1, dictionary.getAnagrams("read", 1).getWords().size());
+
+        //the queried word is still stored and shows up for the rest of its group
+        assertTrue(dictionary.containsWord("read"));
+        assertTrue(dictionary.getAnagrams("dear").getWords().contains("read"));
+        try {
+            words.remove(0);
+            fail("Anagram results should be read only");
+        } catch (UnsupportedOperationException ex) {
+            //expected
+        }
+    }
+
     /*
     void deleteWord(string getWords) - support ws method, deleteWord single dictionary entry
         UT - mock load dictionary with three words
@@ -132,6 +156,15 @@ public class DictionaryTests {
         assertFalse(dictionary.containsWord("act"));
     }
 
+    @Test
+    public void removeIgnoresCase() {
+        assertTrue(dictionary.deleteWord("CAT"));
+        assertFalse(dictionary.containsWord("cat"));
+        assertTrue(dictionary.containsWord("act"));
+        assertEquals(Collections.singletonList("act"), dictionary.deleteAnagrams("Act").getWords());
+        assertFalse(dictionary.containsWord("act"));
+    }
+
     @Test
     public void deleteAll() {
         assertFalse(dictionary.isEmpty());
@@ -152,4 +185,52 @@ public class DictionaryTests {
         assertEquals(3, results.size());
     }
 
+    @Test
+    public void pagesThroughGroupsBySize() {
+        Random random = new Random(3);
+        for (int i = 0; i < 2000; i++) {
+            char[] chars = new char[3 + random.nextInt(3)];
+            for (int j = 0; j < chars.length; j++)
+                chars[j] = (char) ('a' + random.nextInt(5));
+            dictionary.addWord(new String(chars));
+        }
+        for (int size : new int[] { 1, 2, 4 }) {
+            Set<List<String>> expected = new HashSet<>();
+            dictionary.getAnagramGroupsBySize(size).forEach(a -> expected.add(a.getWords()));
+
+            Set<List<String>> paged = new HashSet<>();
+            String cursor = null;
+            do {
+                AnagramPage page = dictionary.getAnagramGroupsBySize(size, cursor, 7);
+                assertTrue(page.getGroups().size() <= 7);
+                for (Anagrams a : page.getGroups())
+                    assertTrue(a.getWords().toString(), paged.add(a.getWords()));
+                cursor = page.getNext();
+            } while (cursor != null);
+            assertEquals(expected, paged);
+
+            Set<List<String>> streamed = new HashSet<>();
+            dictionary.forEachGroupBySize(size, a -> assertTrue(streamed.add(a.getWords())));
+            assertEquals(expected, streamed);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void badCursor() {
+        dictionary.getAnagramGroupsBySize(1, "nothex", 10);
+    }
+
+    @Test
+    public void pageLimitIsCapped() {
+        AnagramPage page = dictionary.getAnagramGroupsBySize(1, null, Dictionary.MAX_PAGE_LIMIT);
+        assertEquals(dictionary.getAnagramGroupsBySize(1).size(), page.getGroups().size());
+        assertNull(page.getNext());
+        for (int limit : new int[] { 0, Dictionary.MAX_PAGE_LIMIT + 1, Integer.MAX_VALUE }) {
+            try {
+                dictionary.getAnagramGroupsBySize(1, null, limit);
+                fail("limit " + limit);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
 }
@@ -14,7 +14,11 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.embedded.LocalServerPort;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -22,8 +26,12 @@ import org.springframework.test.context.junit4.SpringRunner;
 import javax.validation.constraints.NotNull;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.assertj.core.api.BDDAssertions.then;
 import static org.junit.Assert.*;
@@ -53,6 +61,19 @@ public class EndpointIntegrationTests {
         host = "http://localhost:" + this.port + "/";
     }
 
+    @Test
+    public void _0endpointReturnsBatchAnagrams() {
+        String url = host + "anagrams.json?limit=1";
+        Words body = new Words();
+        body.words = new String[] { "read", "dog" };
+        ResponseEntity<Map> entity = this.testRestTemplate.postForEntity(url, body, Map.class);
+        then(entity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Map<String, List<String>> anagrams = entity.getBody();
+        assertEquals(2, anagrams.size());
+        assertEquals(1, anagrams.get("read").size());
+        assertEquals("god", anagrams.get("dog").get(0));
+    }
+
     @Test
     public void _1endpointReturnsAnagrams() {
         Anagrams anagrams = callWord("read", null);
@@ -122,6 +143,44 @@ public class EndpointIntegrationTests {
             assertTrue(((ArrayList)a).size() >= 4);
     }
 
+    @Test
+    public void _4bendpointPagesAndStreamsGroupsBySize() {
+        List all = this.testRestTemplate.getForEntity(host + "anagrams/size/4", List.class).getBody();
+
+        Set<List> paged = new HashSet<>();
+        String cursor = null;
+        do {
+            String url = host + "anagrams/size/4?limit=50" + ((cursor != null) ? "&cursor=" + cursor : "");
+            ResponseEntity<Map> entity = this.testRestTemplate.getForEntity(url, Map.class);
+            then(entity.getStatusCode()).isEqualTo(HttpStatus.OK);
+            List<Map> groups = (List<Map>) entity.getBody().get("groups");
+            assertTrue(groups.size() <= 50);
+            for (Map group : groups)
+                assertTrue(paged.add((List) group.get("anagrams")));
+            cursor = (String) entity.getBody().get("next");
+        } while (cursor != null);
+        assertEquals(all.size(), paged.size());
+        then(this.testRestTemplate.getForEntity(host + "anagrams/size/1?limit=2147483647", Map.class).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        then(this.testRestTemplate.getForEntity(host + "phrases/read.json?maxWords=9", Map.class).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        then(this.testRestTemplate.getForEntity(host + "subanagrams/ra7e.json", Map.class).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(Collections.singletonList(MediaType.parseMediaType("application/x-ndjson")));
+        ResponseEntity<String> stream = this.testRestTemplate.exchange(host + "anagrams/size/4", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        then(stream.getStatusCode()).isEqualTo(HttpStatus.OK);
+        String[] lines = stream.getBody().trim().split("\n");
+        assertEquals(all.size(), lines.length);
+        for (String line : lines)
+            assertTrue(line, line.startsWith("{\"anagrams\":["));
+
+        headers.setAccept(Collections.singletonList(MediaType.ALL));
+        ResponseEntity<List> any = this.testRestTemplate.exchange(host + "anagrams/size/4", HttpMethod.GET, new HttpEntity<>(headers), List.class);
+        assertEquals(all.size(), any.getBody().size());
+    }
+
     @Test
     public void _5endpointReturnsStats() {
         String url = host + "stats.json";
@@ -154,12 +213,14 @@ public class EndpointIntegrationTests {
 
         for (Object o : oldList.getWords()) {
             String w = o.toString();
-            if ("read".equals(w))
-                assertFalse(w, newList.getWords().contains(w));
+            if ("dear".equals(w))
+                continue; //the queried word is never in its own results
             else
                 assertTrue(w, newList.getWords().contains(w));
         }
 
+        assertFalse(newList.getWords().contains("read"));
+
         newList = callWord("read", null);
         assertTrue(newList.getWords().size() == 0);
     }
@@ -1,8 +1,11 @@
 package test;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ibotta.api.Endpoint;
 import com.ibotta.dao.Anagrams;
 import com.ibotta.dao.Dictionary;
+import com.ibotta.dao.DictionaryLoader;
 import com.ibotta.dao.Stats;
 import com.ibotta.dao.Words;
 import org.apache.commons.io.FileUtils;
@@ -11,10 +14,17 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
+import org.springframework.mock.web.MockHttpServletRequest;
 
 import javax.validation.ValidationException;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -47,6 +57,7 @@ public class EndpointTests {
         Words body = new Words();
         body.words = words;
         endpoint.addWords(body);
+        stats = endpoint.getStats().getBody();
         assertTrue(stats.getWordCount() == wCnt);
         assertTrue(stats.getAnagramCount() == aCnt);
         for (String w : words)
@@ -105,4 +116,49 @@ public class EndpointTests {
         results = endpoint.getAnagramGroupsBySize(2);
         assertEquals(3, results.size());
     }
+
+    @Test
+    public void streamWords() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/words/stream.json");
+        request.setContentType("text/plain");
+        request.setContent("somerandomword\nrandomwordsome\ncat\nbird's\n".getBytes(StandardCharsets.UTF_8));
+        DictionaryLoader.Result result = endpoint.streamWords(request).getBody();
+        assertEquals(2, result.getAdded());
+        assertEquals(1, result.getDuplicates());
+        assertEquals(1, result.getRejected());
+        assertTrue(dictionary.containsWord("randomwordsome"));
+
+        request = new MockHttpServletRequest("POST", "/words/stream.json");
+        request.setContentType("application/json;charset=UTF-8");
+        request.setContent("{\"words\": [\"otherrandomword\", \"cat\"]}".getBytes(StandardCharsets.UTF_8));
+        result = endpoint.streamWords(request).getBody();
+        assertEquals(1, result.getAdded());
+        assertTrue(dictionary.containsWord("otherrandomword"));
+    }
+
+    @Test(expected = ValidationException.class)
+    public void streamWordsRejectsBadJson() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/words/stream.json");
+        request.setContentType("application/json");
+        request.setContent("{\"words\": \"cat\"}".getBytes(StandardCharsets.UTF_8));
+        endpoint.streamWords(request);
+    }
+
+    @Test
+    public void batchAnagrams() throws IOException {
+        dictionary.addWords(TestUtils.getReadAnagramList());
+        Words body = new Words();
+        body.words = new String[] { "read", "Dare", "read", "notaword", "bird's" };
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        endpoint.getAnagrams(body, 1).getBody().writeTo(out);
+
+        Map<String, List<String>> result = new ObjectMapper().readValue(out.toByteArray(), new TypeReference<LinkedHashMap<String, List<String>>>() { });
+        assertEquals(Arrays.asList("read", "Dare", "notaword", "bird's"), new ArrayList<>(result.keySet()));
+        assertEquals(1, result.get("read").size());
+        assertFalse(result.get("read").contains("read"));
+        assertEquals(1, result.get("Dare").size());
+        assertFalse(result.get("Dare").contains("dare"));
+        assertTrue(result.get("notaword").isEmpty());
+        assertTrue(result.get("bird's").isEmpty());
+    }
 }
@@ -0,0 +1,77 @@
+package test;
+
+import com.ibotta.dao.Dictionary;
+import com.ibotta.dao.Stats;
+import com.ibotta.dao.StorageEngine;
+import com.ibotta.metrics.Metrics;
+import com.ibotta.metrics.RequestTimer;
+import com.ibotta.metrics.Timer;
+import com.ibotta.metrics.TimerMetrics;
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the latency timers published through the actuator
+ */
+public class MetricsTests {
+
+    @Test
+    public void timerPercentiles() {
+        Timer timer = Metrics.timer("test.percentiles");
+        for (int i = 1; i <= 100; i++)
+            timer.record(TimeUnit.MILLISECONDS.toNanos(i));
+        Timer.Snapshot s = timer.snapshot();
+        assertEquals(100, s.getCount());
+        assertEquals(50, s.getPercentile(50), 0.1);
+        assertEquals(99, s.getPercentile(99), 0.1);
+        assertEquals(100, s.getMax(), 0.1);
+        assertEquals(50.5, s.getMean(), 0.1);
+        assertTrue(s.getRate() > 0);
+
+        timer.record(TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(101, timer.snapshot().getCount());
+    }
+
+    @Test
+    public void dictionaryIsTimed() {
+        long signatures = Metrics.SIGNATURE.snapshot().getCount();
+        long lookups = Metrics.CORPUS_LOOKUP.snapshot().getCount();
+        long calculations = Metrics.STATS_CALCULATE.snapshot().getCount();
+
+        Dictionary dictionary = new Dictionary(StorageEngine.HEAP);
+        dictionary.addWord("read");
+        dictionary.getAnagrams("dear");
+        new Stats(dictionary).calculate();
+
+        assertEquals(signatures + 2, Metrics.SIGNATURE.snapshot().getCount());
+        assertEquals(lookups + 1, Metrics.CORPUS_LOOKUP.snapshot().getCount());
+        assertEquals(calculations + 1, Metrics.STATS_CALCULATE.snapshot().getCount());
+    }
+
+    @Test
+    public void requestsAreTimedByPattern() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("DELETE", "/timed/read.json");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/timed/{word}.json");
+        assertEquals("http.delete.timed.{word}.json", RequestTimer.timerName(request));
+
+        RequestTimer interceptor = new RequestTimer();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, null);
+        interceptor.afterCompletion(request, response, null, null);
+
+        Map<String, Number> published = new TimerMetrics().metrics().stream()
+                .collect(Collectors.toMap(Metric::getName, Metric::getValue));
+        assertEquals(1L, published.get("timer.http.delete.timed.{word}.json.count"));
+        assertNotNull(published.get("timer.http.delete.timed.{word}.json.p99"));
+        assertNotNull(published.get("timer.dictionary.load.rate"));
+    }
+}
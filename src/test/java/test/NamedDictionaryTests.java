@@ -0,0 +1,120 @@
+package test;
+
+import com.ibotta.api.DictionaryRegistry;
+import com.ibotta.api.NamedEndpoint;
+import com.ibotta.api.UnknownDictionaryException;
+import com.ibotta.config.AnagramConfig;
+import com.ibotta.dao.Words;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Serves several dictionaries by name, loaded on first use and unloaded when idle
+ */
+public class NamedDictionaryTests {
+
+    private File dir;
+    private final Map<String, AnagramConfig> configs = new LinkedHashMap<>();
+
+    @Before
+    public void before() throws IOException {
+        dir = Files.createTempDirectory("named").toFile();
+        configs.put("pets", config("pets", Arrays.asList("dog", "god", "cat", "act"), null));
+        configs.put("logged", config("logged", Arrays.asList("read", "dear"), new File(dir, "wal").getPath()));
+    }
+
+    @After
+    public void after() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private AnagramConfig config(String name, Iterable<String> words, String walDir) throws IOException {
+        File file = new File(dir, name + ".txt");
+        Files.write(file.toPath(), words);
+        AnagramConfig config = new AnagramConfig();
+        config.dictionaryFile = file.getPath();
+        config.storageEngine = "heap";
+        config.responseCacheSize = "10";
+        config.walDir = walDir;
+        return config;
+    }
+
+    @Test
+    public void loadedOnFirstUse() throws IOException {
+        DictionaryRegistry registry = new DictionaryRegistry(configs, 0);
+        NamedEndpoint endpoint = new NamedEndpoint(registry);
+        assertFalse(registry.isLoaded("pets"));
+        assertEquals(Arrays.asList("god"), endpoint.getAnagrams("pets", "dog", null).getWords());
+        assertTrue(registry.isLoaded("pets"));
+        assertFalse(registry.isLoaded("logged"));
+
+        Words body = new Words();
+        body.words = new String[] { "ogd" };
+        endpoint.addWords("pets", body);
+        assertEquals(5, endpoint.getStats("pets").getBody().getWordCount());
+        assertEquals(2, endpoint.getStats("pets").getBody().getAnagramCount());
+        assertEquals(0, endpoint.getAnagrams("logged", "dog", null).getWords().size());
+        assertEquals(0, endpoint.getAnagrams("pets", "read", null).getWords().size());
+        assertEquals(Arrays.asList("dear"), endpoint.getAnagrams("logged", "read", null).getWords());
+        registry.close();
+    }
+
+    @Test(expected = UnknownDictionaryException.class)
+    public void unknownName() throws IOException {
+        DictionaryRegistry registry = new DictionaryRegistry(configs, 0);
+        new NamedEndpoint(registry).getAnagrams("nothing", "dog", null);
+    }
+
+    @Test
+    public void unloadedWhenIdle() throws IOException, InterruptedException {
+        DictionaryRegistry registry = new DictionaryRegistry(configs, 1);
+        NamedEndpoint endpoint = new NamedEndpoint(registry);
+        Words body = new Words();
+        body.words = new String[] { "ared" };
+        endpoint.addWords("logged", body);
+        endpoint.addWords("pets", body);
+        try (DictionaryRegistry.Lease lease = registry.lease("logged")) {
+            Thread.sleep(5);
+            assertEquals(0, registry.evictIdle()); //in use, and pets has changes it can't keep
+        }
+        Thread.sleep(5);
+        assertEquals(1, registry.evictIdle());
+        assertFalse(registry.isLoaded("logged"));
+        assertTrue(registry.isLoaded("pets"));
+
+        //the changes come back from the log
+        assertEquals(2, endpoint.getAnagrams("logged", "ared", null).getWords().size());
+        assertTrue(registry.isLoaded("logged"));
+        registry.close();
+    }
+
+    @Test
+    public void streamHoldsLease() throws IOException, InterruptedException {
+        DictionaryRegistry registry = new DictionaryRegistry(configs, 1);
+        NamedEndpoint endpoint = new NamedEndpoint(registry);
+        StreamingResponseBody body = endpoint.streamAnagramGroupsBySize("pets", 2).getBody();
+        Thread.sleep(5);
+        assertEquals(0, registry.evictIdle()); //the body hasn't been written yet
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        assertEquals(2, out.toString("UTF-8").trim().split("\n").length);
+        Thread.sleep(5);
+        assertEquals(1, registry.evictIdle());
+        assertFalse(registry.isLoaded("pets"));
+        registry.close();
+    }
+}
@@ -0,0 +1,157 @@
+package test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibotta.api.AnagramCache;
+import com.ibotta.dao.Dictionary;
+import com.ibotta.dao.StorageEngine;
+import com.ibotta.netty.NettyServer;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs requests against the Netty front end, the routes and JSON must match the servlet endpoints
+ */
+public class NettyServerTests {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private Dictionary dictionary;
+    private NettyServer server;
+
+    @Before
+    public void before() throws InterruptedException {
+        dictionary = new Dictionary(StorageEngine.HEAP);
+        dictionary.addWords(TestUtils.getReadAnagramList());
+        server = new NettyServer(dictionary, new AnagramCache(dictionary, 100), 0);
+    }
+
+    @After
+    public void after() {
+        server.close();
+    }
+
+    @Test
+    public void lookups() throws IOException {
+        Response r = request("GET", "/anagrams/read.json", null, null);
+        assertEquals(200, r.status);
+        assertEquals("{\"anagrams\":[\"dear\",\"dare\"]}", r.body);
+        assertEquals("{\"anagrams\":[\"dear\"]}", request("GET", "/anagrams/read.json?limit=1", null, null).body);
+        assertEquals("{\"anagrams\":[]}", request("GET", "/anagrams/zzz.json", null, null).body);
+        assertEquals("true", request("POST", "/validate.json", "application/json", "[\"read\",\"dare\"]").body);
+
+        JsonNode stats = mapper.readTree(request("GET", "/stats.json", null, null).body);
+        assertEquals(3, stats.get("wordCount").asInt());
+        JsonNode batch = mapper.readTree(request("POST", "/anagrams.json", "application/json", "{\"words\":[\"read\",\"x\"]}").body);
+        assertEquals(2, batch.get("read").size());
+        assertEquals(0, batch.get("x").size());
+    }
+
+    @Test
+    public void changes() throws IOException {
+        assertEquals(201, request("POST", "/words.json", "application/json", "{\"words\":[\"ared\"]}").status);
+        assertEquals(3, mapper.readTree(request("GET", "/anagrams/read.json", null, null).body).get("anagrams").size());
+        assertEquals(200, request("DELETE", "/words/ared.json", null, null).status);
+        assertEquals(2, mapper.readTree(request("GET", "/anagrams/read.json", null, null).body).get("anagrams").size());
+
+        Response stream = request("POST", "/words/stream.json", "text/plain", "cat\nact\nact\n");
+        assertEquals(201, stream.status);
+        assertEquals(2, mapper.readTree(stream.body).get("added").asInt());
+
+        assertEquals(2, mapper.readTree(request("GET", "/delete/cat.json", null, null).body).get("anagrams").size());
+        assertEquals(204, request("DELETE", "/words.json", null, null).status);
+        assertEquals("{\"anagrams\":[]}", request("GET", "/anagrams/read.json", null, null).body);
+    }
+
+    @Test
+    public void groupsBySize() throws IOException {
+        dictionary.addWords(new String[] { "cat", "act", "dog" });
+        JsonNode all = mapper.readTree(request("GET", "/anagrams/size/2", null, null).body);
+        assertEquals(2, all.size());
+        assertEquals(3, mapper.readTree(request("GET", "/anagrams/size/1", null, null).body).size());
+
+        JsonNode page = mapper.readTree(request("GET", "/anagrams/size/2?limit=1", null, null).body);
+        assertEquals(1, page.get("groups").size());
+        assertFalse(page.get("next").isNull());
+
+        HttpURLConnection c = open("GET", "/anagrams/size/1");
+        c.setRequestProperty("Accept", "application/x-ndjson");
+        String[] lines = IOUtils.toString(c.getInputStream(), StandardCharsets.UTF_8).trim().split("\n");
+        assertEquals(3, lines.length);
+        for (String line : lines)
+            assertTrue(mapper.readTree(line).has("anagrams"));
+    }
+
+    @Test
+    public void streamsManyChunks() throws IOException {
+        String[] words = new String[4500];
+        for (int i = 0; i < words.length; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int n = i; n > 0 || word.length() == 0; n /= 26)
+                word.append((char) ('a' + n % 26));
+            words[i] = word.toString();
+        }
+        dictionary.addWords(words);
+        int groups = dictionary.getAnagramGroupsBySize(1).size();
+        assertTrue(groups > 2000); //several chunks
+        assertEquals(groups, mapper.readTree(request("GET", "/anagrams/size/1", null, null).body).size());
+
+        HttpURLConnection c = open("GET", "/anagrams/size/1");
+        c.setRequestProperty("Accept", "application/x-ndjson");
+        String[] lines = IOUtils.toString(c.getInputStream(), StandardCharsets.UTF_8).trim().split("\n");
+        assertEquals(groups, lines.length);
+        for (String line : lines)
+            assertTrue(line, line.startsWith("{\"anagrams\":["));
+        assertEquals("[]", request("GET", "/anagrams/size/99", null, null).body);
+    }
+
+    @Test
+    public void errors() throws IOException {
+        assertEquals(404, request("GET", "/nothing.json", null, null).status);
+        assertEquals(400, request("GET", "/anagrams/read.json?limit=x", null, null).status);
+        assertEquals(400, request("GET", "/anagrams/size/1?limit=2147483647", null, null).status);
+        assertEquals(400, request("POST", "/words.json", "application/json", "not json").status);
+        Response invalid = request("POST", "/words.json", "application/json", "{\"words\":[\"no!\"]}");
+        assertEquals(400, invalid.status);
+        assertEquals(400, request("GET", "/phrases/catdog.json?maxWords=9", null, null).status);
+        assertEquals(400, request("GET", "/subanagrams/ra7e.json", null, null).status);
+        assertEquals("/words.json", mapper.readTree(invalid.body).get("path").asText());
+    }
+
+    private HttpURLConnection open(String method, String path) throws IOException {
+        HttpURLConnection c = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+        c.setRequestMethod(method);
+        return c;
+    }
+
+    private Response request(String method, String path, String contentType, String body) throws IOException {
+        HttpURLConnection c = open(method, path);
+        if (body != null) {
+            c.setDoOutput(true);
+            c.setRequestProperty("Content-Type", contentType);
+            try (OutputStream out = c.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        Response r = new Response();
+        r.status = c.getResponseCode();
+        InputStream in = (r.status < 400) ? c.getInputStream() : c.getErrorStream();
+        r.body = (in != null) ? IOUtils.toString(in, StandardCharsets.UTF_8) : "";
+        return r;
+    }
+
+    private static class Response {
+        int status;
+        String body;
+    }
+}
@@ -0,0 +1,101 @@
+package test;
+
+import com.ibotta.dao.Dictionary;
+import com.ibotta.dao.StorageEngine;
+import com.ibotta.search.PhraseSearch;
+import com.ibotta.search.Phrases;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks multi word anagram search
+ */
+public class PhraseSearchTests {
+
+    private Dictionary dictionary;
+    private PhraseSearch search;
+
+    @Before
+    public void before() {
+        dictionary = new Dictionary(StorageEngine.HEAP);
+        dictionary.addWords(new String[] { "dog", "god", "cat", "act", "a", "at", "tad", "go", "cog" });
+        search = new PhraseSearch(dictionary);
+    }
+
+    @Test
+    public void twoWordPhrases() {
+        Phrases phrases = search.search("cat dog", 2, 100);
+        assertFalse(phrases.isTruncated());
+        List<List<String>> found = phrases.getPhrases();
+        assertEquals(5, found.size());
+        assertTrue(found.contains(Arrays.asList("act", "dog")));
+        assertTrue(found.contains(Arrays.asList("cat", "god")));
+        assertTrue(found.contains(Arrays.asList("cog", "tad")));
+        for (List<String> phrase : found)
+            assertEquals(2, phrase.size());
+    }
+
+    @Test
+    public void maxWordsLimitsPhraseLength() {
+        assertTrue(search.search("catgo", 1, 100).getPhrases().isEmpty());
+        List<List<String>> found = search.search("catgo", 2, 100).getPhrases();
+        assertEquals(3, found.size());
+        assertTrue(found.contains(Arrays.asList("act", "go")));
+        assertTrue(found.contains(Arrays.asList("cat", "go")));
+        assertTrue(found.contains(Arrays.asList("at", "cog")));
+    }
+
+    @Test
+    public void repeatedWordsAreNotDuplicated() {
+        List<List<String>> found = search.search("doggod", 2, 100).getPhrases();
+        assertEquals(3, found.size());
+        assertTrue(found.contains(Arrays.asList("dog", "dog")));
+        assertTrue(found.contains(Arrays.asList("dog", "god")));
+        assertTrue(found.contains(Arrays.asList("god", "god")));
+    }
+
+    @Test
+    public void limitTruncates() {
+        Phrases phrases = search.search("catdog", 2, 2);
+        assertEquals(2, phrases.getPhrases().size());
+        assertTrue(phrases.isTruncated());
+    }
+
+    @Test
+    public void limitCutsInSortedOrder() {
+        List<List<String>> all = search.search("catdog", 3, PhraseSearch.MAX_LIMIT).getPhrases();
+        assertEquals(5, all.size());
+        for (int limit = 1; limit <= all.size(); limit++)
+            assertEquals(all.subList(0, limit), search.search("catdog", 3, limit).getPhrases());
+        assertEquals(Arrays.asList("act", "dog"), all.get(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void limitAboveMax() {
+        search.search("catdog", 2, PhraseSearch.MAX_LIMIT + 1);
+    }
+
+    @Test
+    public void followsDictionaryChanges() throws InterruptedException {
+        assertEquals(2, search.search("cat", 1, 100).getPhrases().size());
+        dictionary.addWord("tac");
+        dictionary.deleteWord("act");
+        assertTrue(dictionary.getEvents().flush(5, TimeUnit.SECONDS));
+        List<List<String>> found = search.search("cat", 1, 100).getPhrases();
+        assertEquals(Arrays.asList(Arrays.asList("cat"), Arrays.asList("tac")), found);
+        dictionary.deleteAll();
+        assertTrue(dictionary.getEvents().flush(5, TimeUnit.SECONDS));
+        assertTrue(search.search("cat", 1, 100).getPhrases().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidText() {
+        search.search("cat!", 2, 10);
+    }
+}
@@ -0,0 +1,142 @@
+package test;
+
+import com.ibotta.dao.DataUtils;
+import com.ibotta.dao.Signature;
+import com.ibotta.dao.SignatureMap;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Exercises the signature encoding and the signature keyed map
+ */
+public class SignatureTests {
+
+    @Test
+    public void anagramsShareSignature() {
+        for (String w : TestUtils.getReadAnagramList()) {
+            assertEquals(w, Signature.high("read"), Signature.high(w));
+            assertEquals(w, Signature.low("read"), Signature.low(w));
+        }
+        assertEquals(Signature.low("cat"), Signature.low("ACT"));
+        assertEquals(Signature.high("cat"), Signature.high("ACT"));
+        assertFalse(Signature.low("dog") == Signature.low("bird") && Signature.high("dog") == Signature.high("bird"));
+    }
+
+    @Test
+    public void counts() {
+        String word = "Jean-Pierre";
+        long high = Signature.high(word);
+        long low = Signature.low(word);
+        assertTrue(Signature.isValid(high, low));
+        assertEquals(3, Signature.count(high, low, Signature.symbol('e')));
+        assertEquals(2, Signature.count(high, low, Signature.symbol('r')));
+        assertEquals(1, Signature.count(high, low, Signature.symbol('-')));
+        assertEquals(0, Signature.count(high, low, Signature.symbol('z')));
+        assertEquals(word.length(), Signature.length(high, low));
+    }
+
+    @Test
+    public void invalidWords() {
+        assertInvalid("");
+        assertInvalid("bird's");
+        assertInvalid("a1phanum3r1c");
+        assertInvalid("aaaaaaaaaaaaaaaa"); //16 of the same letter can't be counted
+        assertInvalid("zzzzzzzzzzzzzzzz");
+        assertTrue(Signature.isValid(Signature.high("aaaaaaaaaaaaaaa"), Signature.low("aaaaaaaaaaaaaaa")));
+    }
+
+    @Test
+    public void letterInventory() {
+        assertTrue(fits("dog", "good"));
+        assertTrue(fits("good", "good"));
+        assertFalse(fits("good", "dog"));
+        assertFalse(fits("zzz", "zz"));
+        assertTrue(fits("ppppppppppppppp", "pppppppppppppppz")); //15 of a letter, the largest count
+        assertEquals(0, missing("dog", "good"));
+        assertEquals(1, missing("good", "dog"));
+        assertEquals(3, missing("zoo-z", "oz"));
+        assertEquals(15, missing("ppppppppppppppp", "a"));
+
+        long high = Signature.high("aba-z");
+        long low = Signature.low("aba-z");
+        assertEquals((1 << 0) | (1 << 1) | (1 << 25) | (1 << 26), Signature.mask(high, low));
+    }
+
+    @Test
+    public void mapOperations() {
+        SignatureMap<String> map = new SignatureMap<>();
+        Set<String> keys = new HashSet<>();
+        Set<String> words = new HashSet<>();
+        for (int i = 0; i < 5000; i++) {
+            String w = word(i);
+            if (!keys.add(DataUtils.createKeyFromWord(w)))
+                continue; //only one word per anagram group
+            words.add(w);
+            assertNull(w, map.put(Signature.high(w), Signature.low(w), w));
+        }
+        assertEquals(words.size(), map.size());
+        for (String w : words)
+            assertEquals(w, map.get(Signature.high(w), Signature.low(w)));
+
+        int removed = 0;
+        for (String w : words) {
+            if (w.hashCode() % 2 == 0) {
+                assertEquals(w, map.remove(Signature.high(w), Signature.low(w)));
+                removed++;
+            }
+        }
+        assertEquals(words.size() - removed, map.size());
+        for (String w : words) {
+            String expected = (w.hashCode() % 2 == 0) ? null : w;
+            assertEquals(w, expected, map.get(Signature.high(w), Signature.low(w)));
+        }
+
+        Set<String> visited = new HashSet<>();
+        map.forEach((high, low, w) -> {
+            assertEquals(Signature.high(w), high);
+            assertEquals(Signature.low(w), low);
+            visited.add(w);
+        });
+        assertEquals(map.size(), visited.size());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.iterator().hasNext());
+    }
+
+    @Test
+    public void mapCompute() {
+        SignatureMap<Integer> map = new SignatureMap<>();
+        long high = Signature.high("dog");
+        long low = Signature.low("dog");
+        assertEquals(Integer.valueOf(1), map.compute(high, low, n -> n == null ? 1 : n + 1));
+        assertEquals(Integer.valueOf(2), map.compute(high, low, n -> n == null ? 1 : n + 1));
+        assertNull(map.compute(high, low, n -> null));
+        assertTrue(map.isEmpty());
+    }
+
+    private String word(int i) {
+        StringBuilder sb = new StringBuilder();
+        do {
+            sb.append((char) ('a' + i % 26));
+            i /= 26;
+        } while (i > 0);
+        return sb.toString();
+    }
+
+    private static boolean fits(String a, String b) {
+        return Signature.fits(Signature.high(a), Signature.low(a), Signature.high(b), Signature.low(b));
+    }
+
+    private static int missing(String a, String b) {
+        return Signature.missing(Signature.high(a), Signature.low(a), Signature.high(b), Signature.low(b));
+    }
+
+    private void assertInvalid(String word) {
+        assertFalse(word, Signature.isValid(Signature.high(word), Signature.low(word)));
+    }
+}
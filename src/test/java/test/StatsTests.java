@@ -0,0 +1,188 @@
+package test;
+
+import com.ibotta.dao.Anagrams;
+import com.ibotta.dao.Dictionary;
+import com.ibotta.dao.Stats;
+import com.ibotta.dao.StorageEngine;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the incrementally maintained stats always match a full scan of the dictionary
+ */
+@RunWith(Parameterized.class)
+public class StatsTests {
+
+    private final StorageEngine engine;
+    private Dictionary dictionary;
+    private Stats stats;
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> engines() {
+        return Arrays.stream(StorageEngine.values()).map(e -> new Object[] { e }).collect(Collectors.toList());
+    }
+
+    public StatsTests(StorageEngine engine) {
+        this.engine = engine;
+    }
+
+    @Before
+    public void before() {
+        dictionary = new Dictionary(engine);
+        stats = new Stats(dictionary);
+    }
+
+    @Test
+    public void emptyDictionary() {
+        assertEquals(0, stats.getWordCount());
+        assertEquals(0, stats.getAnagramCount());
+        assertEquals(-1, stats.getMin());
+        assertEquals(-1, stats.getMax());
+        assertEquals(0, stats.getMedian(), 0);
+        assertEquals(0, (int) stats.getLargestGroupsSize());
+        assertTrue(stats.getLargestGroups().isEmpty());
+    }
+
+    @Test
+    public void lengthsAndLargestGroups() {
+        dictionary.addWords(new String[] { "a", "read", "dear", "dare", "cat", "act", "abcdefgh" });
+        assertEquals(7, stats.getWordCount());
+        assertEquals(4, stats.getAnagramCount());
+        assertEquals(1, stats.getMin());
+        assertEquals(8, stats.getMax());
+        assertEquals(4, stats.getMedian(), 0); //1 3 3 4 4 4 8
+        assertEquals(3, (int) stats.getLargestGroupsSize());
+        assertEquals(1, stats.getLargestGroups().size());
+        assertTrue(stats.getLargestGroups().get(0).containsAll(Arrays.asList(TestUtils.getReadAnagramList())));
+
+        dictionary.deleteWord("read");
+        assertEquals(2, (int) stats.getLargestGroupsSize());
+        assertEquals(2, stats.getLargestGroups().size());
+        assertEquals(3.5, stats.getMedian(), 0); //1 3 3 4 4 8
+
+        dictionary.deleteAnagrams("act");
+        dictionary.deleteAnagrams("dear");
+        assertEquals(1, (int) stats.getLargestGroupsSize());
+        assertEquals(2, stats.getLargestGroups().size());
+
+        dictionary.deleteAll();
+        assertEquals(0, stats.getWordCount());
+        assertEquals(0, stats.getAnagramCount());
+        assertEquals(0, (int) stats.getLargestGroupsSize());
+    }
+
+    @Test
+    public void snapshotIsFixed() {
+        dictionary.addWords(new String[] { "a", "at", "read", "dear" });
+        Stats snapshot = stats.snapshot();
+        dictionary.addWords(new String[] { "dare", "abcdefgh" });
+        assertEquals(4, snapshot.getWordCount());
+        assertEquals(2, (int) snapshot.getLargestGroupsSize());
+        assertEquals(2, snapshot.getLargestGroups().get(0).size());
+        assertEquals(2.75, snapshot.getAverage(), 0); //1 2 4 4
+        assertEquals(6, stats.getWordCount());
+        assertEquals(23 / 6.0, stats.getAverage(), 1e-9); //1 2 4 4 4 8
+    }
+
+    @Test
+    public void matchesFullScan() {
+        Random random = new Random(7);
+        List<String> pool = new ArrayList<>();
+        for (int i = 0; i < 300; i++)
+            pool.add(randomWord(random, 2 + random.nextInt(4)));
+        for (int round = 0; round < 2000; round++) {
+            String word = pool.get(random.nextInt(pool.size()));
+            int op = random.nextInt(10);
+            if (op < 6)
+                dictionary.addWord(word);
+            else if (op < 9)
+                dictionary.deleteWord(word);
+            else
+                dictionary.deleteAnagrams(word);
+            if (round % 100 == 0)
+                assertMatchesScan();
+        }
+        assertMatchesScan();
+    }
+
+    @Test
+    public void concurrentWriters() throws InterruptedException {
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Random random = new Random(t);
+            writers.add(new Thread(() -> {
+                for (int round = 0; round < 2000; round++) {
+                    String word = randomWord(random, 2 + random.nextInt(5));
+                    if (random.nextInt(4) == 0)
+                        dictionary.deleteWord(word);
+                    else
+                        dictionary.addWord(word);
+                }
+            }));
+        }
+        writers.forEach(Thread::start);
+        for (Thread writer : writers)
+            writer.join();
+        assertMatchesScan();
+    }
+
+    private void assertMatchesScan() {
+        List<Integer> lengths = new ArrayList<>();
+        int groups = 0;
+        int largest = 0;
+        for (Anagrams a : dictionary) {
+            groups++;
+            largest = Math.max(largest, a.getWords().size());
+            a.getWords().forEach(w -> lengths.add(w.length()));
+        }
+        Collections.sort(lengths);
+        assertEquals(lengths.size(), stats.getWordCount());
+        assertEquals(groups, stats.getAnagramCount());
+        assertEquals(largest, (int) stats.getLargestGroupsSize());
+        if (lengths.isEmpty())
+            return;
+        assertEquals((int) lengths.get(0), stats.getMin());
+        assertEquals((int) lengths.get(lengths.size() - 1), stats.getMax());
+        int m = lengths.size() / 2;
+        double median = (lengths.size() % 2 == 0) ? (lengths.get(m) + lengths.get(m - 1)) / 2.0 : lengths.get(m);
+        assertEquals(median, stats.getMedian(), 0);
+        for (List<String> group : stats.getLargestGroups())
+            assertEquals(largest, new HashSet<>(group).size());
+        for (int size = 1; size <= largest + 1; size++) {
+            int min = size;
+            Set<List<String>> expected = new HashSet<>();
+            dictionary.forEach(a -> {
+                if (a.getWords().size() >= min)
+                    expected.add(a.getWords());
+            });
+            Set<List<String>> indexed = new HashSet<>();
+            dictionary.getAnagramGroupsBySize(size).forEach(a -> assertTrue(indexed.add(a.getWords())));
+            assertEquals(expected, indexed);
+        }
+    }
+
+    /**
+     * Word from a few letters so plenty of the words are anagrams of each other
+     */
+    private static String randomWord(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++)
+            chars[i] = (char) ('a' + random.nextInt(4));
+        return new String(chars);
+    }
+}
@@ -0,0 +1,62 @@
+package test;
+
+import com.ibotta.dao.Dictionary;
+import com.ibotta.dao.StorageEngine;
+import com.ibotta.search.SubAnagramSearch;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the words within a word search
+ */
+public class SubAnagramSearchTests {
+
+    private Dictionary dictionary;
+    private SubAnagramSearch search;
+
+    @Before
+    public void before() {
+        dictionary = new Dictionary(StorageEngine.HEAP);
+        dictionary.addWords(new String[] { "a", "at", "tea", "eat", "ate", "rate", "tear", "treat", "zebra", "be" });
+        search = new SubAnagramSearch(dictionary);
+    }
+
+    @Test
+    public void wordsWithinRack() {
+        List<String> words = search.search("Rate", null).getWords();
+        assertEquals(Arrays.asList("rate", "tear", "ate", "eat", "tea", "at", "a"), words);
+    }
+
+    @Test
+    public void blankTiles() {
+        List<String> words = search.search("rat_", null).getWords();
+        assertTrue(words.containsAll(Arrays.asList("rate", "tear", "at", "a")));
+        assertFalse(words.contains("treat")); //needs a second t and an e, only one blank
+        assertTrue(search.search("rat**", null).getWords().contains("treat"));
+        assertEquals(Arrays.asList("at", "be", "a"), search.search("__", null).getWords());
+    }
+
+    @Test
+    public void limit() {
+        assertEquals(3, search.search("rate", 3).getWords().size());
+        assertTrue(search.search("rate", 0).getWords().isEmpty());
+        List<String> all = search.search("rat**", null).getWords();
+        for (int limit = 1; limit <= all.size(); limit++)
+            assertEquals(all.subList(0, limit), search.search("rat**", limit).getWords());
+    }
+
+    @Test
+    public void noMatches() {
+        assertTrue(search.search("qqq", null).getWords().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidRack() {
+        search.search("ra7e", null);
+    }
+}
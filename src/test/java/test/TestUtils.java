@@ -6,13 +6,13 @@ import org.apache.commons.io.FileUtils;
 import org.powermock.api.mockito.PowerMockito;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.util.Arrays;
-import java.util.List;
 
 import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.eq;
 
 /**
  * Static Utils class containing common testing methods for mocking
@@ -32,8 +32,10 @@ public class TestUtils {
         AnagramConfig config = PowerMockito.mock(AnagramConfig.class);
         config.dictionaryFile = "dictionary.txt";
         PowerMockito.mockStatic(FileUtils.class);
-        List<String> dictionary = Arrays.asList(TestUtils.getRandomWordList());
-        PowerMockito.when(FileUtils.readLines(any(File.class), eq(Charset.defaultCharset()))).thenReturn(dictionary);
+        File dictionary = File.createTempFile("dictionary", ".txt");
+        dictionary.deleteOnExit();
+        Files.write(dictionary.toPath(), Arrays.asList(TestUtils.getRandomWordList()), Charset.defaultCharset());
+        PowerMockito.when(FileUtils.openInputStream(any(File.class))).thenReturn(new FileInputStream(dictionary));
         return new Dictionary(config);
     }
 }
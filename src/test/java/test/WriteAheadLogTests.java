@@ -0,0 +1,179 @@
+package test;
+
+import com.ibotta.config.AnagramConfig;
+import com.ibotta.dao.Dictionary;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Restarts dictionaries from their write-ahead log
+ */
+public class WriteAheadLogTests {
+
+    private File dir;
+    private AnagramConfig config;
+
+    @Before
+    public void before() throws IOException {
+        dir = Files.createTempDirectory("wal").toFile();
+        File words = new File(dir, "base.txt");
+        Files.write(words.toPath(), Arrays.asList("dog", "god", "cat"));
+        config = new AnagramConfig();
+        config.dictionaryFile = words.getPath();
+        config.storageEngine = "heap";
+        config.walDir = new File(dir, "log").getPath();
+    }
+
+    @After
+    public void after() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Test
+    public void changesSurviveRestart() throws IOException {
+        Dictionary dictionary = new Dictionary(config);
+        dictionary.addWords(new String[] { "act", "read", "dear" });
+        dictionary.deleteWord("dog");
+        dictionary.deleteAnagrams("dear");
+        dictionary.close();
+
+        Dictionary restarted = new Dictionary(config);
+        assertTrue(restarted.containsWord("act"));
+        assertTrue(restarted.containsWord("god"));
+        assertFalse(restarted.containsWord("dog"));
+        assertFalse(restarted.containsWord("read"));
+        assertEquals(2, restarted.getStatistics().groupCount()); //dgo and act
+        restarted.close();
+    }
+
+    @Test
+    public void interruptedWriteIsNotAcknowledged() throws IOException {
+        Dictionary dictionary = new Dictionary(config);
+        Thread.currentThread().interrupt();
+        try {
+            dictionary.addWord("act"); //returns only if the record made it to disk before the wait
+        } catch (UncheckedIOException ex) {
+            assertTrue(ex.getCause() instanceof InterruptedIOException);
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+        dictionary.close();
+    }
+
+    @Test
+    public void concurrentWritersSurviveRestart() throws IOException, InterruptedException {
+        Dictionary dictionary = new Dictionary(config);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Random random = new Random(t);
+            writers.add(new Thread(() -> {
+                for (int round = 0; round < 500; round++) {
+                    String word = "" + (char) ('a' + random.nextInt(6)) + (char) ('a' + random.nextInt(6)) + (char) ('a' + random.nextInt(6));
+                    if (random.nextInt(3) == 0)
+                        dictionary.deleteWord(word);
+                    else
+                        dictionary.addWord(word);
+                }
+            }));
+        }
+        writers.forEach(Thread::start);
+        for (Thread writer : writers)
+            writer.join();
+        Set<String> words = new HashSet<>();
+        dictionary.forEach(group -> words.addAll(group.getWords()));
+        dictionary.close();
+
+        Dictionary restarted = new Dictionary(config);
+        Set<String> replayed = new HashSet<>();
+        restarted.forEach(group -> replayed.addAll(group.getWords()));
+        assertEquals(words, replayed);
+        restarted.close();
+    }
+
+    @Test
+    public void deleteAllSurvivesRestart() throws IOException {
+        Dictionary dictionary = new Dictionary(config);
+        dictionary.deleteAll();
+        dictionary.addWord("tac");
+        dictionary.close();
+
+        Dictionary restarted = new Dictionary(config);
+        assertFalse(restarted.containsWord("cat"));
+        assertTrue(restarted.containsWord("tac"));
+        restarted.close();
+    }
+
+    @Test
+    public void tornTailIsIgnored() throws IOException {
+        Dictionary dictionary = new Dictionary(config);
+        dictionary.addWord("act");
+        dictionary.close();
+        File segment = segments()[0];
+        long synced = segment.length();
+        dictionary = new Dictionary(config);
+        dictionary.addWord("tac");
+        dictionary.close();
+
+        //cut the last frame short as if the process died while writing it
+        File last = segments()[1];
+        try (RandomAccessFile f = new RandomAccessFile(last, "rw")) {
+            f.setLength(f.length() - 3);
+        }
+        Dictionary restarted = new Dictionary(config);
+        assertEquals(synced, segment.length());
+        assertTrue(restarted.containsWord("act"));
+        assertFalse(restarted.containsWord("tac"));
+        restarted.close();
+    }
+
+    @Test
+    public void compactsIntoSnapshot() throws IOException, InterruptedException {
+        config.walCompactBytes = "1";
+        Dictionary dictionary = new Dictionary(config);
+        dictionary.addWord("act");
+        File log = new File(config.walDir);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (snapshots().isEmpty() || new File(log, "wal-00000000.log").exists()) {
+            assertTrue("compaction did not finish", System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+        dictionary.addWord("tac");
+        dictionary.close();
+
+        Dictionary restarted = new Dictionary(config);
+        assertTrue(restarted.containsWord("act"));
+        assertTrue(restarted.containsWord("tac"));
+        assertTrue(restarted.containsWord("dog"));
+        assertEquals(2, restarted.getStatistics().groupCount());
+        restarted.close();
+    }
+
+    private File[] segments() {
+        File[] files = new File(config.walDir).listFiles((d, name) -> name.endsWith(".log"));
+        Arrays.sort(files);
+        return files;
+    }
+
+    private Collection<File> snapshots() {
+        return FileUtils.listFiles(new File(config.walDir), new String[] { "snapshot" }, false);
+    }
+}